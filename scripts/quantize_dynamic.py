@@ -0,0 +1,30 @@
+"""Dynamically quantize an ONNX model to INT8 weights (used by org.example.ModelQuantizer).
+
+Usage:
+    pip install onnxruntime onnx
+    python scripts/quantize_dynamic.py models/all-mpnet-base-v2-onnx/model.onnx models/all-mpnet-base-v2-onnx/model_int8.onnx
+"""
+import sys
+
+from onnxruntime.quantization import QuantType, quantize_dynamic
+
+
+def main():
+    if len(sys.argv) != 3:
+        print("usage: quantize_dynamic.py <model.onnx> <model_int8.onnx>", file=sys.stderr)
+        return 2
+    src, dst = sys.argv[1], sys.argv[2]
+    # MatMul/Gemm weights dominate transformer CPU time; activations stay fp32 and are quantized per call
+    quantize_dynamic(
+        model_input=src,
+        model_output=dst,
+        weight_type=QuantType.QInt8,
+        per_channel=True,
+        op_types_to_quantize=["MatMul", "Gemm"],
+    )
+    print("wrote", dst)
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
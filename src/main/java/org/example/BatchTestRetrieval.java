@@ -6,9 +6,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Batch test runner: reads queries from tests/queries.txt and validates retrieval.
+ *
+ * All queries share one embedding batch and one dense batch search (retrieveBatchAsync); a query
+ * whose later stages fail is reported as [ERR] without affecting the others. Per-query times are
+ * from the start of the batch until that query's context was ready. If the shared batch step
+ * fails, the queries are retrieved one at a time instead (times are then per call).
  */
 public class BatchTestRetrieval {
 
@@ -16,7 +22,7 @@ public class BatchTestRetrieval {
         // Load components
         System.out.println("Loading embedder...");
         OnnxEmbedder embedder = new OnnxEmbedder(
-                Config.EMBED_MODEL_PATH + "/model.onnx",
+                Config.modelFile(Config.EMBED_MODEL_PATH),
                 Config.EMBED_MODEL_PATH,
                 384
         );
@@ -46,16 +52,23 @@ public class BatchTestRetrieval {
 
         int passed = 0;
         int failed = 0;
-        long totalMs = 0;
+
+        // one embedding batch + one Qdrant batch search for all queries
+        long start = System.nanoTime();
+        List<CompletableFuture<List<DbChunk>>> pending = null;
+        try {
+            pending = svc.retrieveBatchAsync(queries);
+        } catch (Exception e) {
+            System.out.println("Batch retrieval failed (" + e.getMessage() + "); retrieving queries one at a time");
+        }
 
         for (int i = 0; i < queries.size(); i++) {
             String query = queries.get(i);
-            long t0 = System.nanoTime();
+            long t0 = pending != null ? start : System.nanoTime();
 
             try {
-                List<DbChunk> results = svc.retrieve(query);
+                List<DbChunk> results = pending != null ? RetrievalService.await(pending.get(i)) : svc.retrieve(query);
                 long ms = (System.nanoTime() - t0) / 1_000_000;
-                totalMs += ms;
 
                 // Basic validation: should return at least 1 result
                 boolean hasResults = results != null && !results.isEmpty();
@@ -88,13 +101,12 @@ public class BatchTestRetrieval {
 
             } catch (Exception e) {
                 failed++;
-                long ms = (System.nanoTime() - t0) / 1_000_000;
-                totalMs += ms;
                 System.out.printf("[ERR]  %3d. %-50s (%s)%n",
                         i + 1, truncate(query, 50), e.getMessage());
             }
         }
 
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
         System.out.println("=".repeat(60));
         System.out.printf("Results: %d passed, %d failed out of %d queries%n", passed, failed, queries.size());
         System.out.printf("Total time: %dms, Avg: %dms/query%n", totalMs, queries.size() > 0 ? totalMs / queries.size() : 0);
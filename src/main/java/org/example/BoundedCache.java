@@ -0,0 +1,330 @@
+package org.example;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * BoundedCache - thread-safe, bounded, metered cache shared by request threads.
+ *
+ * Keys are spread over lock-striped segments, so concurrent requests only contend when they hit
+ * the same stripe. Each segment follows W-TinyLFU: new entries enter a small LRU window (1% of
+ * the segment); entries leaving the window are admitted to the main LRU region only if a
+ * count-min frequency sketch says they are used more often than the main region's LRU victim.
+ * One-off keys (a burst of unique queries) therefore pass through the window without flushing
+ * the frequently used entries.
+ *
+ * Bounds are by total weight (entries when no weigher is given), split evenly across segments.
+ * Entries older than ttl (if > 0) are treated as absent and dropped when next touched.
+ * Metrics (tag cache=name): cache.gets{result=hit|miss}, cache.puts, cache.evictions{cause=size|expired},
+ * cache.size and cache.weight gauges.
+ */
+public class BoundedCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_WEIGHT = 32; // below this a segment's window/main split is meaningless
+
+    private final Segment[] segments;
+    private final long maxWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    /**
+     * Entry-count bound, metrics on the global registry.
+     */
+    public BoundedCache(String name, long maxEntries, Duration ttl) {
+        this(name, maxEntries, null, ttl, Metrics.globalRegistry);
+    }
+
+    /**
+     * @param weigher weight of an entry (null: 1 per entry); an entry heavier than a segment is not cached
+     * @param ttl     expire-after-write (null or zero: never)
+     */
+    public BoundedCache(String name, long maxWeight, ToIntBiFunction<? super K, ? super V> weigher, Duration ttl,
+                        MeterRegistry registry) {
+        this(name, maxWeight, weigher, ttl, registry, System::nanoTime);
+    }
+
+    BoundedCache(String name, long maxWeight, ToIntBiFunction<? super K, ? super V> weigher, Duration ttl,
+                 MeterRegistry registry, LongSupplier nanoClock) {
+        if (maxWeight <= 0) throw new IllegalArgumentException("maxWeight must be > 0");
+        this.maxWeight = maxWeight;
+        this.weigher = weigher != null ? weigher : (k, v) -> 1;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.nanoClock = nanoClock;
+
+        // power of two; small caches get fewer segments so each keeps a useful main region
+        int count = 1;
+        while (count < MAX_SEGMENTS && count * 2L * MIN_SEGMENT_WEIGHT <= maxWeight) count *= 2;
+        this.segments = new BoundedCache.Segment[count];
+        for (int i = 0; i < count; i++) segments[i] = new Segment(maxWeight / count + (i < maxWeight % count ? 1 : 0));
+
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Cache lookups").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Cache lookups").register(registry);
+        this.puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Entries written to the cache").register(registry);
+        this.sizeEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "size")
+                .description("Entries evicted or refused admission to stay within the bound").register(registry);
+        this.expiredEvictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "expired")
+                .description("Entries dropped after their TTL").register(registry);
+        Gauge.builder("cache.size", this, BoundedCache::size).tag("cache", name)
+                .description("Entries in the cache").register(registry);
+        Gauge.builder("cache.weight", this, BoundedCache::weight).tag("cache", name)
+                .description("Total weight of the entries in the cache").register(registry);
+    }
+
+    /**
+     * Cached value, or null if absent or expired.
+     */
+    public V get(K key) {
+        int h = hash(key);
+        V v = segmentFor(h).get(key, h);
+        if (v != null) hits.increment();
+        else misses.increment();
+        return v;
+    }
+
+    public void put(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        int h = hash(key);
+        segmentFor(h).put(key, value, h, weigher.applyAsInt(key, value));
+        puts.increment();
+    }
+
+    public void invalidate(K key) {
+        int h = hash(key);
+        segmentFor(h).remove(key);
+    }
+
+    public void invalidateAll() {
+        for (Segment s : segments) s.clear();
+    }
+
+    public long size() {
+        long n = 0;
+        for (Segment s : segments) n += s.size();
+        return n;
+    }
+
+    public long weight() {
+        long w = 0;
+        for (Segment s : segments) w += s.weight();
+        return w;
+    }
+
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 16) & (segments.length - 1)];
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final int weight;
+        final long writeNanos;
+
+        Node(V value, int weight, long writeNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = writeNanos;
+        }
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        // access-ordered: iteration starts at the least recently used entry
+        private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, Node<V>> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final long maxWeight;
+        private final long windowMax;
+        private long windowWeight;
+        private long mainWeight;
+
+        Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.windowMax = Math.max(1, maxWeight / 100);
+            this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE / 8, maxWeight));
+        }
+
+        V get(K key, int h) {
+            lock.lock();
+            try {
+                sketch.increment(h);
+                Node<V> node = window.get(key);
+                boolean inWindow = node != null;
+                if (node == null) node = main.get(key);
+                if (node == null) return null;
+                if (expired(node)) {
+                    if (inWindow) removeFrom(window, key, true);
+                    else removeFrom(main, key, false);
+                    expiredEvictions.increment();
+                    return null;
+                }
+                return node.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(K key, V value, int h, int weight) {
+            if (weight > maxWeight) return; // could never fit
+            lock.lock();
+            try {
+                sketch.increment(h);
+                removeFrom(window, key, true);
+                removeFrom(main, key, false);
+                window.put(key, new Node<>(value, weight, nanoClock.getAsLong()));
+                windowWeight += weight;
+                while (windowWeight > windowMax && !window.isEmpty()) {
+                    Map.Entry<K, Node<V>> eldest = window.entrySet().iterator().next();
+                    K candidate = eldest.getKey();
+                    Node<V> node = eldest.getValue();
+                    removeFrom(window, candidate, true);
+                    admit(candidate, node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // window -> main, evicting main's LRU entries only while the candidate is used more often than they are
+        private void admit(K candidate, Node<V> node) {
+            long mainMax = Math.max(0, maxWeight - windowMax);
+            if (node.weight > mainMax || expired(node)) {
+                sizeEvictions.increment();
+                return;
+            }
+            int candidateFreq = sketch.frequency(hash(candidate));
+            while (mainWeight + node.weight > mainMax) {
+                Map.Entry<K, Node<V>> victim = main.entrySet().iterator().next();
+                if (!expired(victim.getValue()) && sketch.frequency(hash(victim.getKey())) >= candidateFreq) {
+                    sizeEvictions.increment(); // candidate refused
+                    return;
+                }
+                if (expired(victim.getValue())) expiredEvictions.increment();
+                else sizeEvictions.increment();
+                removeFrom(main, victim.getKey(), false);
+            }
+            main.put(candidate, node);
+            mainWeight += node.weight;
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                removeFrom(window, key, true);
+                removeFrom(main, key, false);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void removeFrom(Map<K, Node<V>> region, K key, boolean isWindow) {
+            Node<V> old = region.remove(key);
+            if (old == null) return;
+            if (isWindow) windowWeight -= old.weight;
+            else mainWeight -= old.weight;
+        }
+
+        private boolean expired(Node<V> node) {
+            return ttlNanos > 0 && nanoClock.getAsLong() - node.writeNanos >= ttlNanos;
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                window.clear();
+                main.clear();
+                windowWeight = 0;
+                mainWeight = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return window.size() + main.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long weight() {
+            lock.lock();
+            try {
+                return windowWeight + mainWeight;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Count-min sketch of access counts capped at 15 (4 probes into a table of 16 x capacity
+     * counters); all counts are halved every 10 x capacity increments so old popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb7a6d6a5, 0x5a5d3b47, 0xc2b2ae35};
+        private final byte[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int size = 64;
+            while (size < capacity * 16L && size < (1 << 24)) size <<= 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * Math.max(1, capacity);
+        }
+
+        void increment(int hash) {
+            for (int i = 0; i < SEEDS.length; i++) {
+                int idx = index(hash, i);
+                if (table[idx] < 15) table[idx]++;
+            }
+            if (++additions >= sampleSize) reset();
+        }
+
+        int frequency(int hash) {
+            int min = 15;
+            for (int i = 0; i < SEEDS.length; i++) min = Math.min(min, table[index(hash, i)]);
+            return min;
+        }
+
+        private int index(int hash, int i) {
+            int h = hash * SEEDS[i];
+            return (h ^ (h >>> 17)) & mask;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) table[i] = (byte) (table[i] >>> 1);
+            additions /= 2;
+        }
+    }
+}
@@ -1,21 +1,26 @@
 package org.example;
 
-import java.util.Map;
-
 public class Candidate {
     public String id;
     public double score;
-    public Map<String, Object> payload;
+    public ChunkPayload payload;
     public float[] vector;
 
     public String getId() {
         return id;
     }
 
-    public Map<String, Object> getPayload() {
+    public ChunkPayload getPayload() {
         return payload;
     }
 
+    /**
+     * chunk_id from the payload (dense hits), or the id itself (lexical shells).
+     */
+    public String getChunkId() {
+        return payload != null && payload.chunkId != null ? payload.chunkId : id;
+    }
+
     @Override
     public String toString() {
         return "Candidate{id='" + id + "', score=" + score + ", vector=" + (vector==null? "null":"len="+vector.length) + "}";
@@ -0,0 +1,34 @@
+package org.example;
+
+/**
+ * ChunkPayload - the Qdrant point payload fields the retrieval path reads.
+ * Other payload fields (e.g. metadata) are skipped while decoding.
+ */
+public class ChunkPayload {
+    public final String chunkId;
+    public final String title;
+    public final String chunkType;
+
+    public ChunkPayload(String chunkId, String title, String chunkType) {
+        this.chunkId = chunkId;
+        this.title = title;
+        this.chunkType = chunkType;
+    }
+
+    public String getChunkId() {
+        return chunkId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getChunkType() {
+        return chunkType;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkPayload{chunkId='" + chunkId + "', title='" + title + "', chunkType='" + chunkType + "'}";
+    }
+}
@@ -0,0 +1,183 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ChunkTokenStore - cache of tokenizer ids per chunk, keyed by chunk_id and a hash of the chunk text.
+ *
+ * Ids are stored untruncated and without special tokens, so callers can join them to a freshly
+ * tokenized query (cross-encoder) or just read the count (prompt budgeting). An entry whose
+ * content hash no longer matches the text is re-tokenized, so edited chunks never serve stale ids.
+ *
+ * Entries are filled at index time (LuceneReindexer) or lazily on first use, and persisted in a
+ * compact binary file:
+ *   int magic "CTS1", int version, int count,
+ *   count x { UTF chunk_id, long contentHash, varint n, n x varint tokenId }
+ */
+public class ChunkTokenStore {
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkTokenStore.class);
+    private static final int MAGIC = 0x43545331; // "CTS1"
+    private static final int VERSION = 1;
+
+    /** Tokenize text without special tokens. */
+    public interface Tokenize {
+        long[] ids(String text) throws Exception;
+    }
+
+    private static final class Entry {
+        final long hash;
+        final int[] ids;
+
+        Entry(long hash, int[] ids) {
+            this.hash = hash;
+            this.ids = ids;
+        }
+    }
+
+    private final Tokenize tokenize;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    public ChunkTokenStore(Tokenize tokenize) {
+        this.tokenize = tokenize;
+    }
+
+    /**
+     * Token ids of a chunk's text (no special tokens), tokenizing on miss.
+     */
+    public int[] tokens(String chunkId, String text) throws Exception {
+        String t = text == null ? "" : text;
+        long hash = contentHash(t);
+        Entry e = entries.get(chunkId);
+        if (e != null && e.hash == hash) return e.ids;
+
+        long[] raw = tokenize.ids(t);
+        int[] ids = new int[raw.length];
+        for (int i = 0; i < raw.length; i++) ids[i] = (int) raw[i];
+        entries.put(chunkId, new Entry(hash, ids));
+        dirty = true;
+        return ids;
+    }
+
+    /**
+     * Token count of a chunk's text; falls back to a whitespace estimate if tokenization fails.
+     */
+    public int tokenCount(String chunkId, String text) {
+        try {
+            return tokens(chunkId, text).length;
+        } catch (Exception e) {
+            return whitespaceCount(text);
+        }
+    }
+
+    /**
+     * Token count of text that is not a stored chunk (prompt headers, trimmed bodies), counted the
+     * same way as tokenCount(chunkId, text) but not cached.
+     */
+    public int tokenCount(String text) {
+        if (text == null || text.isEmpty()) return 0;
+        try {
+            return tokenize.ids(text).length;
+        } catch (Exception e) {
+            return whitespaceCount(text);
+        }
+    }
+
+    private static int whitespaceCount(String text) {
+        return text == null || text.isBlank() ? 0 : text.trim().split("\\s+").length;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    // 64-bit FNV-1a over UTF-16 code units; cheap and stable across runs
+    static long contentHash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Load a previously saved store; a missing or unreadable file yields an empty store.
+     */
+    public static ChunkTokenStore open(Path file, Tokenize tokenize) {
+        ChunkTokenStore store = new ChunkTokenStore(tokenize);
+        if (file == null || !Files.isRegularFile(file)) return store;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOG.warn("Ignoring chunk token store {}: unknown format", file);
+                return store;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String chunkId = in.readUTF();
+                long hash = in.readLong();
+                int n = readVarint(in);
+                int[] ids = new int[n];
+                for (int j = 0; j < n; j++) ids[j] = readVarint(in);
+                store.entries.put(chunkId, new Entry(hash, ids));
+            }
+            LOG.info("Loaded {} pre-tokenized chunks from {}", count, file);
+        } catch (IOException e) {
+            LOG.warn("Failed to read chunk token store {}: {}", file, e.getMessage());
+            store.entries.clear();
+        }
+        return store;
+    }
+
+    /**
+     * Write all entries; written to a temp file first so readers never see a partial store.
+     */
+    public synchronized void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, Entry> snapshot = new HashMap<>(entries);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> me : snapshot.entrySet()) {
+                out.writeUTF(me.getKey());
+                out.writeLong(me.getValue().hash);
+                int[] ids = me.getValue().ids;
+                writeVarint(out, ids.length);
+                for (int id : ids) writeVarint(out, id);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -10,6 +10,23 @@ public class Config {
     public static final String EMBED_MODEL_PATH = getEnvOrDefault("EMBED_MODEL_PATH", "models/all-mpnet-base-v2-onnx");
     public static final String CROSS_ENCODER_ONNX_DIR = getEnvOrDefault("CROSS_ENCODER_PATH", "models/cross-encoder-ms-marco-miniLM-L-6-v2");
 
+    // Model precision: fp32 uses model.onnx, int8 uses model_int8.onnx (produced by ModelQuantizer)
+    public static final String MODEL_PRECISION = getEnvOrDefault("MODEL_PRECISION", "fp32");
+
+    // ONNX session pool: latency | balanced | throughput; explicit pool size / intra-op threads override the policy (0 = auto)
+    public static final String ONNX_SESSION_POLICY = getEnvOrDefault("ONNX_SESSION_POLICY", "latency");
+    public static final int ONNX_POOL_SIZE = Integer.parseInt(getEnvOrDefault("ONNX_POOL_SIZE", "0"));
+    public static final int ONNX_INTRA_OP_THREADS = Integer.parseInt(getEnvOrDefault("ONNX_INTRA_OP_THREADS", "0"));
+    public static final String ONNX_OPTIMIZED_CACHE_DIR = getEnvOrDefault("ONNX_OPTIMIZED_CACHE_DIR", "");
+
+    // Outbound HTTP (HttpClients): pooled connections per backend, kept alive between calls;
+    // *_MAX_PER_HOST bounds calls in flight per host, sync and async
+    public static final int HTTP_QDRANT_MAX_IDLE = Integer.parseInt(getEnvOrDefault("HTTP_QDRANT_MAX_IDLE", "32"));
+    public static final int HTTP_QDRANT_MAX_PER_HOST = Integer.parseInt(getEnvOrDefault("HTTP_QDRANT_MAX_PER_HOST", "64"));
+    public static final int HTTP_LLM_MAX_IDLE = Integer.parseInt(getEnvOrDefault("HTTP_LLM_MAX_IDLE", "8"));
+    public static final int HTTP_LLM_MAX_PER_HOST = Integer.parseInt(getEnvOrDefault("HTTP_LLM_MAX_PER_HOST", "16"));
+    public static final int HTTP_KEEP_ALIVE_SECONDS = Integer.parseInt(getEnvOrDefault("HTTP_KEEP_ALIVE_SECONDS", "300"));
+
     // LLM server
     public static final String LLM_URL = getEnvOrDefault("LLM_URL", "http://localhost:8081");
 
@@ -28,10 +45,65 @@ public class Config {
     public static final int RERANK_TOP_N = 20;
     public static final int RERANK_FINAL_N = 6;
     public static final int CONTEXT_K = 4;
+    // dense + BM25 fusion: rrf (reciprocal rank) | weighted (min-max normalized scores)
+    public static final String FUSION_STRATEGY = getEnvOrDefault("FUSION_STRATEGY", "rrf");
+    public static final int FUSION_RRF_K = Integer.parseInt(getEnvOrDefault("FUSION_RRF_K", "60"));
+    public static final double FUSION_DENSE_WEIGHT = Double.parseDouble(getEnvOrDefault("FUSION_DENSE_WEIGHT", "0.5"));
+    // fused candidates kept for MMR and the cross-encoder (0: keep all)
+    public static final int FUSION_TOP_N = Integer.parseInt(getEnvOrDefault("FUSION_TOP_N", "40"));
+    // threads running retrieval stages concurrently (embed, dense, BM25, DB, rerank)
+    public static final int RETRIEVAL_THREADS = Integer.parseInt(getEnvOrDefault("RETRIEVAL_THREADS",
+            String.valueOf(Math.max(8, 2 * Runtime.getRuntime().availableProcessors()))));
+    // dense hits whose DB rows are fetched while merge/MMR run
+    public static final int DB_PREFETCH_N = Integer.parseInt(getEnvOrDefault("DB_PREFETCH_N", "40"));
     public static final int QDRANT_EF = 200;
+    // false: dense search returns ids/scores only and MMR vectors come from the memory-mapped LOCAL_VECTOR_STORE
+    public static final boolean QDRANT_WITH_VECTOR = Boolean.parseBoolean(getEnvOrDefault("QDRANT_WITH_VECTOR", "true"));
+    public static final String LOCAL_VECTOR_STORE = getEnvOrDefault("LOCAL_VECTOR_STORE", "vectors.lvs");
+
+    // Dense backend: qdrant (remote) | hnsw (in-process HnswIndex built from LOCAL_VECTOR_STORE)
+    //   | lucene (KNN vectors in the Lucene index; BM25 and KNN share one searcher)
+    public static final String DENSE_BACKEND = getEnvOrDefault("DENSE_BACKEND", "qdrant");
+    public static final int HNSW_M = Integer.parseInt(getEnvOrDefault("HNSW_M", "16"));
+    public static final int HNSW_EF_CONSTRUCTION = Integer.parseInt(getEnvOrDefault("HNSW_EF_CONSTRUCTION", "200"));
+    public static final int HNSW_EF_SEARCH = Integer.parseInt(getEnvOrDefault("HNSW_EF_SEARCH", "128"));
+    // searches per /points/search/batch request; larger query sets are split and sent concurrently
+    public static final int QDRANT_SEARCH_BATCH_SIZE = Integer.parseInt(getEnvOrDefault("QDRANT_SEARCH_BATCH_SIZE", "16"));
+
+    // Embedding micro-batching: concurrent single-query embeds are coalesced within this window
+    public static final int EMBED_BATCH_WINDOW_MS = Integer.parseInt(getEnvOrDefault("EMBED_BATCH_WINDOW_MS", "3"));
+    public static final int EMBED_BATCH_MAX = Integer.parseInt(getEnvOrDefault("EMBED_BATCH_MAX", "32"));
+    public static final int EMBED_BATCH_WORKERS = Integer.parseInt(getEnvOrDefault("EMBED_BATCH_WORKERS", "1"));
+
+    // Query embedding cache (MappedEmbeddingCache): off-heap slots in a memory-mapped file reloaded on startup ("" : memory only)
+    public static final int EMBED_CACHE_MAX_ENTRIES = Integer.parseInt(getEnvOrDefault("EMBED_CACHE_MAX_ENTRIES", "32768"));
+    public static final String EMBED_CACHE_FILE = getEnvOrDefault("EMBED_CACHE_FILE", "embed_cache.bin");
+    // Retrieval result cache (BoundedCache): results expire after the TTL (0: never)
+    public static final int RETRIEVAL_CACHE_MAX_ENTRIES = Integer.parseInt(getEnvOrDefault("RETRIEVAL_CACHE_MAX_ENTRIES", "500"));
+    public static final int RETRIEVAL_CACHE_TTL_SECONDS = Integer.parseInt(getEnvOrDefault("RETRIEVAL_CACHE_TTL_SECONDS", "300"));
+    // Semantic answer cache (SemanticAnswerCache): reuse a final answer for a near-identical question (0 entries: off)
+    public static final int ANSWER_CACHE_MAX_ENTRIES = Integer.parseInt(getEnvOrDefault("ANSWER_CACHE_MAX_ENTRIES", "2000"));
+    public static final double ANSWER_CACHE_SIMILARITY = Double.parseDouble(getEnvOrDefault("ANSWER_CACHE_SIMILARITY", "0.95"));
+    public static final int ANSWER_CACHE_TTL_SECONDS = Integer.parseInt(getEnvOrDefault("ANSWER_CACHE_TTL_SECONDS", "600"));
+    // how often the corpus_epoch row bumped by ingestion runs is read (CorpusEpoch; 0: only Lucene reopens advance it)
+    public static final int CORPUS_EPOCH_POLL_SECONDS = Integer.parseInt(getEnvOrDefault("CORPUS_EPOCH_POLL_SECONDS", "10"));
 
     // Lucene index dir
     public static final String LUCENE_INDEX_DIR = getEnvOrDefault("LUCENE_INDEX_DIR", "lucene_index");
+    // how often the shared Lucene searcher checks for a new commit (0: never)
+    public static final int LUCENE_REFRESH_SECONDS = Integer.parseInt(getEnvOrDefault("LUCENE_REFRESH_SECONDS", "30"));
+    // segment-parallel BM25/KNN search threads (1: single-threaded) and per-field BM25 boosts
+    public static final int LUCENE_SEARCH_THREADS = Integer.parseInt(getEnvOrDefault("LUCENE_SEARCH_THREADS",
+            String.valueOf(Runtime.getRuntime().availableProcessors())));
+    public static final float LUCENE_TITLE_BOOST = Float.parseFloat(getEnvOrDefault("LUCENE_TITLE_BOOST", "2.0"));
+    public static final float LUCENE_TEXT_BOOST = Float.parseFloat(getEnvOrDefault("LUCENE_TEXT_BOOST", "1.0"));
+    // incremental indexing from the chunk_changes log (0: off; full rebuilds via LuceneReindexer only)
+    public static final int LUCENE_INCREMENTAL_SECONDS = Integer.parseInt(getEnvOrDefault("LUCENE_INCREMENTAL_SECONDS", "0"));
+    public static final int LUCENE_INCREMENTAL_BATCH = Integer.parseInt(getEnvOrDefault("LUCENE_INCREMENTAL_BATCH", "500"));
+    public static final int LUCENE_COMMIT_SECONDS = Integer.parseInt(getEnvOrDefault("LUCENE_COMMIT_SECONDS", "60"));
+
+    // Pre-tokenized chunk ids for the cross-encoder tokenizer (built by LuceneReindexer or lazily)
+    public static final String CHUNK_TOKEN_STORE = getEnvOrDefault("CHUNK_TOKEN_STORE", "chunk_tokens.bin");
 
     // Prompt token budget
     public static final int PROMPT_MAX_TOKENS = 4096;
@@ -49,6 +121,31 @@ public class Config {
     // API Security
     public static final String API_KEY = System.getenv("API_KEY"); // null means auth disabled
 
+    /**
+     * ONNX file inside a model dir for MODEL_PRECISION; falls back to fp32 if the int8 file is missing.
+     */
+    public static String modelFile(String modelDir) {
+        String fp32 = modelDir + "/" + ModelQuantizer.FP32_FILE;
+        if (!"int8".equalsIgnoreCase(MODEL_PRECISION.trim())) return fp32;
+        String int8 = modelDir + "/" + ModelQuantizer.INT8_FILE;
+        if (new java.io.File(int8).isFile()) return int8;
+        System.err.println("MODEL_PRECISION=int8 but " + int8 + " not found (run ModelQuantizer); using fp32");
+        return fp32;
+    }
+
+    public static LuceneIndexService.Options luceneOptions() {
+        return new LuceneIndexService.Options(HNSW_M, HNSW_EF_CONSTRUCTION, HNSW_EF_SEARCH, LUCENE_REFRESH_SECONDS,
+                LUCENE_SEARCH_THREADS, LUCENE_TITLE_BOOST, LUCENE_TEXT_BOOST);
+    }
+
+    public static FusionStrategy fusionStrategy() {
+        return FusionStrategy.named(FUSION_STRATEGY, FUSION_RRF_K, FUSION_DENSE_WEIGHT);
+    }
+
+    public static OnnxSessionPool.Options onnxPoolOptions() {
+        return OnnxSessionPool.Options.forPolicy(ONNX_SESSION_POLICY, ONNX_POOL_SIZE, ONNX_INTRA_OP_THREADS, ONNX_OPTIMIZED_CACHE_DIR);
+    }
+
     private static String getEnvOrDefault(String name, String defaultValue) {
         String val = System.getenv(name);
         return (val != null && !val.isBlank()) ? val : defaultValue;
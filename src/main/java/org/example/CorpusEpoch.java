@@ -0,0 +1,218 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CorpusEpoch - version of the indexed data, used as a prefix of every result cache key.
+ *
+ * Ingestion tools (LuceneReindexer, EmbeddingUploader, LuceneIncrementalIndexer after applying
+ * changes) call bump(), which increments the single row of the corpus_epoch table. The service
+ * polls that row every pollSeconds; in addition, each reopened Lucene searcher advances a local
+ * generation (advanceLocal), because a new index can become searchable here before the next poll.
+ *
+ * Caches put tag() in their keys (captured when a request starts, so results computed against the
+ * old data are stored under the old tag). When either part changes, old entries become
+ * unreachable at once and are reclaimed by the caches' own eviction and TTL; nothing is flushed.
+ * Query embeddings do not depend on the corpus and are not tagged.
+ *
+ * State loaded once rather than looked up per request (the local vector store, an HNSW graph)
+ * registers onChange() listeners, which run on the polling thread after each stored epoch change.
+ * EmbeddingUploader also records the version of the LocalVectorStore it wrote (vectors_version),
+ * so such a listener can tell whether its copy is still the current one.
+ */
+public class CorpusEpoch implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(CorpusEpoch.class);
+
+    private final Callable<Long> source; // current stored epoch; null: local generation only
+    private long stored;
+    private long local;
+    private volatile String tag = "0.0";
+    private ScheduledExecutorService poller;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    public CorpusEpoch(Callable<Long> source) {
+        this.source = source;
+    }
+
+    /**
+     * Epoch read from Postgres (Config.DB_URL) by each poll.
+     */
+    public static CorpusEpoch fromDatabase() {
+        return new CorpusEpoch(() -> {
+            try (Connection conn = DriverManager.getConnection(Config.DB_URL, Config.DB_USER, Config.DB_PASS)) {
+                return read(conn);
+            }
+        });
+    }
+
+    /**
+     * Current tag: "stored.local". Changes whenever the corpus does.
+     */
+    public String tag() {
+        return tag;
+    }
+
+    /**
+     * Run listener after each poll that saw a new stored epoch (an ingestion run finished).
+     */
+    public void onChange(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * This process is now searching newer data (e.g. a reopened Lucene searcher).
+     */
+    public synchronized void advanceLocal() {
+        local++;
+        update();
+    }
+
+    /**
+     * Read the stored epoch once; returns true if it changed (after running the onChange listeners).
+     */
+    public boolean pollOnce() throws Exception {
+        synchronized (this) {
+            if (source == null) return false;
+            long epoch = source.call();
+            if (epoch == stored) return false;
+            stored = epoch;
+            update();
+        }
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Corpus epoch listener failed: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Poll every pollSeconds on a daemon thread (0: never; the first poll runs now).
+     */
+    public synchronized CorpusEpoch start(int pollSeconds) {
+        if (poller != null || pollSeconds <= 0 || source == null) return this;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "corpus-epoch");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                pollOnce();
+            } catch (Exception e) {
+                LOG.warn("Corpus epoch poll failed: {}", e.getMessage());
+            }
+        }, 0, pollSeconds, TimeUnit.SECONDS);
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) poller.shutdownNow();
+    }
+
+    private void update() {
+        tag = stored + "." + local;
+        LOG.info("Corpus epoch now {}", tag);
+    }
+
+    // ---- stored epoch (corpus_epoch table) ----
+
+    public static void ensureTable(Connection conn) throws SQLException {
+        try (Statement s = conn.createStatement()) {
+            s.execute("CREATE TABLE IF NOT EXISTS corpus_epoch (id SMALLINT PRIMARY KEY, epoch BIGINT NOT NULL, "
+                    + "bumped_by TEXT, bumped_at TIMESTAMP DEFAULT NOW());");
+            s.execute("ALTER TABLE corpus_epoch ADD COLUMN IF NOT EXISTS vectors_version BIGINT;");
+        }
+    }
+
+    /**
+     * Stored epoch, or 0 if no ingestion run has bumped it yet.
+     */
+    public static long read(Connection conn) throws SQLException {
+        ensureTable(conn);
+        try (Statement s = conn.createStatement();
+             ResultSet rs = s.executeQuery("SELECT epoch FROM corpus_epoch WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * LocalVectorStore version recorded by the last EmbeddingUploader run, or null if none was.
+     */
+    public static Long readVectorsVersion(Connection conn) throws SQLException {
+        ensureTable(conn);
+        try (Statement s = conn.createStatement();
+             ResultSet rs = s.executeQuery("SELECT vectors_version FROM corpus_epoch WHERE id = 1")) {
+            if (!rs.next()) return null;
+            long v = rs.getLong(1);
+            return rs.wasNull() ? null : v;
+        }
+    }
+
+    /**
+     * readVectorsVersion() on Config.DB_URL; null if none was recorded or the database is unreachable.
+     */
+    public static Long vectorsVersionFromDatabase() {
+        try (Connection conn = DriverManager.getConnection(Config.DB_URL, Config.DB_USER, Config.DB_PASS)) {
+            return readVectorsVersion(conn);
+        } catch (SQLException e) {
+            LOG.warn("Could not read the vector store version: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Increment the stored epoch after an ingestion run changed the corpus; returns the new value.
+     */
+    public static long bump(Connection conn, String bumpedBy) throws SQLException {
+        return bump(conn, bumpedBy, null);
+    }
+
+    /**
+     * bump(), also recording the version of the LocalVectorStore written by this run (null: leave it unchanged).
+     */
+    public static long bump(Connection conn, String bumpedBy, Long vectorsVersion) throws SQLException {
+        ensureTable(conn);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO corpus_epoch (id, epoch, bumped_by, vectors_version) VALUES (1, 1, ?, ?) "
+                        + "ON CONFLICT (id) DO UPDATE SET epoch = corpus_epoch.epoch + 1, bumped_by = EXCLUDED.bumped_by, bumped_at = NOW(), "
+                        + "vectors_version = COALESCE(EXCLUDED.vectors_version, corpus_epoch.vectors_version) "
+                        + "RETURNING epoch")) {
+            ps.setString(1, bumpedBy);
+            if (vectorsVersion != null) ps.setLong(2, vectorsVersion);
+            else ps.setNull(2, Types.BIGINT);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * bump() for command-line ingestion tools: a failure is reported but does not fail the run
+     * (services then pick up the change through cache TTLs or a reopened searcher).
+     */
+    public static void bumpQuietly(String dbUrl, String dbUser, String dbPass, String bumpedBy) {
+        bumpQuietly(dbUrl, dbUser, dbPass, bumpedBy, null);
+    }
+
+    public static void bumpQuietly(String dbUrl, String dbUser, String dbPass, String bumpedBy, Long vectorsVersion) {
+        try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPass)) {
+            System.out.println("Corpus epoch bumped to " + bump(conn, bumpedBy, vectorsVersion));
+        } catch (SQLException e) {
+            System.out.println("Could not bump corpus epoch: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package org.example;
 
-import ai.djl.huggingface.tokenizers.Encoding;
 import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
 import ai.onnxruntime.*;
 
@@ -12,25 +11,38 @@ import java.util.*;
  * Cross-encoder scorer:
  * - if ONNX model available in CROSS_ENCODER_ONNX_DIR, uses it with HuggingFace tokenizer.
  * - otherwise falls back to scoring with bi-encoder similarity (dot/cosine) using provided OnnxEmbedder.
+ * Chunk texts are tokenized once into a ChunkTokenStore; each rerank only tokenizes the query.
+ * Sessions come from an OnnxSessionPool sized by ONNX_SESSION_POLICY / ONNX_POOL_SIZE / ONNX_INTRA_OP_THREADS.
  */
 public class CrossEncoderScorer implements AutoCloseable {
     private final OnnxEmbedder embedder; // used for fallback
     private OrtEnvironment env;
-    private OrtSession session;
+    private OnnxSessionPool sessions;
     private HuggingFaceTokenizer tokenizer;
+    private ChunkTokenStore tokenStore;
     private boolean useOnnx = false;
     private final int maxSeqLen = 512;
+    private final LengthBucketer bucketer = new LengthBucketer("cross-encoder");
 
     public CrossEncoderScorer(OnnxEmbedder embedder) {
+        this(embedder, Config.modelFile(Config.CROSS_ENCODER_ONNX_DIR));
+    }
+
+    /**
+     * @param modelFile ONNX file to load (fp32 or int8 variant inside CROSS_ENCODER_ONNX_DIR)
+     */
+    public CrossEncoderScorer(OnnxEmbedder embedder, String modelFile) {
         this.embedder = embedder;
         try {
-            File onnxModel = new File(Config.CROSS_ENCODER_ONNX_DIR + File.separator + "model.onnx");
+            File onnxModel = new File(modelFile);
             File tokenizerDir = new File(Config.CROSS_ENCODER_ONNX_DIR);
             if (onnxModel.exists()) {
                 env = OrtEnvironment.getEnvironment();
-                OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-                session = env.createSession(onnxModel.getAbsolutePath(), opts);
+                sessions = new OnnxSessionPool(onnxModel.getAbsolutePath(), "cross-encoder", Config.onnxPoolOptions());
                 tokenizer = HuggingFaceTokenizer.newInstance(Path.of(tokenizerDir.getAbsolutePath()));
+                HuggingFaceTokenizer tok = tokenizer;
+                tokenStore = ChunkTokenStore.open(Path.of(Config.CHUNK_TOKEN_STORE),
+                        text -> tok.encode(text, false, false).getIds());
                 useOnnx = true;
                 System.out.println("CrossEncoderScorer: loaded ONNX model from " + onnxModel.getAbsolutePath());
             } else {
@@ -43,15 +55,6 @@ public class CrossEncoderScorer implements AutoCloseable {
         }
     }
 
-    // Batch scoring fallback: use embedder to embed query and doc and compute cosine
-    private static double cosine(float[] a, float[] b) {
-        if (a==null || b==null || a.length!=b.length) return 0.0;
-        double dot=0, na=0, nb=0;
-        for (int i=0;i<a.length;i++){ dot += a[i]*b[i]; na += a[i]*a[i]; nb += b[i]*b[i]; }
-        if (na==0 || nb==0) return 0.0;
-        return dot / (Math.sqrt(na)*Math.sqrt(nb));
-    }
-
     /**
      * Score a batch of doc texts for a single query.
      * Returns map: chunkId -> score (higher is better).
@@ -61,12 +64,14 @@ public class CrossEncoderScorer implements AutoCloseable {
         if (docs == null || docs.isEmpty()) return out;
 
         if (!useOnnx) {
-            // Fallback: compute embedding for query and each doc via embedder
-            float[] qv = embedder.embed(query);
-            for (DbChunk d : docs) {
-                float[] dv = embedder.embed(d.getText());
-                double s = cosine(qv, dv);
-                out.put(d.getChunkId(), (float) s);
+            // Fallback: bi-encoder cosine; query and docs embedded in one batch
+            List<String> texts = new ArrayList<>(docs.size() + 1);
+            texts.add(query);
+            for (DbChunk d : docs) texts.add(d.getText() == null ? "" : d.getText());
+            float[][] vecs = embedder.embed(texts);
+            VectorKernel kernel = VectorKernel.get();
+            for (int i = 0; i < docs.size(); i++) {
+                out.put(docs.get(i).getChunkId(), kernel.cosine(vecs[0], vecs[i + 1]));
             }
             return out;
         }
@@ -83,40 +88,74 @@ public class CrossEncoderScorer implements AutoCloseable {
         Map<String, Float> out = new HashMap<>();
         int batchSize = docs.size();
 
-        // Tokenize each (query, doc) pair
+        // Tokenize the query once: [CLS] query [SEP]; doc ids come pre-tokenized from the store
+        long[] queryIds = tokenizer.encode(query).getIds();
+        long sepId = queryIds[queryIds.length - 1];
+        if (queryIds.length > maxSeqLen / 2) {
+            // keep room for the document, like longest-first truncation would
+            queryIds = Arrays.copyOf(queryIds, maxSeqLen / 2);
+            queryIds[queryIds.length - 1] = sepId;
+        }
+        int docBudget = maxSeqLen - queryIds.length - 1;
+
+        // Join each pair: [CLS] query [SEP] doc [SEP]
         List<long[]> idsList = new ArrayList<>(batchSize);
         List<long[]> maskList = new ArrayList<>(batchSize);
         List<long[]> typeIdsList = new ArrayList<>(batchSize);
-        int maxLen = 0;
+        int[] lengths = new int[batchSize];
 
         for (DbChunk doc : docs) {
             String text = doc.getText() != null ? doc.getText() : "";
-            // Encode pair: [CLS] query [SEP] doc [SEP]
-            Encoding enc = tokenizer.encode(query, text);
-            long[] ids = enc.getIds();
-            long[] mask = enc.getAttentionMask();
-            long[] typeIds = enc.getTypeIds();
-
-            // Truncate if needed
-            if (ids.length > maxSeqLen) {
-                ids = Arrays.copyOf(ids, maxSeqLen);
-                mask = Arrays.copyOf(mask, maxSeqLen);
-                typeIds = Arrays.copyOf(typeIds, maxSeqLen);
-            }
+            int[] docIds = tokenStore.tokens(doc.getChunkId(), text);
+            int docLen = Math.min(docIds.length, docBudget);
+            int len = queryIds.length + docLen + 1;
+
+            long[] ids = new long[len];
+            long[] mask = new long[len];
+            long[] typeIds = new long[len];
+            System.arraycopy(queryIds, 0, ids, 0, queryIds.length);
+            for (int i = 0; i < docLen; i++) ids[queryIds.length + i] = docIds[i];
+            ids[len - 1] = sepId;
+            Arrays.fill(mask, 1L);
+            Arrays.fill(typeIds, queryIds.length, len, 1L);
+
+            lengths[idsList.size()] = len;
             idsList.add(ids);
             maskList.add(mask);
             typeIdsList.add(typeIds);
-            maxLen = Math.max(maxLen, ids.length);
         }
 
+        // One long chunk should not force every pair to its length: score per length bucket
+        for (int[] bucket : bucketer.plan(lengths)) {
+            List<long[]> bIds = new ArrayList<>(bucket.length);
+            List<long[]> bMask = new ArrayList<>(bucket.length);
+            List<long[]> bTypes = new ArrayList<>(bucket.length);
+            for (int i : bucket) {
+                bIds.add(idsList.get(i));
+                bMask.add(maskList.get(i));
+                bTypes.add(typeIdsList.get(i));
+            }
+            float[] scores = runBatch(bIds, bMask, bTypes);
+            for (int j = 0; j < bucket.length; j++) {
+                out.put(docs.get(bucket[j]).getChunkId(), scores[j]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Pad one sub-batch to its longest pair and return the first logit per row.
+     */
+    private float[] runBatch(List<long[]> idsList, List<long[]> maskList, List<long[]> typeIdsList) throws Exception {
+        int batchSize = idsList.size();
+        int maxLen = 0;
+        for (long[] ids : idsList) maxLen = Math.max(maxLen, ids.length);
+
         // Pad to maxLen
         long[][] inputIds = new long[batchSize][maxLen];
         long[][] attentionMask = new long[batchSize][maxLen];
         long[][] tokenTypeIds = new long[batchSize][maxLen];
         for (int i = 0; i < batchSize; i++) {
-            Arrays.fill(inputIds[i], 0L);
-            Arrays.fill(attentionMask[i], 0L);
-            Arrays.fill(tokenTypeIds[i], 0L);
             System.arraycopy(idsList.get(i), 0, inputIds[i], 0, idsList.get(i).length);
             System.arraycopy(maskList.get(i), 0, attentionMask[i], 0, maskList.get(i).length);
             System.arraycopy(typeIdsList.get(i), 0, tokenTypeIds[i], 0, typeIdsList.get(i).length);
@@ -132,38 +171,41 @@ public class CrossEncoderScorer implements AutoCloseable {
             inputs.put("attention_mask", maskTensor);
             inputs.put("token_type_ids", typeIdsTensor);
 
+            OrtSession session = sessions.acquire();
             try (OrtSession.Result result = session.run(inputs)) {
                 // Get logits output - shape [batch, num_labels] or [batch, 1]
                 OnnxValue output = result.get(0);
-                if (output instanceof OnnxTensor tensor) {
-                    Object val = tensor.getValue();
-                    float[][] logits;
-                    if (val instanceof float[][] f2d) {
-                        logits = f2d;
-                    } else if (val instanceof float[] f1d) {
-                        // Single output per sample
-                        logits = new float[batchSize][1];
-                        for (int i = 0; i < batchSize; i++) {
-                            logits[i][0] = f1d[i];
-                        }
-                    } else {
-                        throw new RuntimeException("Unexpected cross-encoder output type: " + val.getClass());
-                    }
-
-                    // Map scores
-                    for (int i = 0; i < batchSize; i++) {
-                        float score = logits[i][0]; // Take first logit as relevance score
-                        out.put(docs.get(i).getChunkId(), score);
-                    }
+                if (!(output instanceof OnnxTensor tensor)) {
+                    throw new RuntimeException("Cross-encoder output not a tensor: " + output.getClass());
                 }
+                Object val = tensor.getValue();
+                float[] scores = new float[batchSize];
+                if (val instanceof float[][] f2d) {
+                    for (int i = 0; i < batchSize; i++) scores[i] = f2d[i][0]; // Take first logit as relevance score
+                } else if (val instanceof float[] f1d) {
+                    // Single output per sample
+                    System.arraycopy(f1d, 0, scores, 0, batchSize);
+                } else {
+                    throw new RuntimeException("Unexpected cross-encoder output type: " + val.getClass());
+                }
+                return scores;
+            } finally {
+                sessions.release(session);
             }
         }
-        return out;
+    }
+
+    /**
+     * Pre-tokenized chunk store shared with PromptBuilder; null when the ONNX model is not loaded.
+     */
+    public ChunkTokenStore getTokenStore() {
+        return tokenStore;
     }
 
     @Override
     public void close() throws Exception {
-        if (session != null) session.close();
+        if (tokenStore != null && tokenStore.isDirty()) tokenStore.save(Path.of(Config.CHUNK_TOKEN_STORE));
+        if (sessions != null) sessions.close();
         if (env != null) env.close();
         if (tokenizer != null) tokenizer.close();
     }
@@ -0,0 +1,33 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * DenseIndex - nearest-neighbour search over chunk embeddings.
+ *
+ * Implemented by QdrantClient (remote), HnswIndex (in-process) and LuceneIndexService (KNN field
+ * next to BM25). Select with DENSE_BACKEND.
+ * Hits carry the chunk_id in their payload; scores are cosine similarities (higher is better).
+ */
+public interface DenseIndex {
+
+    /**
+     * @param withVector whether hits must carry their vectors (MMR needs them)
+     */
+    List<Candidate> search(float[] vector, int topK, boolean withVector) throws IOException;
+
+    /**
+     * One hit list per query vector, in input order.
+     */
+    default List<List<Candidate>> searchBatch(List<float[]> vectors, int topK, boolean withVector) throws IOException {
+        List<List<Candidate>> out = new ArrayList<>(vectors.size());
+        for (float[] v : vectors) out.add(search(v, topK, withVector));
+        return out;
+    }
+
+    /**
+     * Points (with vectors) for the given chunk_ids, keyed by chunk_id; unknown ids are absent.
+     */
+    Map<String, Candidate> getPointsByChunkIds(List<String> chunkIds) throws IOException;
+}
@@ -0,0 +1,185 @@
+package org.example;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * EmbeddingBatcher - micro-batching scheduler in front of OnnxEmbedder.
+ *
+ * Concurrent single-text embed calls are queued; a worker thread waits up to
+ * windowMs after the first queued text (or until maxBatch texts are queued),
+ * runs them as one padded batch through embed(List) and completes each caller's future.
+ * Identical texts inside one batch are embedded once.
+ *
+ * Metrics (Micrometer):
+ *   embed.batcher.queue.depth  - queue depth seen by each arriving request (histogram)
+ *   embed.batcher.batch.size   - texts per ONNX run (histogram)
+ *   embed.batcher.queue.wait   - time from enqueue to batch start
+ *
+ * Usage:
+ *   EmbeddingBatcher batcher = new EmbeddingBatcher(embedder, 3, 32, 1);
+ *   float[] v = batcher.embed("what is supervised learning?");
+ */
+public class EmbeddingBatcher implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EmbeddingBatcher.class);
+
+    /** Batch embedding function; OnnxEmbedder::embed in production. */
+    public interface BatchEmbedder {
+        float[][] embed(List<String> texts) throws Exception;
+    }
+
+    private static final class Pending {
+        final String text;
+        final CompletableFuture<float[]> future = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime();
+
+        Pending(String text) {
+            this.text = text;
+        }
+    }
+
+    private final BatchEmbedder delegate;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final DistributionSummary queueDepth;
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    public EmbeddingBatcher(OnnxEmbedder embedder, int windowMs, int maxBatch, int workerCount) {
+        this(embedder::embed, windowMs, maxBatch, workerCount, Metrics.globalRegistry);
+    }
+
+    public EmbeddingBatcher(BatchEmbedder delegate, int windowMs, int maxBatch, int workerCount, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, windowMs));
+        this.maxBatch = Math.max(1, maxBatch);
+
+        this.queueDepth = DistributionSummary.builder("embed.batcher.queue.depth")
+                .description("Pending embed requests seen on enqueue")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("embed.batcher.batch.size")
+                .description("Texts per batched ONNX run")
+                .serviceLevelObjectives(1, 2, 4, 8, 16, 32, 64)
+                .publishPercentileHistogram()
+                .register(registry);
+        this.queueWait = Timer.builder("embed.batcher.queue.wait")
+                .description("Time from enqueue until the batch starts")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            Thread t = new Thread(this::workLoop, "embed-batcher-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    /**
+     * Queue a single text; the future completes with its L2-normalized embedding.
+     */
+    public CompletableFuture<float[]> submit(String text) {
+        Pending p = new Pending(text);
+        if (!running) {
+            p.future.completeExceptionally(new IllegalStateException("EmbeddingBatcher is closed"));
+            return p.future;
+        }
+        queueDepth.record(queue.size());
+        queue.add(p);
+        if (!running && queue.remove(p)) {
+            p.future.completeExceptionally(new IllegalStateException("EmbeddingBatcher is closed"));
+        }
+        return p.future;
+    }
+
+    /**
+     * Blocking convenience wrapper, drop-in replacement for OnnxEmbedder.embed(String).
+     */
+    public float[] embed(String text) throws Exception {
+        try {
+            return submit(text).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+
+    private void workLoop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // window is measured from the oldest request so it bounds added latency
+                long deadline = first.enqueuedNanos + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) {
+                        queue.drainTo(batch, maxBatch - batch.size());
+                        break;
+                    }
+                    Pending next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                runBatch(batch);
+            } catch (InterruptedException ie) {
+                for (Pending p : batch) {
+                    p.future.completeExceptionally(new IllegalStateException("EmbeddingBatcher is closed"));
+                }
+                if (!running) break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void runBatch(List<Pending> batch) {
+        long start = System.nanoTime();
+        // dedupe identical texts so concurrent repeats of a hot query cost one row
+        LinkedHashMap<String, Integer> rows = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            queueWait.record(start - p.enqueuedNanos, TimeUnit.NANOSECONDS);
+            rows.putIfAbsent(p.text, rows.size());
+        }
+        batchSize.record(rows.size());
+        try {
+            float[][] out = delegate.embed(new ArrayList<>(rows.keySet()));
+            boolean[] handedOut = new boolean[out.length];
+            for (Pending p : batch) {
+                int row = rows.get(p.text);
+                // duplicates get their own copy; callers may cache or mutate the array
+                p.future.complete(handedOut[row] ? out[row].clone() : out[row]);
+                handedOut[row] = true;
+            }
+        } catch (Exception e) {
+            LOG.warn("Batched embedding of {} texts failed: {}", rows.size(), e.getMessage());
+            for (Pending p : batch) p.future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread t : workers) t.interrupt();
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.future.completeExceptionally(new IllegalStateException("EmbeddingBatcher is closed"));
+        }
+    }
+}
@@ -16,6 +16,8 @@ import java.util.concurrent.TimeUnit;
  * - Reads chunks.jsonl
  * - Embeds chunk 'text' using DJL + HuggingFace sentence-transformer
  * - Normalizes embeddings and upserts to Qdrant via HTTP
+ * - Writes the uploaded vectors to the local memory-mapped vector store (LocalVectorStore)
+ * - Bumps the corpus epoch in Postgres (CorpusEpoch; DB_URL/DB_USER/DB_PASS) so services drop cached results
  *
  * Usage:
  *   set QDRANT_URL=http://localhost:6333
@@ -43,6 +45,9 @@ public class EmbeddingUploader {
         // NEW: Read model path from system property, fallback to your existing default
         String modelPath = System.getProperty("model.path", "models/all-mpnet-base-v2-onnx");
 
+        // Local vector store written after upload (used with QDRANT_WITH_VECTOR=false)
+        String vectorStorePath = System.getProperty("vector.store", "vectors.lvs");
+
         System.out.println("Reading chunks from: " + file);
         List<JsonNode> chunks = readJsonl(file);
         System.out.println("Loaded chunks: " + chunks.size());
@@ -52,15 +57,28 @@ public class EmbeddingUploader {
 
         // initialize ONNX embedder
         System.out.println("Loading embedding model via ONNX Runtime...");
+        long storeVersion;
         try (OnnxEmbedder embedder = new OnnxEmbedder(
                 modelPath + "/model.onnx",
                 modelPath, // pass directory (tokenizer.json inside)
                 384
         )) {
-            embedAndUploadBatches(chunks, embedder, qdrantUrl, collectionName);
+            Map<String, float[]> uploaded = embedAndUploadBatches(chunks, embedder, qdrantUrl, collectionName);
+
+            // points_count is only the fallback check for services that find no recorded version
+            long pointsCount = new QdrantClient(qdrantUrl, collectionName).getPointsCount();
+            storeVersion = LocalVectorStore.write(java.nio.file.Paths.get(vectorStorePath), uploaded, pointsCount);
+            System.out.println("Wrote " + uploaded.size() + " vectors to local vector store " + vectorStorePath
+                    + " (version " + Long.toHexString(storeVersion) + ")");
         }
 
         System.out.println("Done. All vectors upserted to Qdrant collection: " + collectionName);
+
+        // running services stop reusing results computed against the previous vectors, and reload
+        // the local vector store once they see it is the version recorded here
+        CorpusEpoch.bumpQuietly(System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/learning_db"),
+                System.getenv().getOrDefault("DB_USER", "postgres"), System.getenv().getOrDefault("DB_PASS", "postgres"),
+                "EmbeddingUploader", storeVersion);
     }
 
     // ---- read chunks.jsonl ----
@@ -77,15 +95,17 @@ public class EmbeddingUploader {
     }
 
     // ---- main batching loop; compute embeddings and upload to Qdrant ----
-    private static void embedAndUploadBatches(List<JsonNode> chunks,
+    // returns chunk_id -> normalized vector for everything uploaded
+    private static Map<String, float[]> embedAndUploadBatches(List<JsonNode> chunks,
                                               OnnxEmbedder embedder,
                                               String qdrantUrl,
                                               String collectionName) throws Exception {
-        OkHttpClient http = new OkHttpClient.Builder()
+        OkHttpClient http = HttpClients.qdrant().newBuilder()
                 .callTimeout(2, TimeUnit.MINUTES)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .build();
 
+        Map<String, float[]> uploaded = new LinkedHashMap<>();
         List<String> texts = new ArrayList<>(BATCH_SIZE);
         List<JsonNode> batchChunks = new ArrayList<>(BATCH_SIZE);
 
@@ -102,11 +122,16 @@ public class EmbeddingUploader {
                 List<ObjectNode> points = prepareQdrantPoints(batchChunks, embeddings);
                 // upsert to Qdrant
                 upsertToQdrant(http, qdrantUrl, collectionName, points);
+                for (int j = 0; j < batchChunks.size(); j++) {
+                    JsonNode cid = batchChunks.get(j).get("chunk_id");
+                    if (cid != null) uploaded.put(cid.asText(), embeddings[j]); // normalized in place above
+                }
                 // clear batch
                 texts.clear();
                 batchChunks.clear();
             }
         }
+        return uploaded;
     }
 
     // Choose which text to embed (we use 'text' field; fallback to 'title')
@@ -127,12 +152,11 @@ public class EmbeddingUploader {
             // get stable chunk id string (fallback to generated if missing)
             String chunkIdStr = chunk.has("chunk_id") ? chunk.get("chunk_id").asText() : "auto-" + UUID.randomUUID();
 
-            // create deterministic UUID from chunkIdStr so same chunk => same UUID
-            UUID uuid = UUID.nameUUIDFromBytes(chunkIdStr.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            String uuidStr = uuid.toString(); // this is valid for Qdrant
+            // deterministic UUID from chunkIdStr so same chunk => same UUID (QdrantClient looks points up by it)
+            String uuidStr = QdrantClient.pointIdForChunk(chunkIdStr); // this is valid for Qdrant
 
             float[] vec = embeddings[i];
-            l2Normalize(vec);
+            VectorKernel.get().normalize(vec);
 
             ObjectNode point = M.createObjectNode();
             // Qdrant requires unsigned int or UUID; we use UUID string
@@ -183,7 +207,7 @@ public class EmbeddingUploader {
 
     // ensure collection exists in Qdrant, create if missing
     private static void ensureQdrantCollection(String qdrantUrl, String name, int dim) throws IOException {
-        OkHttpClient http = new OkHttpClient();
+        OkHttpClient http = HttpClients.qdrant();
         String checkUrl = qdrantUrl + "/collections/" + name;
         Request check = new Request.Builder().url(checkUrl).get().build();
         try (Response r = http.newCall(check).execute()) {
@@ -216,13 +240,4 @@ public class EmbeddingUploader {
             }
         }
     }
-
-    // L2-normalize vector in place
-    private static void l2Normalize(float[] vec) {
-        double sum = 0.0;
-        for (float v : vec) sum += (double) v * v;
-        double norm = Math.sqrt(sum);
-        if (norm == 0.0) return;
-        for (int i = 0; i < vec.length; i++) vec[i] = (float) (vec[i] / norm);
-    }
 }
@@ -0,0 +1,86 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * FusionStrategy - combines dense and BM25 hit lists into one ranked candidate list.
+ *
+ * Both inputs are best-first lists of Candidates (dense: cosine scores, lexical: BM25 scores).
+ * The result has one Candidate per chunk_id, best first, with the fused score; vector and payload
+ * come from the dense hit when there is one. Inputs are not modified. Select with FUSION_STRATEGY.
+ */
+public interface FusionStrategy {
+
+    List<Candidate> fuse(List<Candidate> dense, List<Candidate> lexical);
+
+    /**
+     * Reciprocal rank fusion: sum of 1 / (k + rank) over the lists a chunk appears in.
+     * Uses ranks only, so BM25 and cosine scales never need reconciling.
+     */
+    static FusionStrategy rrf(int k) {
+        return (dense, lexical) -> {
+            Map<String, Candidate> fused = new LinkedHashMap<>();
+            addRanks(fused, dense, k);
+            addRanks(fused, lexical, k);
+            return sorted(fused);
+        };
+    }
+
+    /**
+     * denseWeight * dense + (1 - denseWeight) * lexical, each min-max normalized to [0, 1]
+     * within its list; a chunk missing from a list gets 0 for it.
+     */
+    static FusionStrategy weightedSum(double denseWeight) {
+        return (dense, lexical) -> {
+            Map<String, Candidate> fused = new LinkedHashMap<>();
+            addNormalized(fused, dense, denseWeight);
+            addNormalized(fused, lexical, 1 - denseWeight);
+            return sorted(fused);
+        };
+    }
+
+    /**
+     * rrf | weighted; unknown names fall back to rrf.
+     */
+    static FusionStrategy named(String name, int rrfK, double denseWeight) {
+        if ("weighted".equalsIgnoreCase(name)) return weightedSum(denseWeight);
+        return rrf(rrfK);
+    }
+
+    private static void addRanks(Map<String, Candidate> fused, List<Candidate> hits, int k) {
+        for (int rank = 0; rank < hits.size(); rank++) {
+            entry(fused, hits.get(rank)).score += 1.0 / (k + rank + 1);
+        }
+    }
+
+    private static void addNormalized(Map<String, Candidate> fused, List<Candidate> hits, double weight) {
+        if (hits.isEmpty()) return;
+        double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+        for (Candidate c : hits) {
+            min = Math.min(min, c.score);
+            max = Math.max(max, c.score);
+        }
+        double range = max - min;
+        for (Candidate c : hits) {
+            double norm = range > 0 ? (c.score - min) / range : 1.0;
+            entry(fused, c).score += weight * norm;
+        }
+    }
+
+    // the fused copy for c's chunk_id; the first list seen (dense) supplies vector and payload
+    private static Candidate entry(Map<String, Candidate> fused, Candidate c) {
+        return fused.computeIfAbsent(c.getChunkId(), cid -> {
+            Candidate copy = new Candidate();
+            copy.id = c.id;
+            copy.payload = c.payload;
+            copy.vector = c.vector;
+            return copy;
+        });
+    }
+
+    private static List<Candidate> sorted(Map<String, Candidate> fused) {
+        List<Candidate> out = new ArrayList<>(fused.values());
+        out.sort((a, b) -> Double.compare(b.score, a.score)); // stable: ties keep dense-first order
+        return out;
+    }
+}
@@ -0,0 +1,379 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * HnswIndex - in-process HNSW approximate nearest-neighbour index (DENSE_BACKEND=hnsw).
+ *
+ * Vectors stay in the memory-mapped LocalVectorStore (off-heap); the graph is held in primitive
+ * int arrays: layer 0 as one flat array of n x (1 + M0) slots, upper layers per node as
+ * level x (1 + M) slots, slot 0 of each block being the neighbour count. Neighbours are chosen
+ * with the standard HNSW diversity heuristic. Vectors are L2-normalized, so similarity is the
+ * dot product; scores are cosine similarities like Qdrant's.
+ *
+ * Parameters:
+ *   M              - links per node on upper layers (2*M on layer 0)
+ *   efConstruction - candidate list size while building (higher: better graph, slower build)
+ *   efSearch       - candidate list size per query (higher: better recall, slower search)
+ *
+ * The graph is built over one version of the store; after build() returns the index is read-only
+ * and safe for concurrent searches. When an ingestion run replaces the store (a new
+ * storeVersion()), RetrievalService builds a new index and swaps it in; the old one keeps serving
+ * from its own mapping until then.
+ */
+public class HnswIndex implements DenseIndex {
+
+    private final LocalVectorStore store;
+    private final int n;
+    private final int m;
+    private final int m0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMult;
+    private final Random random = new Random(42);
+
+    private final int[] levels;
+    private final int[] links0;   // layer 0: node * (m0 + 1) -> [count, neighbours...]
+    private final int[][] upper;  // layers >= 1: upper[node][(layer - 1) * (m + 1)] -> [count, neighbours...]
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<Visited> visited;
+
+    private HnswIndex(LocalVectorStore store, int m, int efConstruction, int efSearch) {
+        this.store = store;
+        this.n = store.size();
+        this.m = Math.max(2, m);
+        this.m0 = 2 * this.m;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMult = 1.0 / Math.log(this.m);
+        this.levels = new int[n];
+        this.links0 = new int[n * (m0 + 1)];
+        this.upper = new int[n][];
+        this.visited = ThreadLocal.withInitial(() -> new Visited(n));
+    }
+
+    /**
+     * Build the graph over every vector in the store.
+     */
+    public static HnswIndex build(LocalVectorStore store, int m, int efConstruction, int efSearch) {
+        HnswIndex index = new HnswIndex(store, m, efConstruction, efSearch);
+        for (int i = 0; i < index.n; i++) index.insert(i);
+        return index;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    /**
+     * LocalVectorStore.version() of the store the graph was built over.
+     */
+    public long storeVersion() {
+        return store.version();
+    }
+
+    @Override
+    public List<Candidate> search(float[] vector, int topK, boolean withVector) {
+        if (n == 0 || topK <= 0) return Collections.emptyList();
+        float[] q = VectorKernel.get().unit(vector);
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) ep = greedy(q, ep, l);
+        NodeHeap res = searchLayer(q, ep, Math.max(efSearch, topK), 0);
+
+        // results heap is worst-first; drain and reverse
+        int k = Math.min(topK, res.size());
+        while (res.size() > k) res.pop();
+        Candidate[] out = new Candidate[k];
+        for (int i = k - 1; i >= 0; i--) {
+            float score = res.topScore();
+            int node = res.pop();
+            out[i] = candidate(node, score, withVector);
+        }
+        return Arrays.asList(out);
+    }
+
+    @Override
+    public Map<String, Candidate> getPointsByChunkIds(List<String> chunkIds) throws IOException {
+        Map<String, Candidate> out = new HashMap<>();
+        for (String cid : chunkIds) {
+            float[] v = store.get(cid);
+            if (v == null) continue;
+            Candidate c = new Candidate();
+            c.id = cid;
+            c.payload = new ChunkPayload(cid, null, null);
+            c.vector = v;
+            out.put(cid, c);
+        }
+        return out;
+    }
+
+    private Candidate candidate(int node, float score, boolean withVector) {
+        Candidate c = new Candidate();
+        String chunkId = store.chunkIdAt(node);
+        c.id = chunkId;
+        c.score = score;
+        c.payload = new ChunkPayload(chunkId, null, null);
+        c.vector = withVector ? store.vectorAt(node) : null;
+        return c;
+    }
+
+    // ---- construction ----
+
+    private void insert(int node) {
+        int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMult);
+        levels[node] = level;
+        if (level > 0) upper[node] = new int[level * (m + 1)];
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] q = store.vectorAt(node);
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) ep = greedy(q, ep, l);
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap res = searchLayer(q, ep, efConstruction, l);
+            int count = res.size();
+            int[] cands = new int[count];
+            float[] sims = new float[count];
+            for (int i = count - 1; i >= 0; i--) { // best first
+                sims[i] = res.topScore();
+                cands[i] = res.pop();
+            }
+            int[] selected = selectNeighbors(cands, sims, m);
+            setLinks(node, l, selected, selected.length);
+            int maxConn = l == 0 ? m0 : m;
+            for (int s : selected) addLink(s, node, l, maxConn);
+            ep = cands[0];
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * HNSW heuristic: keep a candidate only if it is closer to the base than to any already
+     * selected neighbour, then top up with the closest pruned ones. cands are sorted best first.
+     */
+    private int[] selectNeighbors(int[] cands, float[] sims, int max) {
+        int[] selected = new int[Math.min(max, cands.length)];
+        float[][] selectedVecs = new float[selected.length][];
+        boolean[] taken = new boolean[cands.length];
+        int count = 0;
+        for (int i = 0; i < cands.length && count < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (store.dot(cands[i], selectedVecs[j]) > sims[i]) { diverse = false; break; }
+            }
+            if (diverse) {
+                selectedVecs[count] = store.vectorAt(cands[i]);
+                selected[count++] = cands[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < cands.length && count < selected.length; i++) {
+            if (!taken[i]) selected[count++] = cands[i];
+        }
+        return selected;
+    }
+
+    private void addLink(int from, int to, int layer, int maxConn) {
+        int[] block = layer == 0 ? links0 : upper[from];
+        int off = offset(from, layer);
+        int count = block[off];
+        if (count < maxConn) {
+            block[off + 1 + count] = to;
+            block[off] = count + 1;
+            return;
+        }
+        // full: re-select among existing neighbours plus the new one
+        float[] base = store.vectorAt(from);
+        int[] cands = new int[count + 1];
+        float[] sims = new float[count + 1];
+        System.arraycopy(block, off + 1, cands, 0, count);
+        cands[count] = to;
+        for (int i = 0; i <= count; i++) sims[i] = store.dot(cands[i], base);
+        sortBestFirst(cands, sims);
+        int[] selected = selectNeighbors(cands, sims, maxConn);
+        setLinks(from, layer, selected, selected.length);
+    }
+
+    private void setLinks(int node, int layer, int[] neighbours, int count) {
+        int[] block = layer == 0 ? links0 : upper[node];
+        int off = offset(node, layer);
+        block[off] = count;
+        System.arraycopy(neighbours, 0, block, off + 1, count);
+    }
+
+    private int offset(int node, int layer) {
+        return layer == 0 ? node * (m0 + 1) : (layer - 1) * (m + 1);
+    }
+
+    // ---- search ----
+
+    private int greedy(float[] q, int ep, int layer) {
+        float best = store.dot(ep, q);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] block = layer == 0 ? links0 : upper[ep];
+            int off = offset(ep, layer);
+            for (int i = 0; i < block[off]; i++) {
+                int e = block[off + 1 + i];
+                float s = store.dot(e, q);
+                if (s > best) {
+                    best = s;
+                    ep = e;
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Beam search on one layer; returns up to ef nodes in a worst-first heap.
+     */
+    private NodeHeap searchLayer(float[] q, int ep, int ef, int layer) {
+        Visited seen = visited.get().reset();
+        NodeHeap candidates = new NodeHeap(ef + 1, false); // best first
+        NodeHeap results = new NodeHeap(ef + 1, true);     // worst first
+        float s0 = store.dot(ep, q);
+        seen.mark(ep);
+        candidates.push(s0, ep);
+        results.push(s0, ep);
+
+        while (candidates.size() > 0) {
+            float cs = candidates.topScore();
+            int c = candidates.pop();
+            if (results.size() >= ef && cs < results.topScore()) break;
+            int[] block = layer == 0 ? links0 : upper[c];
+            int off = offset(c, layer);
+            for (int i = 0; i < block[off]; i++) {
+                int e = block[off + 1 + i];
+                if (!seen.mark(e)) continue;
+                float s = store.dot(e, q);
+                if (results.size() < ef || s > results.topScore()) {
+                    candidates.push(s, e);
+                    results.push(s, e);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private static void sortBestFirst(int[] nodes, float[] sims) {
+        Integer[] order = new Integer[nodes.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Float.compare(sims[b], sims[a]));
+        int[] n2 = new int[nodes.length];
+        float[] s2 = new float[sims.length];
+        for (int i = 0; i < order.length; i++) {
+            n2[i] = nodes[order[i]];
+            s2[i] = sims[order[i]];
+        }
+        System.arraycopy(n2, 0, nodes, 0, nodes.length);
+        System.arraycopy(s2, 0, sims, 0, sims.length);
+    }
+
+    /**
+     * Binary heap of (score, node) on primitive arrays; minFirst puts the lowest score on top.
+     */
+    private static final class NodeHeap {
+        private float[] scores;
+        private int[] nodes;
+        private int size;
+        private final boolean minFirst;
+
+        NodeHeap(int capacity, boolean minFirst) {
+            this.scores = new float[Math.max(4, capacity)];
+            this.nodes = new int[scores.length];
+            this.minFirst = minFirst;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(float score, int node) {
+            if (size == scores.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) break;
+                scores[i] = scores[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                float score = scores[size];
+                int node = nodes[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && before(scores[child + 1], scores[child])) child++;
+                    if (!before(scores[child], score)) break;
+                    scores[i] = scores[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+                scores[i] = score;
+                nodes[i] = node;
+            }
+            return top;
+        }
+
+        private boolean before(float a, float b) {
+            return minFirst ? a < b : a > b;
+        }
+    }
+
+    /**
+     * Visited set reused across searches on one thread: a node is visited if its mark equals the current epoch.
+     */
+    private static final class Visited {
+        private final int[] marks;
+        private int epoch;
+
+        Visited(int n) {
+            this.marks = new int[n];
+        }
+
+        Visited reset() {
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+            return this;
+        }
+
+        boolean mark(int node) {
+            if (marks[node] == epoch) return false;
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package org.example;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.*;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HttpClients - shared OkHttp clients, one per outbound backend.
+ *
+ * Every QdrantClient / EmbeddingUploader call shares the QDRANT client, and LLMClient plus all
+ * LLMProvider implementations share the LLM client. Each backend has its own ConnectionPool
+ * (idle connections kept alive for HTTP_KEEP_ALIVE_SECONDS) and a per-host limit of maxPerHost
+ * calls in flight, so a slow LLM cannot starve Qdrant of connections and warm connections skip
+ * TCP/TLS setup.
+ *
+ * The Dispatcher's maxRequestsPerHost only applies to async enqueue(); nearly every call here is a
+ * synchronous execute(), so the limit is enforced by an interceptor holding one of maxPerHost
+ * permits per host from the start of the call until its response body is closed (or the call
+ * fails). A call that cannot get a permit within the backend's read timeout fails with an
+ * IOException instead of piling up on the host. HTTP/2 is negotiated via ALPN on TLS endpoints (e.g. OpenAI);
+ * plaintext endpoints use HTTP/1.1 keep-alive.
+ *
+ * Callers needing different timeouts derive a client with get(...).newBuilder(), which keeps the
+ * shared pool, dispatcher and metrics.
+ *
+ * Metrics (Micrometer, tag backend=qdrant|llm):
+ *   http.client.connections.idle / .active - pooled connections
+ *   http.client.connections.opened         - new TCP connections (pool misses)
+ *   http.client.connection.acquire         - call start to connection acquired (includes connect on a miss)
+ *   http.client.calls.queued / .running    - async calls waiting on / admitted by the dispatcher
+ *   http.client.host.wait                  - time a call waited for a per-host permit
+ */
+public final class HttpClients {
+
+    public enum Backend {
+        QDRANT(5, 30, 30),
+        LLM(30, 180, 30);
+
+        final int connectSeconds;
+        final int readSeconds;
+        final int writeSeconds;
+
+        Backend(int connectSeconds, int readSeconds, int writeSeconds) {
+            this.connectSeconds = connectSeconds;
+            this.readSeconds = readSeconds;
+            this.writeSeconds = writeSeconds;
+        }
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Map<Backend, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private HttpClients() {}
+
+    public static OkHttpClient qdrant() {
+        return get(Backend.QDRANT);
+    }
+
+    public static OkHttpClient llm() {
+        return get(Backend.LLM);
+    }
+
+    public static OkHttpClient get(Backend backend) {
+        return CLIENTS.computeIfAbsent(backend, b -> b == Backend.QDRANT
+                ? build(b, Config.HTTP_QDRANT_MAX_IDLE, Config.HTTP_QDRANT_MAX_PER_HOST, Config.HTTP_KEEP_ALIVE_SECONDS, Metrics.globalRegistry)
+                : build(b, Config.HTTP_LLM_MAX_IDLE, Config.HTTP_LLM_MAX_PER_HOST, Config.HTTP_KEEP_ALIVE_SECONDS, Metrics.globalRegistry));
+    }
+
+    static OkHttpClient build(Backend backend, int maxIdle, int maxPerHost, int keepAliveSeconds, MeterRegistry registry) {
+        String tag = backend.tag();
+        ConnectionPool pool = new ConnectionPool(Math.max(1, maxIdle), keepAliveSeconds, TimeUnit.SECONDS);
+
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "http-" + tag + "-" + threadId.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequestsPerHost(Math.max(1, maxPerHost));
+        dispatcher.setMaxRequests(Math.max(64, maxPerHost));
+
+        Gauge.builder("http.client.connections.idle", pool, ConnectionPool::idleConnectionCount)
+                .description("Idle pooled connections")
+                .tag("backend", tag)
+                .register(registry);
+        Gauge.builder("http.client.connections.active", pool, p -> p.connectionCount() - p.idleConnectionCount())
+                .description("Pooled connections carrying a call")
+                .tag("backend", tag)
+                .register(registry);
+        Gauge.builder("http.client.calls.queued", dispatcher, Dispatcher::queuedCallsCount)
+                .description("Async calls waiting for a dispatcher slot")
+                .tag("backend", tag)
+                .register(registry);
+        Gauge.builder("http.client.calls.running", dispatcher, Dispatcher::runningCallsCount)
+                .description("Calls in flight")
+                .tag("backend", tag)
+                .register(registry);
+        Counter opened = Counter.builder("http.client.connections.opened")
+                .description("New TCP connections opened (connection pool misses)")
+                .tag("backend", tag)
+                .register(registry);
+        Timer acquire = Timer.builder("http.client.connection.acquire")
+                .description("Time from call start until a connection is acquired")
+                .tag("backend", tag)
+                .register(registry);
+        Timer hostWait = Timer.builder("http.client.host.wait")
+                .description("Time a call waited for one of the host's maxPerHost permits")
+                .tag("backend", tag)
+                .register(registry);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(pool)
+                .dispatcher(dispatcher)
+                .addInterceptor(new HostLimiter(Math.max(1, maxPerHost), backend.readSeconds, hostWait))
+                .connectTimeout(backend.connectSeconds, TimeUnit.SECONDS)
+                .readTimeout(backend.readSeconds, TimeUnit.SECONDS)
+                .writeTimeout(backend.writeSeconds, TimeUnit.SECONDS)
+                .eventListenerFactory(call -> new PoolListener(opened, acquire))
+                .build();
+    }
+
+    /**
+     * At most maxPerHost calls per host in flight, sync or async; a permit is held until the
+     * response body is closed, since the connection stays busy while the body is read.
+     */
+    private static final class HostLimiter implements Interceptor {
+        private final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+        private final int maxPerHost;
+        private final long waitSeconds;
+        private final Timer wait;
+
+        HostLimiter(int maxPerHost, long waitSeconds, Timer wait) {
+            this.maxPerHost = maxPerHost;
+            this.waitSeconds = waitSeconds;
+            this.wait = wait;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            HttpUrl url = chain.request().url();
+            Semaphore permits = hosts.computeIfAbsent(url.host() + ":" + url.port(), h -> new Semaphore(maxPerHost, true));
+            long start = System.nanoTime();
+            try {
+                if (!permits.tryAcquire(waitSeconds, TimeUnit.SECONDS)) {
+                    throw new IOException("Timed out waiting for one of " + maxPerHost + " connections to " + url.host());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a connection to " + url.host());
+            }
+            wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) permits.release();
+            };
+            try {
+                Response response = chain.proceed(chain.request());
+                ResponseBody body = response.body();
+                if (body == null) {
+                    release.run();
+                    return response;
+                }
+                return response.newBuilder().body(new ReleasingBody(body, release)).build();
+            } catch (IOException | RuntimeException e) {
+                release.run();
+                throw e;
+            }
+        }
+    }
+
+    private static final class ReleasingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        ReleasingBody(ResponseBody delegate, Runnable release) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release.run();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+
+    private static final class PoolListener extends EventListener {
+        private final Counter opened;
+        private final Timer acquire;
+        private long callStart;
+
+        PoolListener(Counter opened, Timer acquire) {
+            this.opened = opened;
+            this.acquire = acquire;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            opened.increment();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            acquire.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -8,7 +8,6 @@ import okhttp3.*;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 public class LLMClient {
     private final OkHttpClient client;
@@ -21,12 +20,8 @@ public class LLMClient {
 
     public LLMClient(String baseUrl) {
         this.endpoint = baseUrl.replaceAll("/$", "") + "/completion";
-        // Set longer timeouts for LLM generation (can take 60+ seconds for complex queries)
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        // Shared LLM client: longer read timeout for generation (can take 60+ seconds for complex queries)
+        this.client = HttpClients.llm();
     }
 
     public String generate(String prompt, int maxTokens) throws IOException {
@@ -0,0 +1,112 @@
+package org.example;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.*;
+
+/**
+ * LengthBucketer - plans ONNX sub-batches so rows of similar token length are padded together.
+ *
+ * Inputs are sorted by token length and greedily grouped; a bucket is closed when adding the next
+ * (longer) row would push its padding efficiency (real tokens / padded tokens) below minEfficiency,
+ * or when it reaches maxBatch rows. Callers run each bucket separately and scatter the outputs back
+ * to the original positions (bucket entries are original indices).
+ *
+ * Metrics (Micrometer, tag model=name):
+ *   onnx.padding.efficiency            - real/padded tokens of the bucketed plan
+ *   onnx.padding.efficiency.unbucketed - what a single batch padded to the longest row would have had
+ */
+public class LengthBucketer {
+    public static final double DEFAULT_MIN_EFFICIENCY = 0.75;
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    private final int maxBatch;
+    private final double minEfficiency;
+    private final DistributionSummary bucketedEfficiency;
+    private final DistributionSummary unbucketedEfficiency;
+
+    public LengthBucketer(String name) {
+        this(name, DEFAULT_MAX_BATCH, DEFAULT_MIN_EFFICIENCY, Metrics.globalRegistry);
+    }
+
+    public LengthBucketer(String name, int maxBatch, double minEfficiency, MeterRegistry registry) {
+        this.maxBatch = Math.max(1, maxBatch);
+        this.minEfficiency = minEfficiency;
+        this.bucketedEfficiency = DistributionSummary.builder("onnx.padding.efficiency")
+                .description("Real tokens / padded tokens per ONNX batch after length bucketing")
+                .tag("model", name)
+                .register(registry);
+        this.unbucketedEfficiency = DistributionSummary.builder("onnx.padding.efficiency.unbucketed")
+                .description("Real tokens / padded tokens had the batch been padded to its longest row")
+                .tag("model", name)
+                .register(registry);
+    }
+
+    /**
+     * Group row indices into length buckets. Every index appears in exactly one bucket.
+     */
+    public List<int[]> plan(int[] lengths) {
+        List<int[]> buckets = plan(lengths, maxBatch, minEfficiency);
+        if (lengths.length > 0) {
+            bucketedEfficiency.record(paddingEfficiency(lengths, buckets));
+            unbucketedEfficiency.record(paddingEfficiency(lengths, List.of(identity(lengths.length))));
+        }
+        return buckets;
+    }
+
+    static List<int[]> plan(int[] lengths, int maxBatch, double minEfficiency) {
+        int n = lengths.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> lengths[i]));
+
+        List<int[]> buckets = new ArrayList<>();
+        int start = 0;
+        long realTokens = 0;
+        for (int pos = 0; pos < n; pos++) {
+            int len = lengths[order[pos]];
+            int count = pos - start;
+            // sorted ascending, so the candidate row would set the bucket's padded width
+            boolean full = count >= maxBatch;
+            boolean wasteful = count > 0 && (realTokens + len) < minEfficiency * (double) (count + 1) * len;
+            if (full || wasteful) {
+                buckets.add(slice(order, start, pos));
+                start = pos;
+                realTokens = 0;
+            }
+            realTokens += len;
+        }
+        if (start < n) buckets.add(slice(order, start, n));
+        return buckets;
+    }
+
+    /**
+     * Real tokens / padded tokens when each bucket is padded to its own longest row.
+     */
+    public static double paddingEfficiency(int[] lengths, List<int[]> buckets) {
+        long real = 0, padded = 0;
+        for (int[] b : buckets) {
+            int max = 0;
+            for (int i : b) {
+                real += lengths[i];
+                max = Math.max(max, lengths[i]);
+            }
+            padded += (long) max * b.length;
+        }
+        return padded == 0 ? 1.0 : real / (double) padded;
+    }
+
+    private static int[] slice(Integer[] order, int from, int to) {
+        int[] out = new int[to - from];
+        for (int i = from; i < to; i++) out[i - from] = order[i];
+        return out;
+    }
+
+    private static int[] identity(int n) {
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = i;
+        return out;
+    }
+}
@@ -0,0 +1,305 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * LocalVectorStore - read-only, memory-mapped chunk_id -> vector store for MMR.
+ *
+ * With QDRANT_WITH_VECTOR=false, dense search asks Qdrant for ids, scores and payload only,
+ * and candidate vectors are read from this store instead of being sent as JSON on every query.
+ * Vectors live in the page cache, not on the heap; get() copies one vector out.
+ *
+ * Each store carries a version: a SHA-256 based hash of its ids and vectors, computed by write().
+ * EmbeddingUploader records that version with the corpus epoch (CorpusEpoch.bump) after it has
+ * uploaded the same vectors to Qdrant, and openVerified() only accepts a store whose version is
+ * the recorded one, so a re-ingested collection never serves stale vectors. A store built from
+ * an export has no recorded version; it is then checked against the collection's points_count,
+ * which the store also records. Chunks missing from the store fall back to a Qdrant lookup.
+ *
+ * Built by EmbeddingUploader after ingestion, or from a Qdrant scroll export:
+ *   mvn -q -Dexec.mainClass="org.example.LocalVectorStore" \
+ *       -Dexec.args="qdrant_learning_chunks_export.json vectors.lvs" exec:java
+ *
+ * File layout:
+ *   int magic "LVS1", int version, int dim, int count, long pointsCount, long vectorsOffset,
+ *   long contentVersion, count x UTF chunk_id, padding, then count x dim little-endian float32 at vectorsOffset.
+ */
+public class LocalVectorStore {
+    private static final Logger LOG = LoggerFactory.getLogger(LocalVectorStore.class);
+    private static final int MAGIC = 0x4C565331; // "LVS1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 40;
+
+    private final Map<String, Integer> rows;
+    private final String[] ids; // row -> chunk_id
+    private final FloatBuffer vectors;
+    private final ByteBuffer vectorBytes; // same mapping, little-endian bytes for VectorKernel
+    private final int dim;
+    private final long pointsCount;
+    private final long version;
+
+    private LocalVectorStore(Map<String, Integer> rows, String[] ids, ByteBuffer vectorBytes, int dim, long pointsCount,
+                             long version) {
+        this.rows = rows;
+        this.ids = ids;
+        this.vectorBytes = vectorBytes;
+        this.vectors = vectorBytes.asFloatBuffer();
+        this.dim = dim;
+        this.pointsCount = pointsCount;
+        this.version = version;
+    }
+
+    /**
+     * Vector for a chunk_id, or null if the chunk is not in the store.
+     */
+    public float[] get(String chunkId) {
+        Integer row = rows.get(chunkId);
+        if (row == null) return null;
+        float[] out = new float[dim];
+        vectors.get(row * dim, out); // absolute bulk get: safe for concurrent readers
+        return out;
+    }
+
+    /**
+     * Vector at a row (0..size-1), copied out of the mapping.
+     */
+    public float[] vectorAt(int row) {
+        float[] out = new float[dim];
+        vectors.get(row * dim, out);
+        return out;
+    }
+
+    public String chunkIdAt(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Dot product of a stored row with q, read in place (no copy).
+     */
+    public float dot(int row, float[] q) {
+        return VectorKernel.get().dot(vectorBytes, row * dim * Float.BYTES, q, dim);
+    }
+
+    /**
+     * out[row] = dot(row, q) for every row: an exact scan over the mapping.
+     */
+    public void scoreAll(float[] q, float[] out) {
+        VectorKernel.get().scoreRows(vectorBytes, 0, size(), dim, q, out);
+    }
+
+    public int dim() {
+        return dim;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * points_count of the Qdrant collection when the store was built.
+     */
+    public long pointsCount() {
+        return pointsCount;
+    }
+
+    /**
+     * Content hash of the ids and vectors, as returned by write().
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * version() of the store in file, reading only its header.
+     */
+    public static long readVersion(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            ch.read(header, 0);
+            header.flip();
+            return checkHeader(header, file).getLong(32);
+        }
+    }
+
+    private static ByteBuffer checkHeader(ByteBuffer header, Path file) throws IOException {
+        if (header.remaining() < HEADER_BYTES || header.getInt(0) != MAGIC) throw new IOException("Not a vector store: " + file);
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Vector store " + file + " has format version " + header.getInt(4) + ", expected " + VERSION
+                    + " (rebuild it with EmbeddingUploader or LocalVectorStore)");
+        }
+        return header;
+    }
+
+    public static LocalVectorStore open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            checkHeader(map, file);
+            int dim = map.getInt(8);
+            int count = map.getInt(12);
+            long pointsCount = map.getLong(16);
+            long vectorsOffset = map.getLong(24);
+            long version = map.getLong(32);
+
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(map.duplicate().position(HEADER_BYTES)));
+            Map<String, Integer> rows = new HashMap<>(count * 2);
+            String[] ids = new String[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = in.readUTF();
+                rows.put(ids[i], i);
+            }
+
+            ByteBuffer vectors = map.duplicate()
+                    .position((int) vectorsOffset)
+                    .slice()
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (vectors.capacity() / Float.BYTES < (long) count * dim) throw new IOException("Truncated vector store: " + file);
+            return new LocalVectorStore(rows, ids, vectors, dim, pointsCount, version);
+        }
+    }
+
+    /**
+     * Open the store only if it exists and is current; otherwise null.
+     *
+     * @param expectedVersion version recorded by the last EmbeddingUploader run (CorpusEpoch.readVectorsVersion);
+     *                        null: none recorded, compare points_count with the live collection instead
+     */
+    public static LocalVectorStore openVerified(Path file, QdrantClient qdrant, Long expectedVersion) {
+        if (!Files.isRegularFile(file)) {
+            LOG.warn("Local vector store {} not found", file);
+            return null;
+        }
+        try {
+            LocalVectorStore store = open(file);
+            if (expectedVersion != null) {
+                if (store.version() != expectedVersion) {
+                    LOG.warn("Local vector store {} is stale (version {}, last upload recorded {})",
+                            file, Long.toHexString(store.version()), Long.toHexString(expectedVersion));
+                    return null;
+                }
+            } else {
+                long live = qdrant.getPointsCount();
+                if (live != store.pointsCount()) {
+                    LOG.warn("Local vector store {} is stale (built at points_count={}, collection has {})",
+                            file, store.pointsCount(), live);
+                    return null;
+                }
+            }
+            LOG.info("Loaded local vector store {}: {} vectors, dim={}", file, store.size(), store.dim());
+            return store;
+        } catch (IOException e) {
+            LOG.warn("Failed to open local vector store {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a store; written to a temp file first so readers never map a partial store.
+     *
+     * @return the store's version (content hash of its ids and vectors)
+     */
+    public static long write(Path file, Map<String, float[]> vectorsByChunkId, long pointsCount) throws IOException {
+        int dim = vectorsByChunkId.values().stream().findFirst().map(v -> v.length).orElse(0);
+        List<String> ids = new ArrayList<>(vectorsByChunkId.keySet());
+
+        ByteArrayOutputStream idBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(idBytes)) {
+            for (String id : ids) out.writeUTF(id);
+        }
+        MessageDigest digest = sha256();
+        digest.update(idBytes.toByteArray());
+        long vectorsOffset = HEADER_BYTES + idBytes.size();
+        vectorsOffset = (vectorsOffset + 3) & ~3L; // keep floats 4-byte aligned
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        long version;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ch.position(vectorsOffset);
+
+            ByteBuffer row = ByteBuffer.allocate(dim * 4).order(ByteOrder.LITTLE_ENDIAN);
+            for (String id : ids) {
+                float[] v = vectorsByChunkId.get(id);
+                if (v.length != dim) throw new IOException("Vector for " + id + " has dim " + v.length + ", expected " + dim);
+                row.clear();
+                row.asFloatBuffer().put(v);
+                digest.update(row.array());
+                while (row.hasRemaining()) ch.write(row);
+            }
+
+            // header last: the version covers the vectors just written
+            version = ByteBuffer.wrap(digest.digest()).getLong();
+            ByteBuffer header = ByteBuffer.allocate((int) vectorsOffset);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(ids.size()).putLong(pointsCount).putLong(vectorsOffset)
+                    .putLong(version);
+            header.put(idBytes.toByteArray());
+            header.position(header.capacity()).flip();
+            ch.position(0);
+            while (header.hasRemaining()) ch.write(header);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return version;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE provides SHA-256
+        }
+    }
+
+    /**
+     * Build a store from a Qdrant points/scroll export (e.g. qdrant_learning_chunks_export.json).
+     * The export is assumed to contain the whole collection, so its point count is the version.
+     */
+    public static void main(String[] args) throws Exception {
+        Path export = Paths.get(args.length > 0 ? args[0] : "qdrant_learning_chunks_export.json");
+        Path out = Paths.get(args.length > 1 ? args[1] : "vectors.lvs");
+
+        List<Candidate> points;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(export))) {
+            points = QdrantResponseDecoder.readPoints(in, 768);
+        }
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (Candidate c : points) {
+            if (c.vector != null) vectors.put(c.getChunkId(), c.vector);
+        }
+        write(out, vectors, points.size());
+        System.out.println("Wrote " + vectors.size() + " vectors to " + out.toAbsolutePath());
+    }
+
+    // DataInputStream over a mapped buffer (for reading the id section)
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
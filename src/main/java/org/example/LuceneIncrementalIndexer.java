@@ -0,0 +1,286 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LuceneIncrementalIndexer - keeps the Lucene index in step with the chunks table without full rebuilds.
+ *
+ * A trigger on chunks appends every insert/update/delete (and TRUNCATE) to the chunk_changes
+ * table with an increasing seq. The indexer polls rows past its high-water mark, collapses them
+ * to the latest operation per chunk_id, re-reads the current rows, and applies them with
+ * updateDocument / deleteDocuments on the LuceneIndexService's writer. Changes become searchable
+ * on the next NRT refresh; a commit (recording the high-water mark in the commit user data) is
+ * made every commitSeconds, so after a restart polling resumes from the last commit. Replaying
+ * changes past the last commit is harmless: upserts re-read the row, deletes are idempotent.
+ * seq values are assigned at write time, so this assumes chunks are written by one ingestion
+ * job at a time (a concurrent transaction committing a lower seq late would be skipped); a gap
+ * in seq is logged as a warning, since it is either a rolled-back write or such a late one.
+ *
+ * After each commit the log rows up to the committed seq are deleted, so chunk_changes stays
+ * small. The log therefore serves one index: run one incremental indexer per database.
+ *
+ * The indexer holds the index's write lock for as long as it runs. A full LuceneReindexer run
+ * against the same directory fails with a lock error until the indexer (the service with
+ * LUCENE_INCREMENTAL_SECONDS > 0, or the standalone process) is stopped; restarted afterwards,
+ * it resumes from the seq the rebuild recorded.
+ *
+ * Vectors for changed chunks come from vectorSource (Qdrant, which EmbeddingUploader keeps
+ * current) when the index has KNN vectors; chunks without one are indexed for BM25 only.
+ *
+ * Runs inside the service when LUCENE_INCREMENTAL_SECONDS > 0, or standalone:
+ *   set DB_PASS=YourPassword
+ *   mvn -q -Dexec.mainClass="org.example.LuceneIncrementalIndexer" exec:java
+ */
+public class LuceneIncrementalIndexer implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LuceneIncrementalIndexer.class);
+
+    private final LuceneIndexService lucene;
+    private final DenseIndex vectorSource; // null: no KNN vectors for changed chunks
+    private final DataFetcher dbFetcher;
+    private final int batchSize;
+    private final long commitIntervalNanos;
+    private ScheduledExecutorService scheduler;
+
+    private long appliedSeq;   // last chunk_changes.seq applied to the writer
+    private long committedSeq; // last seq made durable
+    private long lastCommitNanos = System.nanoTime();
+
+    public LuceneIncrementalIndexer(LuceneIndexService lucene, DenseIndex vectorSource, DataFetcher dbFetcher,
+                                    int batchSize, int commitSeconds) throws Exception {
+        this.lucene = lucene;
+        this.vectorSource = vectorSource;
+        this.dbFetcher = dbFetcher;
+        this.batchSize = Math.max(1, batchSize);
+        this.commitIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, commitSeconds));
+
+        try (Connection conn = connect()) {
+            ensureChangeLog(conn);
+        }
+        lucene.openWriter();
+        long seq = lucene.committedChangeSeq();
+        if (seq < 0) {
+            // index built before change tracking (or empty): changes already in the log may not be reflected
+            LOG.warn("Lucene index has no {}; replaying the whole change log (run LuceneReindexer for a clean baseline)",
+                    LuceneIndexService.CHANGE_SEQ_KEY);
+            seq = 0;
+        }
+        this.appliedSeq = seq;
+        this.committedSeq = seq;
+        LOG.info("Incremental Lucene indexing from chunk_changes seq {}", seq);
+    }
+
+    /**
+     * Create the chunk_changes table and the trigger feeding it (idempotent).
+     */
+    public static void ensureChangeLog(Connection conn) throws SQLException {
+        try (Statement s = conn.createStatement()) {
+            s.execute("CREATE TABLE IF NOT EXISTS chunk_changes (seq BIGSERIAL PRIMARY KEY, chunk_id TEXT, op CHAR(1) NOT NULL, changed_at TIMESTAMP DEFAULT NOW());");
+            s.execute("""
+                CREATE OR REPLACE FUNCTION log_chunk_change() RETURNS trigger AS $$
+                BEGIN
+                    IF TG_OP = 'TRUNCATE' THEN
+                        INSERT INTO chunk_changes(chunk_id, op) VALUES (NULL, 'T');
+                    ELSIF TG_OP = 'DELETE' THEN
+                        INSERT INTO chunk_changes(chunk_id, op) VALUES (OLD.chunk_id, 'D');
+                    ELSE
+                        IF TG_OP = 'UPDATE' AND OLD.chunk_id <> NEW.chunk_id THEN
+                            INSERT INTO chunk_changes(chunk_id, op) VALUES (OLD.chunk_id, 'D');
+                        END IF;
+                        INSERT INTO chunk_changes(chunk_id, op) VALUES (NEW.chunk_id, 'U');
+                    END IF;
+                    RETURN NULL;
+                END;
+                $$ LANGUAGE plpgsql;
+            """);
+            s.execute("DROP TRIGGER IF EXISTS chunks_change_log ON chunks;");
+            s.execute("CREATE TRIGGER chunks_change_log AFTER INSERT OR UPDATE OR DELETE ON chunks FOR EACH ROW EXECUTE FUNCTION log_chunk_change();");
+            s.execute("DROP TRIGGER IF EXISTS chunks_truncate_log ON chunks;");
+            s.execute("CREATE TRIGGER chunks_truncate_log AFTER TRUNCATE ON chunks FOR EACH STATEMENT EXECUTE FUNCTION log_chunk_change();");
+        }
+    }
+
+    /**
+     * Current end of the change log (0 if empty); read before a full reload to mark its starting point.
+     */
+    public static long maxChangeSeq(Connection conn) throws SQLException {
+        try (Statement s = conn.createStatement();
+             ResultSet rs = s.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM chunk_changes")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Poll every pollSeconds on a daemon thread.
+     */
+    public synchronized LuceneIncrementalIndexer start(int pollSeconds) {
+        if (scheduler != null) return this;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lucene-incremental");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                pollOnce();
+            } catch (Exception e) {
+                LOG.warn("Incremental Lucene indexing failed: {}", e.getMessage());
+            }
+        }, 0, Math.max(1, pollSeconds), TimeUnit.SECONDS);
+        return this;
+    }
+
+    /**
+     * Apply all pending changes (in batches of batchSize) and commit if due.
+     *
+     * @return number of change rows applied
+     */
+    public synchronized int pollOnce() throws Exception {
+        int total = 0;
+        while (true) {
+            List<Long> seqs = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            List<String> ops = new ArrayList<>();
+            try (Connection conn = connect();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT seq, chunk_id, op FROM chunk_changes WHERE seq > ? ORDER BY seq LIMIT ?")) {
+                ps.setLong(1, appliedSeq);
+                ps.setInt(2, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        seqs.add(rs.getLong("seq"));
+                        ids.add(rs.getString("chunk_id"));
+                        ops.add(rs.getString("op"));
+                    }
+                }
+            }
+            if (seqs.isEmpty()) break;
+            warnOnGaps(seqs);
+            apply(ids, ops);
+            appliedSeq = seqs.get(seqs.size() - 1);
+            total += seqs.size();
+            if (seqs.size() < batchSize) break;
+        }
+        if (total > 0) {
+            lucene.refresh();
+            LOG.info("Applied {} chunk changes (seq {})", total, appliedSeq);
+            try (Connection conn = connect()) {
+                CorpusEpoch.bump(conn, "LuceneIncrementalIndexer");
+            } catch (SQLException e) {
+                LOG.warn("Could not bump corpus epoch: {}", e.getMessage());
+            }
+        }
+        if (appliedSeq > committedSeq && System.nanoTime() - lastCommitNanos >= commitIntervalNanos) commit();
+        return total;
+    }
+
+    private void warnOnGaps(List<Long> seqs) {
+        long prev = appliedSeq;
+        for (long seq : seqs) {
+            if (prev > 0 && seq != prev + 1) {
+                LOG.warn("chunk_changes gap: seq {} follows {} (a rolled-back write, or a concurrent one that may be skipped)",
+                        seq, prev);
+            }
+            prev = seq;
+        }
+    }
+
+    // collapse to the last op per chunk (a truncate drops everything before it), then apply
+    private void apply(List<String> ids, List<String> ops) throws Exception {
+        LinkedHashMap<String, Boolean> pending = new LinkedHashMap<>(); // chunk_id -> upsert (true) / delete (false)
+        for (int i = 0; i < ids.size(); i++) {
+            String op = ops.get(i);
+            if ("T".equals(op)) {
+                pending.clear();
+                lucene.deleteAll();
+            } else {
+                pending.remove(ids.get(i)); // keep change order
+                pending.put(ids.get(i), "U".equals(op));
+            }
+        }
+
+        List<String> upserts = new ArrayList<>();
+        for (Map.Entry<String, Boolean> e : pending.entrySet()) {
+            if (e.getValue()) upserts.add(e.getKey());
+            else lucene.delete(e.getKey());
+        }
+        if (upserts.isEmpty()) return;
+
+        Map<String, DbChunk> rows = dbFetcher.fetchChunks(upserts);
+        Map<String, Candidate> vectors = vectorSource == null ? Collections.emptyMap()
+                : vectorSource.getPointsByChunkIds(upserts);
+        for (String cid : upserts) {
+            DbChunk row = rows.get(cid);
+            if (row == null) {
+                lucene.delete(cid); // deleted again after the logged upsert
+                continue;
+            }
+            Candidate point = vectors.get(cid);
+            lucene.upsert(row, point == null ? null : point.vector);
+        }
+    }
+
+    private void commit() throws IOException {
+        lucene.commit(appliedSeq);
+        committedSeq = appliedSeq;
+        lastCommitNanos = System.nanoTime();
+        try (Connection conn = connect()) {
+            pruneChangeLog(conn, committedSeq);
+        } catch (SQLException e) {
+            LOG.warn("Could not prune chunk_changes: {}", e.getMessage()); // retried after the next commit
+        }
+    }
+
+    /**
+     * Delete log rows up to seq, which a committed index already reflects; returns the rows deleted.
+     */
+    public static int pruneChangeLog(Connection conn, long seq) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM chunk_changes WHERE seq <= ?")) {
+            ps.setLong(1, seq);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(Config.DB_URL, Config.DB_USER, Config.DB_PASS);
+    }
+
+    /**
+     * Stop polling and commit what has been applied.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) scheduler.shutdownNow();
+        if (appliedSeq > committedSeq) commit();
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR, Config.luceneOptions())) {
+            DenseIndex vectors = lucene.hasVectors() ? new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION) : null;
+            LuceneIncrementalIndexer indexer = new LuceneIncrementalIndexer(lucene, vectors, new DataFetcher(),
+                    Config.LUCENE_INCREMENTAL_BATCH, Config.LUCENE_COMMIT_SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    indexer.close();
+                    lucene.close();
+                } catch (IOException e) {
+                    LOG.warn("Final commit failed: {}", e.getMessage());
+                }
+            }));
+            int poll = Math.max(1, Config.LUCENE_INCREMENTAL_SECONDS);
+            System.out.println("Polling chunk_changes every " + poll + "s; Ctrl+C to stop.");
+            while (true) {
+                indexer.pollOnce();
+                Thread.sleep(poll * 1000L);
+            }
+        }
+    }
+}
@@ -1,54 +1,714 @@
 package org.example;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene95.Lucene95Codec;
+import org.apache.lucene.codecs.lucene95.Lucene95HnswVectorsFormat;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
 import org.apache.lucene.store.*;
 import org.apache.lucene.search.*;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LuceneIndexService - BM25 index over chunk title/text, plus (when built with vectors) an HNSW
+ * KnnFloatVectorField holding each chunk's normalized embedding.
+ *
+ * With vectors indexed this is also a DenseIndex (DENSE_BACKEND=lucene): hybridSearch() runs the
+ * KNN and BM25 queries against one open IndexSearcher, and vectors for lexical-only hits are read
+ * from the index's vector values, so retrieval needs no Qdrant round-trip.
+ *
+ * Searches share one long-lived SearcherManager over an MMapDirectory instead of opening a
+ * DirectoryReader per query, so segment readers, term dictionaries and norms stay warm. Each
+ * search acquires the current searcher and releases it when done; a background thread calls
+ * maybeRefresh() every refreshSeconds (and rebuildIndex refreshes right after its commit), so
+ * a reindex becomes visible without restarting. New searchers are warmed with a BM25 and a KNN
+ * query before they are published.
+ *
+ * For incremental indexing (LuceneIncrementalIndexer) the service opens one IndexWriter with
+ * openWriter(); from then on searchers are near-real-time readers over that writer, so upserts
+ * and deletes are searchable after the next refresh, before they are committed. Each commit
+ * records the last applied chunk_changes sequence number in the commit user data. Swapping the
+ * SearcherManager (openWriter) or closing it waits for in-flight acquires and refreshes, so no
+ * search calls into a closed manager; searchers already acquired stay valid until released.
+ *
+ * BM25 queries are analyzed once and built directly as a BooleanQuery over title and text with
+ * per-field boosts (each query term may match either field). With searchThreads > 1 the searcher
+ * gets an executor, so once the index has several segments they are searched in parallel
+ * (IndexSearcher groups small segments into slices; a small index stays on the calling thread).
+ *
+ * Hit extraction never loads stored documents: chunk_id and chunk_type are SortedDocValues and
+ * title is a BinaryDocValues column, read per segment in doc id order. text is indexed but not
+ * stored (the chunks table is the source of truth). Segments written before the doc values
+ * existed fall back to the stored chunk_id/title.
+ *
+ * Metrics (Micrometer):
+ *   lucene.searcher.acquire - searches served by the shared searcher
+ *   lucene.searcher.refresh - refresh checks, tag result=reopened|unchanged
+ *   lucene.searcher.warmup  - time spent warming a new searcher
+ */
+public class LuceneIndexService implements DenseIndex, Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(LuceneIndexService.class);
+    static final String VECTOR_FIELD = "vector";
+    private static final String WARMUP_QUERY = "binary search java";
+    private static final Set<String> STORED_HIT_FIELDS = Set.of("chunk_id", "title");
+    // 3 clauses per term; stays far below IndexSearcher's max clause count
+    private static final int MAX_QUERY_TERMS = 256;
+    /** Commit user data key: last chunk_changes.seq reflected in the index. */
+    public static final String CHANGE_SEQ_KEY = "chunk_changes_seq";
 
-public class LuceneIndexService {
     private final Path indexDir;
     private final StandardAnalyzer analyzer = new StandardAnalyzer();
+    private final Options options;
+    private final ExecutorService searchExecutor; // null: single-threaded search
+
+    private final Object lock = new Object();
+    // read: acquiring from or refreshing the current manager; write: replacing or closing it
+    private final ReentrantReadWriteLock managerLock = new ReentrantReadWriteLock();
+    private Directory directory;
+    private volatile SearcherManager manager; // null until an index exists
+    private IndexWriter writer;               // set by openWriter(); searchers are then NRT
+    private boolean closed;
+    private final ScheduledExecutorService refresher;
+
+    private final Counter acquires;
+    private final Counter reopened;
+    private final Counter unchanged;
+    private final Timer warmup;
+    private final List<Runnable> reopenListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Index build and search settings.
+     */
+    public static final class Options {
+        public final int hnswM;          // HNSW links per node used when building the vector graph
+        public final int hnswBeamWidth;  // candidate list size while building (efConstruction)
+        public final int efSearch;       // KNN candidates collected per query before cutting to topK (0: topK)
+        public final int refreshSeconds; // period of the background maybeRefresh (0: only refresh after rebuildIndex)
+        public final int searchThreads;  // segment-parallel search threads (<= 1: search on the calling thread)
+        public final float titleBoost;
+        public final float textBoost;
+
+        public Options(int hnswM, int hnswBeamWidth, int efSearch, int refreshSeconds, int searchThreads,
+                       float titleBoost, float textBoost) {
+            this.hnswM = hnswM;
+            this.hnswBeamWidth = hnswBeamWidth;
+            this.efSearch = Math.max(0, efSearch);
+            this.refreshSeconds = Math.max(0, refreshSeconds);
+            this.searchThreads = Math.max(1, searchThreads);
+            this.titleBoost = titleBoost;
+            this.textBoost = textBoost;
+        }
+
+        /** Lucene's HNSW defaults, no background refresh, single-threaded search, title boosted 2x. */
+        public static Options defaults() {
+            return new Options(Lucene95HnswVectorsFormat.DEFAULT_MAX_CONN, Lucene95HnswVectorsFormat.DEFAULT_BEAM_WIDTH,
+                    0, 0, 1, 2.0f, 1.0f);
+        }
+    }
 
     public LuceneIndexService(String indexDirPath) {
+        this(indexDirPath, Options.defaults());
+    }
+
+    public LuceneIndexService(String indexDirPath, Options options) {
+        this(indexDirPath, options, Metrics.globalRegistry);
+    }
+
+    public LuceneIndexService(String indexDirPath, Options options, MeterRegistry registry) {
         this.indexDir = Paths.get(indexDirPath);
+        this.options = options;
+
+        this.acquires = Counter.builder("lucene.searcher.acquire")
+                .description("Searches served by the shared IndexSearcher")
+                .register(registry);
+        this.reopened = Counter.builder("lucene.searcher.refresh")
+                .description("Searcher refresh checks")
+                .tag("result", "reopened")
+                .register(registry);
+        this.unchanged = Counter.builder("lucene.searcher.refresh")
+                .description("Searcher refresh checks")
+                .tag("result", "unchanged")
+                .register(registry);
+        this.warmup = Timer.builder("lucene.searcher.warmup")
+                .description("Time spent warming a newly opened searcher")
+                .register(registry);
+
+        if (options.searchThreads > 1) {
+            AtomicInteger threadId = new AtomicInteger();
+            // bounded queue; when saturated the request thread searches its own slices
+            this.searchExecutor = new ThreadPoolExecutor(options.searchThreads, options.searchThreads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(options.searchThreads * 16), r -> {
+                        Thread t = new Thread(r, "lucene-search-" + threadId.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+        } else {
+            this.searchExecutor = null;
+        }
+
+        int refreshSeconds = options.refreshSeconds;
+        if (refreshSeconds > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "lucene-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            this.refresher = null;
+        }
+    }
+
+    /**
+     * BM25 and KNN hits from one searcher: dense hits with cosine scores, lexical hits with BM25
+     * scores (payload, no vector).
+     */
+    public static class HybridResult {
+        public final List<Candidate> dense;
+        public final List<Candidate> lexical;
+
+        HybridResult(List<Candidate> dense, List<Candidate> lexical) {
+            this.dense = dense;
+            this.lexical = lexical;
+        }
     }
 
     public void rebuildIndex(List<DbChunk> chunks) throws IOException {
-        Directory dir = FSDirectory.open(indexDir);
+        rebuildIndex(chunks, Collections.emptyMap());
+    }
+
+    /**
+     * Rebuild the index; chunks with an entry in vectors (chunk_id -> L2-normalized embedding) also get a KNN vector.
+     */
+    public void rebuildIndex(List<DbChunk> chunks, Map<String, float[]> vectors) throws IOException {
+        rebuildIndex(chunks, vectors, -1);
+    }
+
+    /**
+     * As above, recording changeSeq (chunk_changes.seq read before the chunks were loaded) as the
+     * incremental indexer's starting point; -1 records none.
+     */
+    public void rebuildIndex(List<DbChunk> chunks, Map<String, float[]> vectors, long changeSeq) throws IOException {
+        IndexWriter shared;
+        synchronized (lock) {
+            shared = writer;
+        }
+        if (shared != null) {
+            shared.deleteAll();
+            addAll(shared, chunks, vectors);
+            commit(changeSeq);
+        } else {
+            try (IndexWriter w = new IndexWriter(directory(), writerConfig(IndexWriterConfig.OpenMode.CREATE))) {
+                addAll(w, chunks, vectors);
+                if (changeSeq >= 0) w.setLiveCommitData(Map.of(CHANGE_SEQ_KEY, Long.toString(changeSeq)).entrySet());
+                w.commit();
+            } catch (LockObtainFailedException e) {
+                throw new IOException("Lucene index at " + indexDir + " is locked by another writer, usually a "
+                        + "LuceneIncrementalIndexer (in a service with LUCENE_INCREMENTAL_SECONDS > 0, or standalone); "
+                        + "stop it before rebuilding", e);
+            }
+        }
+        managerLock.readLock().lock();
+        try {
+            SearcherManager m = manager;
+            if (m != null) {
+                m.maybeRefreshBlocking();
+            } else {
+                manager(); // warms the first searcher now rather than on the first query
+            }
+        } finally {
+            managerLock.readLock().unlock();
+        }
+    }
+
+    private void addAll(IndexWriter w, List<DbChunk> chunks, Map<String, float[]> vectors) throws IOException {
+        for (DbChunk c : chunks) w.addDocument(document(c, vectors.get(c.getChunkId())));
+    }
+
+    static Document document(DbChunk c, float[] vector) {
+        Document doc = new Document();
+        String title = c.getTitle()==null ? "" : c.getTitle();
+        doc.add(new StringField("chunk_id", c.getChunkId(), Field.Store.YES));
+        doc.add(new SortedDocValuesField("chunk_id", new BytesRef(c.getChunkId())));
+        doc.add(new TextField("title", title, Field.Store.NO));
+        doc.add(new BinaryDocValuesField("title", new BytesRef(title)));
+        doc.add(new TextField("text", c.getText()==null ? "" : c.getText(), Field.Store.NO));
+        if (c.getChunkType() != null) doc.add(new SortedDocValuesField("chunk_type", new BytesRef(c.getChunkType())));
+        if (vector != null) {
+            // vectors are unit length, so dot product equals cosine and skips the norm computation
+            doc.add(new KnnFloatVectorField(VECTOR_FIELD, vector, VectorSimilarityFunction.DOT_PRODUCT));
+        }
+        return doc;
+    }
+
+    private IndexWriterConfig writerConfig(IndexWriterConfig.OpenMode mode) {
         IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
-        iwc.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        try (IndexWriter writer = new IndexWriter(dir, iwc)) {
-            for (DbChunk c : chunks) {
-                Document doc = new Document();
-                doc.add(new StringField("chunk_id", c.getChunkId(), Field.Store.YES));
-                doc.add(new TextField("title", c.getTitle()==null ? "" : c.getTitle(), Field.Store.YES));
-                doc.add(new TextField("text", c.getText()==null ? "" : c.getText(), Field.Store.YES));
-                writer.addDocument(doc);
+        iwc.setOpenMode(mode);
+        KnnVectorsFormat knnFormat = new Lucene95HnswVectorsFormat(options.hnswM, options.hnswBeamWidth);
+        iwc.setCodec(new Lucene95Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return knnFormat;
             }
-            writer.commit();
+        });
+        return iwc;
+    }
+
+    // ---- incremental (NRT) updates ----
+
+    /**
+     * Open the service's IndexWriter (creating an empty index if none exists) and switch searchers
+     * to near-real-time readers over it. Holds the index write lock until close().
+     *
+     * An index written before chunk_id/title had doc values cannot take documents with the current
+     * schema (Lucene refuses to change a field's doc values type), so it is rejected here and has
+     * to be rebuilt once with LuceneReindexer.
+     */
+    public void openWriter() throws IOException {
+        managerLock.writeLock().lock();
+        try {
+            synchronized (lock) {
+                if (writer != null) return;
+                if (!hasDocValuesSchema(directory())) {
+                    throw new IOException("Lucene index at " + indexDir + " predates the chunk_id/title doc values; "
+                            + "run LuceneReindexer to rebuild it before incremental indexing");
+                }
+                writer = new IndexWriter(directory(), writerConfig(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+                SearcherManager old = manager;
+                manager = newManager(new SearcherManager(writer, searcherFactory()));
+                if (old != null) old.close(); // searchers already acquired stay valid until released
+                LOG.info("Opened Lucene writer over {}; searchers are now near-real-time", indexDir);
+            }
+        } finally {
+            managerLock.writeLock().unlock();
         }
     }
 
-    public List<String> search(String queryString, int topK) throws Exception {
-        Directory dir = FSDirectory.open(indexDir);
+    /**
+     * False if an existing index has chunk_id or title without the doc values document() writes.
+     */
+    static boolean hasDocValuesSchema(Directory dir) throws IOException {
+        if (!DirectoryReader.indexExists(dir)) return true;
         try (DirectoryReader reader = DirectoryReader.open(dir)) {
-            IndexSearcher searcher = new IndexSearcher(reader);
-            QueryParser parser = new QueryParser("text", analyzer);
-            String escaped = QueryParser.escape(queryString);
-            Query q = parser.parse(escaped);
-            TopDocs hits = searcher.search(q, topK);
-            List<String> ids = new ArrayList<>();
-            for (ScoreDoc sd : hits.scoreDocs) {
-                Document doc = searcher.doc(sd.doc);
-                ids.add(doc.get("chunk_id"));
-            }
-            return ids;
+            FieldInfos fields = FieldInfos.getMergedFieldInfos(reader);
+            return docValuesType(fields, "chunk_id") != DocValuesType.NONE
+                    && docValuesType(fields, "title") != DocValuesType.NONE;
+        }
+    }
+
+    // fields absent from the index (e.g. an empty one) accept any type
+    private static DocValuesType docValuesType(FieldInfos fields, String name) {
+        FieldInfo fi = fields.fieldInfo(name);
+        return fi == null ? null : fi.getDocValuesType();
+    }
+
+    /**
+     * Add or replace the document for c.getChunkId(); vector may be null (no KNN entry).
+     */
+    public void upsert(DbChunk c, float[] vector) throws IOException {
+        writer().updateDocument(new Term("chunk_id", c.getChunkId()), document(c, vector));
+    }
+
+    public void delete(String chunkId) throws IOException {
+        writer().deleteDocuments(new Term("chunk_id", chunkId));
+    }
+
+    public void deleteAll() throws IOException {
+        writer().deleteAll();
+    }
+
+    /**
+     * Run listener after each refresh that opened a new searcher (a reindex commit or applied incremental updates).
+     */
+    public void onReopen(Runnable listener) {
+        reopenListeners.add(listener);
+    }
+
+    /**
+     * Make applied updates visible to new searches (no commit needed).
+     */
+    public void refresh() throws IOException {
+        managerLock.readLock().lock();
+        try {
+            manager().maybeRefreshBlocking();
+        } finally {
+            managerLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Durably commit applied updates, recording changeSeq (-1: keep the previous value) as the high-water mark.
+     */
+    public void commit(long changeSeq) throws IOException {
+        IndexWriter w = writer();
+        if (changeSeq >= 0) w.setLiveCommitData(Map.of(CHANGE_SEQ_KEY, Long.toString(changeSeq)).entrySet());
+        w.commit();
+    }
+
+    /**
+     * chunk_changes sequence number recorded by the last commit, or -1 if none.
+     */
+    public long committedChangeSeq() throws IOException {
+        Iterable<Map.Entry<String, String>> data;
+        synchronized (lock) {
+            if (writer != null) {
+                data = writer.getLiveCommitData();
+            } else if (DirectoryReader.indexExists(directory())) {
+                data = SegmentInfos.readLatestCommit(directory()).getUserData().entrySet();
+            } else {
+                data = null;
+            }
+        }
+        if (data != null) {
+            for (Map.Entry<String, String> e : data) {
+                if (CHANGE_SEQ_KEY.equals(e.getKey())) return Long.parseLong(e.getValue());
+            }
+        }
+        return -1;
+    }
+
+    private IndexWriter writer() {
+        synchronized (lock) {
+            if (writer == null) throw new IllegalStateException("openWriter() has not been called");
+            return writer;
+        }
+    }
+
+    /**
+     * Open and warm the shared searcher now instead of on the first query.
+     *
+     * @return false if there is no index yet (the background refresh opens it once one is built)
+     */
+    public boolean open() {
+        try {
+            manager();
+            return true;
+        } catch (IOException e) {
+            LOG.warn("Lucene index not available: {}", e.getMessage());
+            return false;
         }
     }
+
+    /**
+     * Whether the index exists and was built with KNN vectors.
+     */
+    public boolean hasVectors() {
+        try {
+            return withSearcher(searcher -> {
+                FieldInfo fi = FieldInfos.getMergedFieldInfos(searcher.getIndexReader()).fieldInfo(VECTOR_FIELD);
+                return fi != null && fi.getVectorDimension() > 0;
+            });
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public List<String> search(String queryString, int topK) throws Exception {
+        List<Candidate> hits = searchScored(queryString, topK);
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Candidate c : hits) ids.add(c.getChunkId());
+        return ids;
+    }
+
+    /**
+     * BM25 hits with their scores, best first.
+     */
+    public List<Candidate> searchScored(String queryString, int topK) throws Exception {
+        return withSearcher(searcher -> lexical(searcher, queryString, topK));
+    }
+
+    /**
+     * Dense KNN and BM25 retrieval in one call, on the same reader.
+     */
+    public HybridResult hybridSearch(String queryString, float[] vector, int denseK, int lexK, boolean withVector) throws Exception {
+        return withSearcher(searcher -> {
+            List<Candidate> dense = knn(searcher, vector, denseK, withVector);
+            List<Candidate> lexical = lexical(searcher, queryString, lexK);
+            return new HybridResult(dense, lexical);
+        });
+    }
+
+    @Override
+    public List<Candidate> search(float[] vector, int topK, boolean withVector) throws IOException {
+        return withSearcher(searcher -> knn(searcher, vector, topK, withVector));
+    }
+
+    @Override
+    public Map<String, Candidate> getPointsByChunkIds(List<String> chunkIds) throws IOException {
+        Map<String, Candidate> out = new HashMap<>();
+        if (chunkIds.isEmpty()) return out;
+        return withSearcher(searcher -> {
+            List<BytesRef> terms = new ArrayList<>(chunkIds.size());
+            for (String cid : chunkIds) terms.add(new BytesRef(cid));
+            TopDocs hits = searcher.search(new TermInSetQuery("chunk_id", terms), chunkIds.size());
+            ChunkPayload[] payloads = payloads(searcher, hits.scoreDocs, hits.scoreDocs.length);
+            for (int i = 0; i < payloads.length; i++) {
+                Candidate c = candidate(searcher, hits.scoreDocs[i].doc, payloads[i], 0, true);
+                if (c.vector != null) out.put(c.id, c);
+            }
+            return out;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (refresher != null) refresher.shutdownNow();
+        if (searchExecutor != null) searchExecutor.shutdown();
+        managerLock.writeLock().lock();
+        try {
+            synchronized (lock) {
+                closed = true;
+                if (manager != null) manager.close();
+                if (writer != null) writer.close(); // commits pending updates; the high-water mark is already set
+                if (directory != null) directory.close();
+                manager = null;
+                writer = null;
+                directory = null;
+            }
+        } finally {
+            managerLock.writeLock().unlock();
+        }
+    }
+
+    // ---- searcher lifecycle ----
+
+    private interface SearcherFunction<T, E extends Exception> {
+        T apply(IndexSearcher searcher) throws E;
+    }
+
+    /**
+     * Run fn on the current searcher; the searcher is released even if fn throws.
+     */
+    private <T, E extends Exception> T withSearcher(SearcherFunction<T, E> fn) throws E, IOException {
+        SearcherManager m;
+        IndexSearcher searcher;
+        managerLock.readLock().lock();
+        try {
+            m = manager();
+            searcher = m.acquire();
+        } finally {
+            managerLock.readLock().unlock();
+        }
+        acquires.increment();
+        try {
+            return fn.apply(searcher);
+        } finally {
+            m.release(searcher);
+        }
+    }
+
+    private Directory directory() throws IOException {
+        synchronized (lock) {
+            if (closed) throw new AlreadyClosedException("LuceneIndexService over " + indexDir + " is closed");
+            if (directory == null) directory = new MMapDirectory(indexDir);
+            return directory;
+        }
+    }
+
+    private SearcherManager manager() throws IOException {
+        SearcherManager m = manager;
+        if (m != null) return m;
+        synchronized (lock) {
+            if (manager == null) {
+                Directory dir = directory();
+                if (!DirectoryReader.indexExists(dir)) throw new IndexNotFoundException("No Lucene index in " + indexDir);
+                manager = newManager(new SearcherManager(dir, searcherFactory()));
+                LOG.info("Opened Lucene searcher over {}", indexDir);
+            }
+            return manager;
+        }
+    }
+
+    private SearcherFactory searcherFactory() {
+        return new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                IndexSearcher searcher = new IndexSearcher(reader, searchExecutor);
+                warm(searcher);
+                return searcher;
+            }
+        };
+    }
+
+    private SearcherManager newManager(SearcherManager created) {
+        created.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {}
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                (didRefresh ? reopened : unchanged).increment();
+                if (didRefresh) reopenListeners.forEach(Runnable::run);
+            }
+        });
+        return created;
+    }
+
+    // background refresh: picks up a new commit, or opens the manager once an index appears
+    private void refreshQuietly() {
+        managerLock.readLock().lock();
+        try {
+            SearcherManager m = manager;
+            if (m == null) {
+                if (DirectoryReader.indexExists(directory())) manager();
+            } else {
+                m.maybeRefresh();
+            }
+        } catch (AlreadyClosedException e) {
+            // close() ran between two scheduled refreshes
+        } catch (Exception e) {
+            LOG.warn("Lucene searcher refresh failed: {}", e.getMessage());
+        } finally {
+            managerLock.readLock().unlock();
+        }
+    }
+
+    // touch term dictionaries, norms, stored fields and the HNSW graph before the searcher serves queries
+    private void warm(IndexSearcher searcher) {
+        long t0 = System.nanoTime();
+        try {
+            lexical(searcher, WARMUP_QUERY, 10);
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                FloatVectorValues values = leaf.reader().getFloatVectorValues(VECTOR_FIELD);
+                if (values != null && values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                    knn(searcher, values.vectorValue().clone(), 10, true);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Lucene searcher warmup failed: {}", e.getMessage());
+        } finally {
+            warmup.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private List<Candidate> lexical(IndexSearcher searcher, String queryString, int topK) throws IOException {
+        Query q = bm25Query(queryString);
+        if (q == null || topK <= 0) return Collections.emptyList();
+        TopDocs hits = searcher.search(q, topK);
+        ChunkPayload[] payloads = payloads(searcher, hits.scoreDocs, hits.scoreDocs.length);
+        List<Candidate> out = new ArrayList<>(payloads.length);
+        for (int i = 0; i < payloads.length; i++) {
+            out.add(candidate(searcher, hits.scoreDocs[i].doc, payloads[i], hits.scoreDocs[i].score, false));
+        }
+        return out;
+    }
+
+    /**
+     * title^titleBoost / text^textBoost disjunction per analyzed query term, or null if the query has no terms.
+     * Both fields use the same analyzer, so the query text is tokenized once.
+     */
+    Query bm25Query(String queryString) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        int terms = 0;
+        try (TokenStream ts = analyzer.tokenStream("text", queryString)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken() && terms < MAX_QUERY_TERMS) {
+                String t = term.toString();
+                Query perTerm = new BooleanQuery.Builder()
+                        .add(new BoostQuery(new TermQuery(new Term("title", t)), options.titleBoost), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(new TermQuery(new Term("text", t)), options.textBoost), BooleanClause.Occur.SHOULD)
+                        .build();
+                query.add(perTerm, BooleanClause.Occur.SHOULD);
+                terms++;
+            }
+            ts.end();
+        }
+        return terms == 0 ? null : query.build();
+    }
+
+    private List<Candidate> knn(IndexSearcher searcher, float[] vector, int topK, boolean withVector) throws IOException {
+        if (topK <= 0) return Collections.emptyList();
+        int k = Math.max(topK, options.efSearch);
+        TopDocs hits = searcher.search(new KnnFloatVectorQuery(VECTOR_FIELD, VectorKernel.get().unit(vector), k), k);
+        int n = Math.min(topK, hits.scoreDocs.length);
+        ChunkPayload[] payloads = payloads(searcher, hits.scoreDocs, n);
+        List<Candidate> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ScoreDoc sd = hits.scoreDocs[i];
+            // Lucene scores DOT_PRODUCT as (1 + dot) / 2; report cosine like Qdrant
+            out.add(candidate(searcher, sd.doc, payloads[i], 2 * sd.score - 1, withVector));
+        }
+        return out;
+    }
+
+    private static Candidate candidate(IndexSearcher searcher, int docId, ChunkPayload payload, double score,
+                                       boolean withVector) throws IOException {
+        Candidate c = new Candidate();
+        c.id = payload.getChunkId();
+        c.score = score;
+        c.payload = payload;
+        c.vector = withVector ? vectorOf(searcher.getIndexReader(), docId) : null;
+        return c;
+    }
+
+    /**
+     * chunk_id/title/chunk_type of the first n hits, in hit order. Hits are visited in doc id order
+     * so each segment's doc values are read forward-only in one pass.
+     */
+    static ChunkPayload[] payloads(IndexSearcher searcher, ScoreDoc[] hits, int n) throws IOException {
+        ChunkPayload[] out = new ChunkPayload[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> hits[i].doc));
+
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = null;
+        SortedDocValues ids = null;
+        SortedDocValues types = null;
+        BinaryDocValues titles = null;
+        StoredFields stored = null;
+        for (int i : order) {
+            int docId = hits[i].doc;
+            if (leaf == null || docId >= leaf.docBase + leaf.reader().maxDoc()) {
+                leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                LeafReader reader = leaf.reader();
+                ids = reader.getSortedDocValues("chunk_id");
+                types = reader.getSortedDocValues("chunk_type");
+                titles = reader.getBinaryDocValues("title");
+                stored = ids == null ? reader.storedFields() : null;
+            }
+            int local = docId - leaf.docBase;
+            if (ids == null) {
+                // segment indexed before doc values: stored fields (no chunk_type there)
+                Document doc = stored.document(local, STORED_HIT_FIELDS);
+                out[i] = new ChunkPayload(doc.get("chunk_id"), doc.get("title"), null);
+                continue;
+            }
+            String chunkId = ids.advanceExact(local) ? ids.lookupOrd(ids.ordValue()).utf8ToString() : null;
+            String title = titles != null && titles.advanceExact(local) ? titles.binaryValue().utf8ToString() : null;
+            String type = types != null && types.advanceExact(local) ? types.lookupOrd(types.ordValue()).utf8ToString() : null;
+            out[i] = new ChunkPayload(chunkId, title, type);
+        }
+        return out;
+    }
+
+    // reads a document's KNN vector from its segment (null if it has none)
+    private static float[] vectorOf(IndexReader reader, int docId) throws IOException {
+        List<LeafReaderContext> leaves = reader.leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        FloatVectorValues values = leaf.reader().getFloatVectorValues(VECTOR_FIELD);
+        if (values == null) return null;
+        int local = docId - leaf.docBase;
+        if (values.advance(local) != local) return null;
+        return values.vectorValue().clone();
+    }
 }
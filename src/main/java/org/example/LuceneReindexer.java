@@ -1,10 +1,21 @@
 package org.example;
 
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.*;
 
 /**
  * LuceneReindexer - Rebuilds the Lucene BM25 index from the chunks table in PostgreSQL.
+ * Also pre-tokenizes every chunk for the cross-encoder into CHUNK_TOKEN_STORE.
+ * Chunk embeddings from LOCAL_VECTOR_STORE (written by EmbeddingUploader) are indexed as KNN
+ * vectors, which DENSE_BACKEND=lucene searches, if the store is the one the last upload recorded
+ * (LocalVectorStore.openVerified); a stale store is skipped with a warning. Afterwards the corpus epoch is bumped (CorpusEpoch),
+ * so running services stop serving cached results computed against the old index.
+ * Stop any LuceneIncrementalIndexer on the same index first: it holds the index's write lock.
  * 
  * Usage:
  *   set DB_PASS=YourPassword
@@ -17,14 +28,30 @@ public class LuceneReindexer {
         String dbUser = System.getenv().getOrDefault("DB_USER", "postgres");
         String dbPass = System.getenv().getOrDefault("DB_PASS", "postgres");
 
+        // mark the change log position first: edits made while loading are replayed by LuceneIncrementalIndexer
+        long changeSeq;
+        Long vectorsVersion;
+        try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPass)) {
+            LuceneIncrementalIndexer.ensureChangeLog(conn);
+            changeSeq = LuceneIncrementalIndexer.maxChangeSeq(conn);
+            vectorsVersion = CorpusEpoch.readVectorsVersion(conn);
+        }
+
         System.out.println("Loading chunks from database...");
         List<DbChunk> chunks = loadAllChunks(dbUrl, dbUser, dbPass);
         System.out.println("Loaded " + chunks.size() + " chunks.");
 
         System.out.println("Rebuilding Lucene index at: " + Config.LUCENE_INDEX_DIR);
-        LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR);
-        lucene.rebuildIndex(chunks);
+        LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR, Config.luceneOptions());
+        lucene.rebuildIndex(chunks, loadVectors(chunks, vectorsVersion), changeSeq);
         System.out.println("Lucene index rebuilt successfully.");
+        try (Connection conn = DriverManager.getConnection(dbUrl, dbUser, dbPass)) {
+            // the new index reflects everything up to changeSeq
+            System.out.println("Pruned " + LuceneIncrementalIndexer.pruneChangeLog(conn, changeSeq) + " chunk_changes rows.");
+        }
+        CorpusEpoch.bumpQuietly(dbUrl, dbUser, dbPass, "LuceneReindexer");
+
+        buildChunkTokenStore(chunks);
 
         // Quick sanity check
         List<String> testHits = lucene.search("binary search Java", 10);
@@ -34,6 +61,44 @@ public class LuceneReindexer {
         }
     }
 
+    // chunk_id -> embedding for every chunk present in the local vector store, if it matches the last upload
+    private static Map<String, float[]> loadVectors(List<DbChunk> chunks, Long vectorsVersion) {
+        Path file = Path.of(Config.LOCAL_VECTOR_STORE);
+        if (!Files.isRegularFile(file)) {
+            System.out.println("Vector store " + file + " not found, indexing without KNN vectors.");
+            return Collections.emptyMap();
+        }
+        QdrantClient qdrant = new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION);
+        LocalVectorStore store = LocalVectorStore.openVerified(file, qdrant, vectorsVersion);
+        if (store == null) {
+            System.err.println("WARNING: vector store " + file + " is stale or unreadable, indexing without KNN vectors "
+                    + "(rerun EmbeddingUploader, then LuceneReindexer)");
+            return Collections.emptyMap();
+        }
+        Map<String, float[]> vectors = new HashMap<>();
+        for (DbChunk c : chunks) {
+            float[] v = store.get(c.getChunkId());
+            if (v != null) vectors.put(c.getChunkId(), v);
+        }
+        System.out.println("KNN vectors for " + vectors.size() + "/" + chunks.size() + " chunks from " + file);
+        return vectors;
+    }
+
+    // Pre-tokenize chunk texts so reranking only has to tokenize the query
+    private static void buildChunkTokenStore(List<DbChunk> chunks) throws Exception {
+        File tokenizerJson = new File(Config.CROSS_ENCODER_ONNX_DIR, "tokenizer.json");
+        if (!tokenizerJson.exists()) {
+            System.out.println("Cross-encoder tokenizer not found, skipping chunk token store.");
+            return;
+        }
+        try (HuggingFaceTokenizer tokenizer = HuggingFaceTokenizer.newInstance(Path.of(Config.CROSS_ENCODER_ONNX_DIR))) {
+            ChunkTokenStore store = new ChunkTokenStore(text -> tokenizer.encode(text, false, false).getIds());
+            for (DbChunk c : chunks) store.tokens(c.getChunkId(), c.getText());
+            store.save(Path.of(Config.CHUNK_TOKEN_STORE));
+            System.out.println("Chunk token store written: " + store.size() + " chunks -> " + Config.CHUNK_TOKEN_STORE);
+        }
+    }
+
     private static List<DbChunk> loadAllChunks(String dbUrl, String dbUser, String dbPass) throws SQLException {
         List<DbChunk> chunks = new ArrayList<>();
         String sql = "SELECT chunk_id, title, text, chunk_type, metadata::text FROM chunks";
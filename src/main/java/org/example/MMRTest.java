@@ -13,7 +13,7 @@ public class MMRTest {
     public static void main(String[] args) throws Exception {
         System.out.println("Loading embedder from: " + Config.EMBED_MODEL_PATH);
         try (OnnxEmbedder embedder = new OnnxEmbedder(
-                Config.EMBED_MODEL_PATH + "/model.onnx",
+                Config.modelFile(Config.EMBED_MODEL_PATH),
                 Config.EMBED_MODEL_PATH,
                 384
         )) {
@@ -42,10 +42,7 @@ public class MMRTest {
         System.out.println("\nTop MMR results:");
         int i = 1;
         for (Candidate c : out) {
-            String chunkId = c.payload != null && c.payload.get("chunk_id") != null 
-                    ? c.payload.get("chunk_id").toString() 
-                    : c.id;
-            System.out.printf("%2d. %s (dense_score=%.4f)%n", i++, chunkId, c.score);
+            System.out.printf("%2d. %s (dense_score=%.4f)%n", i++, c.getChunkId(), c.score);
         }
     }
 }
@@ -0,0 +1,323 @@
+package org.example;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MappedEmbeddingCache - off-heap query -> embedding cache in a memory-mapped file.
+ *
+ * Entries live in fixed-width slots outside the Java heap: a 128-bit fingerprint of the key
+ * (two independent 64-bit hashes of its UTF-8 bytes; the key itself is not stored), a use stamp,
+ * and dim little-endian float32s. The table is set-associative open addressing: a key hashes to
+ * one set of WAYS slots and is probed linearly within it; a full set overwrites its least
+ * recently used slot. Each set is guarded by one of LOCK_STRIPES monitors, so lookups of
+ * different keys rarely contend, and the cache never allocates per entry (no GC pressure however
+ * many slots it has).
+ *
+ * The file is the snapshot: writes go straight to the shared mapping and the OS writes them back,
+ * so a restarted service (with the file on a persistent volume) maps it again and serves hot
+ * queries without re-embedding them. The header records the embedding model and dimension; a
+ * file written for another model is discarded on open. The model is identified by modelId(file):
+ * the resolved ONNX file plus its size and modification time, so switching MODEL_PRECISION or
+ * replacing the model in place also starts a fresh cache. With no file (or if it cannot be opened)
+ * the same table lives in a direct buffer for the life of the process.
+ *
+ * The dimension is taken from the first put (or from an existing file), so the table is created
+ * lazily; puts with another dimension are ignored.
+ *
+ * Metrics (tag cache=name): cache.gets{result=hit|miss}, cache.puts, cache.evictions{cause=size}, cache.size.
+ *
+ * File layout:
+ *   int magic "EMC1", int version, int dim, int ways, long sets, long modelFingerprint, padding to 64 bytes,
+ *   then sets x ways slots of: long fp1 (0: empty), long fp2, long stamp, dim x float32.
+ */
+public class MappedEmbeddingCache implements Closeable {
+    private static final Logger LOG = LoggerFactory.getLogger(MappedEmbeddingCache.class);
+    private static final int MAGIC = 0x454D4331; // "EMC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_HEADER_BYTES = 24;
+    static final int WAYS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path file;          // null: direct buffer, nothing persisted
+    private final long maxEntries;
+    private final long modelFingerprint;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong entries = new AtomicLong();
+    private volatile Table table;     // null until the dimension is known
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+
+    private static final class Table {
+        final ByteBuffer buf;
+        final FloatBuffer floats; // view of buf; only absolute get/put, so shared by all threads
+        final int dim;
+        final int slotBytes;
+        final int setMask;
+
+        Table(ByteBuffer buf, int dim, long sets) {
+            this.buf = buf;
+            this.floats = buf.asFloatBuffer();
+            this.dim = dim;
+            this.slotBytes = SLOT_HEADER_BYTES + dim * Float.BYTES;
+            this.setMask = (int) sets - 1;
+        }
+
+        int slotOffset(int set, int way) {
+            return HEADER_BYTES + (set * WAYS + way) * slotBytes;
+        }
+
+        int vectorIndex(int slotOffset) {
+            return (slotOffset + SLOT_HEADER_BYTES) / Float.BYTES;
+        }
+    }
+
+    /**
+     * @param file       backing file (null: in-memory only)
+     * @param maxEntries slot count (rounded up to a power of two number of sets)
+     * @param modelId    identifies the embedding model; a file written for another model is discarded
+     */
+    public MappedEmbeddingCache(Path file, long maxEntries, String modelId) {
+        this("embedding", file, maxEntries, modelId, Metrics.globalRegistry);
+    }
+
+    MappedEmbeddingCache(String name, Path file, long maxEntries, String modelId, MeterRegistry registry) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be > 0");
+        this.file = file;
+        this.maxEntries = maxEntries;
+        this.modelFingerprint = hash(modelId.getBytes(StandardCharsets.UTF_8), 0x2545F4914F6CDD1DL);
+        for (int i = 0; i < LOCK_STRIPES; i++) locks[i] = new Object();
+
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Cache lookups").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Cache lookups").register(registry);
+        this.puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Entries written to the cache").register(registry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", name).tag("cause", "size")
+                .description("Entries evicted or refused admission to stay within the bound").register(registry);
+        Gauge.builder("cache.size", entries, AtomicLong::get).tag("cache", name)
+                .description("Entries in the cache").register(registry);
+
+        if (file != null) loadSnapshot();
+    }
+
+    /**
+     * Cached embedding for key (a fresh copy), or null.
+     */
+    public float[] get(String key) {
+        Table t = table;
+        if (t == null) {
+            misses.increment();
+            return null;
+        }
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long fp1 = fingerprint1(bytes), fp2 = hash(bytes, 0x9E3779B97F4A7C15L);
+        int set = (int) (fp2 & t.setMask);
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            for (int way = 0; way < WAYS; way++) {
+                int off = t.slotOffset(set, way);
+                if (t.buf.getLong(off) == fp1 && t.buf.getLong(off + 8) == fp2) {
+                    t.buf.putLong(off + 16, clock.incrementAndGet());
+                    float[] out = new float[t.dim];
+                    t.floats.get(t.vectorIndex(off), out);
+                    hits.increment();
+                    return out;
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, float[] vector) {
+        Table t = table;
+        if (t == null) t = create(vector.length);
+        if (t == null || vector.length != t.dim) return;
+
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long fp1 = fingerprint1(bytes), fp2 = hash(bytes, 0x9E3779B97F4A7C15L);
+        int set = (int) (fp2 & t.setMask);
+        synchronized (locks[set & (LOCK_STRIPES - 1)]) {
+            // same key, else the first empty way, else the least recently used one
+            int match = -1, empty = -1, lru = 0;
+            long lruStamp = Long.MAX_VALUE;
+            for (int way = 0; way < WAYS; way++) {
+                int off = t.slotOffset(set, way);
+                long slotFp1 = t.buf.getLong(off);
+                if (slotFp1 == fp1 && t.buf.getLong(off + 8) == fp2) { match = way; break; }
+                if (slotFp1 == 0) {
+                    if (empty < 0) empty = way;
+                } else if (t.buf.getLong(off + 16) < lruStamp) {
+                    lruStamp = t.buf.getLong(off + 16);
+                    lru = way;
+                }
+            }
+            int target = match >= 0 ? match : empty >= 0 ? empty : lru;
+            if (match < 0 && empty >= 0) entries.incrementAndGet();
+            else if (match < 0) evictions.increment();
+            int off = t.slotOffset(set, target);
+            // fp1 is cleared first and written last: a process killed mid-write leaves an empty slot, not a torn one
+            t.buf.putLong(off, 0L);
+            t.floats.put(t.vectorIndex(off), vector);
+            t.buf.putLong(off + 8, fp2);
+            t.buf.putLong(off + 16, clock.incrementAndGet());
+            t.buf.putLong(off, fp1);
+        }
+        puts.increment();
+    }
+
+    public long size() {
+        return entries.get();
+    }
+
+    /**
+     * Slots in the table (maxEntries rounded up), or 0 before the table exists.
+     */
+    public long capacity() {
+        Table t = table;
+        return t == null ? 0 : (long) (t.setMask + 1) * WAYS;
+    }
+
+    /**
+     * Write dirty pages of the mapping to the file (the OS does this eventually anyway).
+     */
+    public void flush() {
+        Table t = table;
+        if (t != null && t.buf instanceof MappedByteBuffer) ((MappedByteBuffer) t.buf).force();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    // ---- table setup ----
+
+    private synchronized Table create(int dim) {
+        if (table != null) return table;
+        long sets = setsFor(maxEntries, dim);
+        long bytes = HEADER_BYTES + sets * WAYS * (SLOT_HEADER_BYTES + (long) dim * Float.BYTES);
+        ByteBuffer buf = null;
+        if (file != null) {
+            try {
+                buf = map(file, bytes);
+                buf.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, dim).putInt(12, WAYS)
+                        .putLong(16, sets).putLong(24, modelFingerprint);
+                LOG.info("Embedding cache: {} slots of {} dims in {}", sets * WAYS, dim, file);
+            } catch (IOException e) {
+                LOG.warn("Embedding cache file {} unavailable ({}); caching in memory only", file, e.getMessage());
+                buf = null;
+            }
+        }
+        if (buf == null) buf = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        table = new Table(buf, dim, sets);
+        return table;
+    }
+
+    // map an existing file written for this model, or start over
+    private void loadSnapshot() {
+        try {
+            if (!Files.exists(file) || Files.size(file) < HEADER_BYTES) return;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                ch.read(header, 0);
+            }
+            int dim = header.getInt(8);
+            long sets = header.getLong(16);
+            boolean valid = header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(12) == WAYS
+                    && header.getLong(24) == modelFingerprint && dim > 0 && sets == setsFor(maxEntries, dim)
+                    && Files.size(file) == HEADER_BYTES + sets * WAYS * (SLOT_HEADER_BYTES + (long) dim * Float.BYTES);
+            if (!valid) {
+                LOG.info("Embedding cache {} was written for another model or size; starting empty", file);
+                Files.delete(file);
+                return;
+            }
+            Table t = new Table(map(file, Files.size(file)), dim, sets);
+            long maxStamp = 0, live = 0;
+            for (int set = 0; set < sets; set++) {
+                for (int way = 0; way < WAYS; way++) {
+                    int off = t.slotOffset(set, way);
+                    if (t.buf.getLong(off) == 0) continue;
+                    live++;
+                    maxStamp = Math.max(maxStamp, t.buf.getLong(off + 16));
+                }
+            }
+            clock.set(maxStamp);
+            entries.set(live);
+            table = t;
+            LOG.info("Embedding cache: loaded {} entries from {}", live, file);
+        } catch (IOException e) {
+            LOG.warn("Embedding cache snapshot {} could not be loaded ({}); starting empty", file, e.getMessage());
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, long bytes) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes); // grows a new file (sparse)
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            return map;
+        }
+    }
+
+    /**
+     * Model id for the constructor: real path, size and mtime of the ONNX file actually loaded
+     * (just the path if it cannot be read).
+     */
+    public static String modelId(String modelFile) {
+        Path p = Paths.get(modelFile).toAbsolutePath().normalize();
+        try {
+            Path real = p.toRealPath();
+            return real + "|" + Files.size(real) + "|" + Files.getLastModifiedTime(real).toMillis();
+        } catch (IOException e) {
+            return p.toString();
+        }
+    }
+
+    // power of two number of sets holding at least maxEntries slots, within one 2 GB mapping
+    static long setsFor(long maxEntries, int dim) {
+        long slotBytes = SLOT_HEADER_BYTES + (long) dim * Float.BYTES;
+        long maxSets = Long.highestOneBit((Integer.MAX_VALUE - HEADER_BYTES) / (slotBytes * WAYS));
+        long sets = 1;
+        while (sets * WAYS < maxEntries && sets < maxSets) sets <<= 1;
+        return sets;
+    }
+
+    private static long fingerprint1(byte[] bytes) {
+        long h = hash(bytes, 0xC2B2AE3D27D4EB4FL);
+        return h == 0 ? 1 : h; // 0 marks an empty slot
+    }
+
+    // FNV-1a style byte loop with a seed, finished with the splitmix64 mixer
+    static long hash(byte[] bytes, long seed) {
+        long h = seed ^ 0xCBF29CE484222325L;
+        for (byte b : bytes) h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        h ^= h >>> 30;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 27;
+        h *= 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example;
+
+import java.util.*;
+
+/**
+ * MmrEngine - Maximal Marginal Relevance selection over L2-normalized vectors.
+ *
+ * Candidates are copied into one contiguous float[n*d] matrix, so every similarity is a plain
+ * VectorKernel dot product over adjacent memory (cosine, since query and chunk embeddings are
+ * normalized).
+ * Instead of comparing each remaining candidate with every selected one per round, maxSim[i]
+ * holds candidate i's highest similarity to the selection so far and is updated with only the
+ * newly selected vector: O(n*k*d) per call instead of O(n*k^2*d).
+ *
+ * Buffers are kept and grown between calls, so steady-state selection does not allocate; an
+ * instance is not thread-safe (MMR.rerank keeps one per thread).
+ * Candidates without a vector (or with the wrong dimension) have similarity 0 to everything.
+ */
+public final class MmrEngine {
+    private final VectorKernel kernel;
+    private float[] matrix = new float[0];
+    private float[] simQuery = new float[0];
+    private float[] maxSim = new float[0];
+    private boolean[] selected = new boolean[0];
+    private int[] picks = new int[0];
+
+    public MmrEngine() {
+        this(VectorKernel.get());
+    }
+
+    public MmrEngine(VectorKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public List<Candidate> rerank(List<Candidate> candidates, float[] queryVector, int k, double lambda) {
+        if (candidates == null || candidates.isEmpty() || queryVector == null) return Collections.emptyList();
+        int n = candidates.size();
+        int d = queryVector.length;
+        ensureCapacity(n, d);
+        for (int i = 0; i < n; i++) {
+            float[] v = candidates.get(i).vector;
+            if (v != null && v.length == d) System.arraycopy(v, 0, matrix, i * d, d);
+            else Arrays.fill(matrix, i * d, (i + 1) * d, 0f);
+        }
+        int count = select(n, d, queryVector, k, lambda);
+        List<Candidate> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(candidates.get(picks[i]));
+        return result;
+    }
+
+    /**
+     * Greedy MMR over the first n rows of the matrix; indices of the picks land in picks[0..count).
+     */
+    private int select(int n, int d, float[] query, int k, double lambda) {
+        float lq = (float) lambda;
+        float ls = (float) (1 - lambda);
+        kernel.scoreRows(matrix, n, d, query, simQuery);
+        for (int i = 0; i < n; i++) {
+            maxSim[i] = Float.NEGATIVE_INFINITY;
+            selected[i] = false;
+        }
+
+        // first pick: most similar to the query
+        int best = 0;
+        for (int i = 1; i < n; i++) if (simQuery[i] > simQuery[best]) best = i;
+        int count = 0;
+        int limit = Math.min(k, n);
+        while (true) {
+            selected[best] = true;
+            picks[count++] = best;
+            if (count >= limit) break;
+
+            // fold the new pick into maxSim and choose the next one in the same pass
+            int bestOff = best * d;
+            int next = -1;
+            float nextScore = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) continue;
+                float sim = kernel.dot(matrix, i * d, matrix, bestOff, d);
+                if (sim > maxSim[i]) maxSim[i] = sim;
+                float score = lq * simQuery[i] - ls * maxSim[i];
+                if (score > nextScore) { nextScore = score; next = i; }
+            }
+            if (next == -1) break;
+            best = next;
+        }
+        return count;
+    }
+
+    private void ensureCapacity(int n, int d) {
+        if (matrix.length < n * d) matrix = new float[Math.max(n * d, matrix.length * 2)];
+        if (simQuery.length < n) {
+            int cap = Math.max(n, simQuery.length * 2);
+            simQuery = new float[cap];
+            maxSim = new float[cap];
+            selected = new boolean[cap];
+            picks = new int[cap];
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * ModelQuantizer - produces or loads dynamically quantized INT8 variants of the ONNX models.
+ *
+ * ONNX Runtime's Java API cannot quantize, so conversion runs scripts/quantize_dynamic.py
+ * (onnxruntime.quantization.quantize_dynamic, per-channel QInt8 MatMul/Gemm weights).
+ * An existing model_int8.onnx newer than model.onnx is reused. Every INT8 model is then
+ * loaded once to verify it runs in this runtime.
+ *
+ * Select it with MODEL_PRECISION=int8, after checking quality with RunQuantizationEvaluation.
+ * Document vectors in Qdrant stay fp32; only query-time inference uses the INT8 model.
+ *
+ * Usage:
+ *   pip install onnxruntime onnx
+ *   mvn -q -Dexec.mainClass="org.example.ModelQuantizer" \
+ *       -Dexec.args="models/all-mpnet-base-v2-onnx models/cross-encoder-ms-marco-miniLM-L-6-v2" exec:java
+ *   (set PYTHON to choose the interpreter, default python3)
+ */
+public class ModelQuantizer {
+    public static final String FP32_FILE = "model.onnx";
+    public static final String INT8_FILE = "model_int8.onnx";
+
+    public static void main(String[] args) throws Exception {
+        List<String> dirs = args.length > 0 ? Arrays.asList(args)
+                : List.of("models/all-mpnet-base-v2-onnx", "models/cross-encoder-ms-marco-miniLM-L-6-v2");
+        String python = System.getenv().getOrDefault("PYTHON", "python3");
+        String script = System.getProperty("quantize.script", "scripts/quantize_dynamic.py");
+
+        int failures = 0;
+        for (String dir : dirs) {
+            File fp32 = new File(dir, FP32_FILE);
+            File int8 = new File(dir, INT8_FILE);
+            if (!fp32.isFile()) {
+                System.err.println("[skip] " + fp32 + " not found");
+                failures++;
+                continue;
+            }
+
+            if (int8.isFile() && int8.lastModified() >= fp32.lastModified()) {
+                System.out.println("[load] using existing " + int8);
+            } else {
+                System.out.println("[quantize] " + fp32 + " -> " + int8);
+                Process p = new ProcessBuilder(python, script, fp32.getPath(), int8.getPath())
+                        .inheritIO()
+                        .start();
+                if (p.waitFor() != 0 || !int8.isFile()) {
+                    System.err.println("[fail] quantization failed for " + dir + " (is onnxruntime installed for " + python + "?)");
+                    failures++;
+                    continue;
+                }
+            }
+
+            // verify the quantized graph loads and exposes the same inputs
+            OrtEnvironment env = OrtEnvironment.getEnvironment();
+            try (OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
+                 OrtSession a = env.createSession(fp32.getPath(), opts);
+                 OrtSession b = env.createSession(int8.getPath(), opts)) {
+                if (!a.getInputNames().equals(b.getInputNames())) {
+                    System.err.println("[fail] input names differ: " + a.getInputNames() + " vs " + b.getInputNames());
+                    failures++;
+                    continue;
+                }
+                System.out.printf("[ok] %s  fp32=%.1f MB  int8=%.1f MB  inputs=%s%n",
+                        dir, fp32.length() / 1e6, int8.length() / 1e6, b.getInputNames());
+            }
+        }
+        if (failures > 0) System.exit(1);
+    }
+}
@@ -10,6 +10,8 @@ import java.util.*;
 /**
  * OnnxEmbedder - loads a local ONNX sentence-transformer and a local tokenizer,
  * produces L2-normalized embeddings for a batch of strings.
+ * Inference runs on an OnnxSessionPool, so concurrent callers can use separate sessions.
+ * Batches are split into length buckets (LengthBucketer) so short texts are not padded to the longest one.
  *
  * Usage:
  *   OnnxEmbedder embedder = new OnnxEmbedder("models/all-mpnet-base-v2-onnx/model.onnx",
@@ -20,23 +22,26 @@ import java.util.*;
 public class OnnxEmbedder implements AutoCloseable {
 
     private final OrtEnvironment env;
-    private final OrtSession session;
+    private final OnnxSessionPool sessions;
     private final HuggingFaceTokenizer tokenizer;
     private final int maxLen;
+    private final LengthBucketer bucketer = new LengthBucketer("embedder");
 
     public OnnxEmbedder(String modelPath, String tokenizerFolderOrFile, int maxLen) throws Exception {
+        this(modelPath, tokenizerFolderOrFile, maxLen, OnnxSessionPool.Options.single());
+    }
+
+    public OnnxEmbedder(String modelPath, String tokenizerFolderOrFile, int maxLen, OnnxSessionPool.Options poolOptions) throws Exception {
         this.env = OrtEnvironment.getEnvironment();
-        OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-        // If you later want GPU provider, add provider here.
-        this.session = env.createSession(modelPath, opts);
+        // If you later want GPU provider, add provider in OnnxSessionPool.
+        this.sessions = new OnnxSessionPool(modelPath, "embedder", poolOptions);
 
         // Create tokenizer from local path (folder or tokenizer.json)
         this.tokenizer = HuggingFaceTokenizer.newInstance(Path.of(tokenizerFolderOrFile));
         this.maxLen = maxLen;
 
         // debug: print input and output names
-        System.out.println("ONNX session input names: " + session.getInputNames());
-        System.out.println("ONNX session output names: " + session.getOutputNames());
+        System.out.println("ONNX session input names: " + sessions.getInputNames() + " (pool size " + sessions.size() + ")");
     }
 
     /**
@@ -59,7 +64,7 @@ public class OnnxEmbedder implements AutoCloseable {
         // Tokenize and collect truncated ids + attention masks
         List<long[]> idsList = new ArrayList<>(bs);
         List<long[]> maskList = new ArrayList<>(bs);
-        int seqLen = 0;
+        int[] lengths = new int[bs];
 
         for (String t : texts) {
             Encoding enc = tokenizer.encode(t); // tokenizer adds special tokens by default
@@ -71,11 +76,34 @@ public class OnnxEmbedder implements AutoCloseable {
                 ids = Arrays.copyOf(ids, maxLen);
                 mask = Arrays.copyOf(mask, maxLen);
             }
+            lengths[idsList.size()] = ids.length;
             idsList.add(ids);
             maskList.add(mask);
-            seqLen = Math.max(seqLen, ids.length);
         }
 
+        // run each length bucket as its own sub-batch, then restore the original order
+        float[][] embeddings = new float[bs][];
+        for (int[] bucket : bucketer.plan(lengths)) {
+            List<long[]> bucketIds = new ArrayList<>(bucket.length);
+            List<long[]> bucketMasks = new ArrayList<>(bucket.length);
+            for (int i : bucket) {
+                bucketIds.add(idsList.get(i));
+                bucketMasks.add(maskList.get(i));
+            }
+            float[][] out = runBatch(bucketIds, bucketMasks);
+            for (int j = 0; j < bucket.length; j++) embeddings[bucket[j]] = out[j];
+        }
+        return embeddings;
+    }
+
+    /**
+     * Pad one sub-batch to its longest row and run it through a pooled session.
+     */
+    private float[][] runBatch(List<long[]> idsList, List<long[]> maskList) throws Exception {
+        int bs = idsList.size();
+        int seqLen = 0;
+        for (long[] ids : idsList) seqLen = Math.max(seqLen, ids.length);
+
         // pad to seqLen
         long[][] inputIds = new long[bs][seqLen];
         long[][] attentionMask = new long[bs][seqLen];
@@ -93,7 +121,7 @@ public class OnnxEmbedder implements AutoCloseable {
              OnnxTensor maskTensor = OnnxTensor.createTensor(env, attentionMask)) {
 
             Map<String, OnnxTensor> inputs = new HashMap<>();
-            Set<String> inputNames = session.getInputNames();
+            Set<String> inputNames = sessions.getInputNames();
 
             // pick input names conservatively
             String idsName = inputNames.contains("input_ids") ? "input_ids" : inputNames.iterator().next();
@@ -106,6 +134,7 @@ public class OnnxEmbedder implements AutoCloseable {
                 // if attention_mask not expected, we still provided ids only
             }
 
+            OrtSession session = sessions.acquire();
             try (OrtSession.Result result = session.run(inputs)) {
                 // pick first output
                 OnnxValue first = null;
@@ -140,17 +169,20 @@ public class OnnxEmbedder implements AutoCloseable {
                             System.arraycopy(flat, i * dim, embeddings[i], 0, dim);
                         }
                     }
-                    // case: float[batch][seq][dim] -> mean over seq
+                    // case: float[batch][seq][dim] -> mean over non-padding positions
                     else if (val instanceof float[][][] arr3) {
                         int dim = arr3[0][0].length;
                         embeddings = new float[bs][dim];
                         for (int i = 0; i < bs; i++) {
                             int seq = arr3[i].length;
                             float[] sum = new float[dim];
+                            int counted = 0;
                             for (int s = 0; s < seq; s++) {
+                                if (attentionMask[i][s] == 0) continue;
                                 for (int d = 0; d < dim; d++) sum[d] += arr3[i][s][d];
+                                counted++;
                             }
-                            for (int d = 0; d < dim; d++) embeddings[i][d] = sum[d] / Math.max(1, seq);
+                            for (int d = 0; d < dim; d++) embeddings[i][d] = sum[d] / Math.max(1, counted);
                         }
                     }
                     // case: double[][] -> convert
@@ -159,17 +191,20 @@ public class OnnxEmbedder implements AutoCloseable {
                         for (int i = 0; i < darr.length; i++)
                             for (int j = 0; j < darr[0].length; j++) embeddings[i][j] = (float) darr[i][j];
                     }
-                    // case: double[][][] -> mean over seq
+                    // case: double[][][] -> mean over non-padding positions
                     else if (val instanceof double[][][] darr3) {
                         int dim = darr3[0][0].length;
                         embeddings = new float[bs][dim];
                         for (int i = 0; i < bs; i++) {
                             int seq = darr3[i].length;
                             double[] sum = new double[dim];
+                            int counted = 0;
                             for (int s = 0; s < seq; s++) {
+                                if (attentionMask[i][s] == 0) continue;
                                 for (int d = 0; d < dim; d++) sum[d] += darr3[i][s][d];
+                                counted++;
                             }
-                            for (int d = 0; d < dim; d++) embeddings[i][d] = (float) (sum[d] / Math.max(1, seq));
+                            for (int d = 0; d < dim; d++) embeddings[i][d] = (float) (sum[d] / Math.max(1, counted));
                         }
                     } else if (val != null) {
                         // generic fallback: coerce via Object[] nesting
@@ -195,25 +230,19 @@ public class OnnxEmbedder implements AutoCloseable {
 
                 // L2-normalize each vector
                 for (float[] embedding : embeddings) {
-                    l2Normalize(embedding);
+                    VectorKernel.get().normalize(embedding);
                 }
                 return embeddings;
+            } finally {
+                sessions.release(session);
             }
         }
     }
 
-    private static void l2Normalize(float[] vec) {
-        double sum = 0.0;
-        for (float v : vec) sum += (double) v * v;
-        double norm = Math.sqrt(sum);
-        if (norm == 0.0) return;
-        for (int i = 0; i < vec.length; i++) vec[i] = (float) (vec[i] / norm);
-    }
-
     @Override
     public void close() throws Exception {
         try {
-            if (session != null) session.close();
+            if (sessions != null) sessions.close();
         } finally {
             if (env != null) env.close();
             if (tokenizer != null) tokenizer.close();
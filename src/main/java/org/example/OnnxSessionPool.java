@@ -0,0 +1,182 @@
+package org.example;
+
+import ai.onnxruntime.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OnnxSessionPool - a fixed pool of OrtSessions over one model with tuned SessionOptions.
+ *
+ * Every session gets ORT_ENABLE_ALL graph optimizations, sequential execution, one inter-op
+ * thread and a configurable number of intra-op threads. The policy decides how the CPU is split:
+ *   LATENCY    - one session using all cores; each request runs as fast as possible, requests queue
+ *   BALANCED   - a few sessions with cores/poolSize threads each
+ *   THROUGHPUT - one single-threaded session per core; best total inferences/sec, slower per request
+ * Each session holds its own copy of the weights, so memory grows with poolSize.
+ *
+ * If an optimized-model cache dir is set, the first session serializes the optimized graph there and
+ * later startups load it directly (skipping graph optimization) while it is newer than the source model.
+ *
+ * Usage:
+ *   OnnxSessionPool pool = new OnnxSessionPool("models/x/model.onnx", "embedder",
+ *                                              OnnxSessionPool.Options.forPolicy("balanced", 0, 0, null));
+ *   OrtSession s = pool.acquire();
+ *   try { s.run(inputs); } finally { pool.release(s); }
+ */
+public class OnnxSessionPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(OnnxSessionPool.class);
+
+    public enum Policy { LATENCY, BALANCED, THROUGHPUT }
+
+    public static final class Options {
+        public final int poolSize;
+        public final int intraOpThreads;    // 0 lets ORT pick (all physical cores)
+        public final String optimizedCacheDir; // null/blank disables the optimized-model cache
+
+        public Options(int poolSize, int intraOpThreads, String optimizedCacheDir) {
+            this.poolSize = Math.max(1, poolSize);
+            this.intraOpThreads = Math.max(0, intraOpThreads);
+            this.optimizedCacheDir = optimizedCacheDir;
+        }
+
+        /** One session with ORT-chosen threading: the previous behaviour plus graph optimizations. */
+        public static Options single() {
+            return new Options(1, 0, null);
+        }
+
+        /**
+         * Resolve pool size and threads for a policy name; explicit poolSize/intraOpThreads (> 0) win.
+         */
+        public static Options forPolicy(String policyName, int poolSize, int intraOpThreads, String optimizedCacheDir) {
+            Policy policy;
+            try {
+                policy = Policy.valueOf(policyName == null ? "LATENCY" : policyName.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Unknown ONNX session policy '{}', using LATENCY", policyName);
+                policy = Policy.LATENCY;
+            }
+            int cores = Runtime.getRuntime().availableProcessors();
+            int size = switch (policy) {
+                case LATENCY -> 1;
+                case BALANCED -> Math.max(1, cores / 4);
+                case THROUGHPUT -> cores;
+            };
+            if (poolSize > 0) size = poolSize;
+            int threads = intraOpThreads > 0 ? intraOpThreads : Math.max(1, cores / size);
+            return new Options(size, threads, optimizedCacheDir);
+        }
+
+        @Override
+        public String toString() {
+            return "poolSize=" + poolSize + " intraOpThreads=" + (intraOpThreads == 0 ? "auto" : intraOpThreads)
+                    + " optimizedCache=" + (optimizedCacheDir == null || optimizedCacheDir.isBlank() ? "off" : optimizedCacheDir);
+        }
+    }
+
+    private final OrtEnvironment env;
+    private final List<OrtSession> sessions = new ArrayList<>();
+    private final ArrayBlockingQueue<OrtSession> idle;
+    private final Set<String> inputNames;
+    private final Timer waitTimer;
+
+    public OnnxSessionPool(String modelPath, String name, Options options) throws OrtException {
+        this(modelPath, name, options, Metrics.globalRegistry);
+    }
+
+    public OnnxSessionPool(String modelPath, String name, Options options, MeterRegistry registry) throws OrtException {
+        this.env = OrtEnvironment.getEnvironment();
+        this.idle = new ArrayBlockingQueue<>(options.poolSize);
+
+        File cached = optimizedCacheFile(modelPath, name, options.optimizedCacheDir);
+        boolean useCached = cached != null && cached.isFile()
+                && cached.lastModified() >= new File(modelPath).lastModified();
+        String loadPath = useCached ? cached.getAbsolutePath() : modelPath;
+
+        try {
+            for (int i = 0; i < options.poolSize; i++) {
+                try (OrtSession.SessionOptions opts = new OrtSession.SessionOptions()) {
+                    // an already-optimized graph must not be re-optimized
+                    opts.setOptimizationLevel(useCached ? OrtSession.SessionOptions.OptLevel.NO_OPT
+                                                        : OrtSession.SessionOptions.OptLevel.ALL_OPT);
+                    opts.setExecutionMode(OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL);
+                    opts.setInterOpNumThreads(1);
+                    if (options.intraOpThreads > 0) opts.setIntraOpNumThreads(options.intraOpThreads);
+                    opts.setCPUArenaAllocator(true);
+                    opts.setMemoryPatternOptimization(true);
+                    if (i == 0 && cached != null && !useCached) {
+                        cached.getParentFile().mkdirs();
+                        opts.setOptimizedModelFilePath(cached.getAbsolutePath());
+                    }
+                    OrtSession s = env.createSession(loadPath, opts);
+                    sessions.add(s);
+                    idle.add(s);
+                }
+            }
+        } catch (OrtException e) {
+            close();
+            throw e;
+        }
+        this.inputNames = sessions.get(0).getInputNames();
+
+        this.waitTimer = Timer.builder("onnx.session.wait")
+                .description("Time spent waiting for a pooled ONNX session")
+                .tag("model", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("onnx.session.idle", idle, Collection::size)
+                .description("Idle sessions in the ONNX session pool")
+                .tag("model", name)
+                .register(registry);
+
+        LOG.info("ONNX session pool '{}' loaded from {} ({})", name, loadPath, options);
+    }
+
+    private static File optimizedCacheFile(String modelPath, String name, String cacheDir) {
+        if (cacheDir == null || cacheDir.isBlank()) return null;
+        String file = new File(modelPath).getName().replaceFirst("\\.onnx$", "");
+        return new File(cacheDir, name + "-" + file + ".opt.onnx");
+    }
+
+    public Set<String> getInputNames() {
+        return inputNames;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Borrow a session; blocks while all sessions are busy. Always pair with release().
+     */
+    public OrtSession acquire() throws InterruptedException {
+        OrtSession s = idle.poll();
+        if (s != null) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return s;
+        }
+        long t0 = System.nanoTime();
+        s = idle.take();
+        waitTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return s;
+    }
+
+    public void release(OrtSession session) {
+        if (session != null) idle.offer(session);
+    }
+
+    @Override
+    public void close() throws OrtException {
+        for (OrtSession s : sessions) s.close();
+        sessions.clear();
+        idle.clear();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * PanamaVectorKernel - SIMD VectorKernel on jdk.incubator.vector, using the platform's preferred
+ * float species (8 lanes on AVX2, 16 on AVX-512). Needs --add-modules jdk.incubator.vector at
+ * compile and run time; VectorKernel.get() only loads this class when the module is present.
+ */
+final class PanamaVectorKernel implements VectorKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public String name() {
+        return "panama (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+
+    @Override
+    public float dot(float[] a, int aOff, float[] b, int bOff, int length) {
+        FloatVector acc0 = FloatVector.zero(SPECIES);
+        FloatVector acc1 = FloatVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int i = 0;
+        // two accumulators hide the fma latency
+        for (int bound = length - 2 * step; i <= bound; i += 2 * step) {
+            acc0 = FloatVector.fromArray(SPECIES, a, aOff + i).fma(FloatVector.fromArray(SPECIES, b, bOff + i), acc0);
+            acc1 = FloatVector.fromArray(SPECIES, a, aOff + i + step).fma(FloatVector.fromArray(SPECIES, b, bOff + i + step), acc1);
+        }
+        for (int bound = SPECIES.loopBound(length); i < bound; i += step) {
+            acc0 = FloatVector.fromArray(SPECIES, a, aOff + i).fma(FloatVector.fromArray(SPECIES, b, bOff + i), acc0);
+        }
+        float s = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) s += a[aOff + i] * b[bOff + i];
+        return s;
+    }
+
+    @Override
+    public float dot(ByteBuffer buf, int byteOff, float[] b, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += step) {
+            FloatVector v = FloatVector.fromByteBuffer(SPECIES, buf, byteOff + i * Float.BYTES, ByteOrder.LITTLE_ENDIAN);
+            acc = v.fma(FloatVector.fromArray(SPECIES, b, i), acc);
+        }
+        float s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) s += buf.getFloat(byteOff + i * Float.BYTES) * b[i];
+        return s;
+    }
+
+    @Override
+    public void scale(float[] a, float factor) {
+        int step = SPECIES.length();
+        int i = 0;
+        for (int bound = SPECIES.loopBound(a.length); i < bound; i += step) {
+            FloatVector.fromArray(SPECIES, a, i).mul(factor).intoArray(a, i);
+        }
+        for (; i < a.length; i++) a[i] *= factor;
+    }
+}
@@ -9,12 +9,18 @@ import java.util.stream.Collectors;
  */
 public class PromptBuilder {
     private final TokenizerUtil tokenizer;
+    private final ChunkTokenStore chunkTokens; // may be null: fall back to tokenizing chunk bodies
     private final int maxTotalTokens;
     private final int reservedForAnswer;
     private final int overheadTokens;
 
     public PromptBuilder(String modelPath, int maxTotalTokens, int reservedForAnswer, int overheadTokens) {
+        this(modelPath, maxTotalTokens, reservedForAnswer, overheadTokens, null);
+    }
+
+    public PromptBuilder(String modelPath, int maxTotalTokens, int reservedForAnswer, int overheadTokens, ChunkTokenStore chunkTokens) {
         this.tokenizer = new TokenizerUtil(modelPath);
+        this.chunkTokens = chunkTokens;
         this.maxTotalTokens = maxTotalTokens;
         this.reservedForAnswer = reservedForAnswer;
         this.overheadTokens = overheadTokens;
@@ -40,8 +46,8 @@ public class PromptBuilder {
             String header = String.format("[CHUNK id=%s type=%s]\n", c.getChunkId(), safeType(c.getChunkType()));
             String body = c.getText() == null ? "" : c.getText();
             // compute tokens for header + body (approx)
-            int headerTok = tokenizer.countTokens(header);
-            int bodyTok = tokenizer.countTokens(body);
+            int headerTok = countTokens(header);
+            int bodyTok = countBodyTokens(c, body);
             if (used + headerTok + bodyTok <= available) {
                 // include full chunk
                 evidence.append(header).append(body).append("\n[/CHUNK]\n\n");
@@ -53,7 +59,7 @@ public class PromptBuilder {
                 int remainingTokens = Math.max(0, available - used - headerTok);
                 int charBudget = Math.max(80, remainingTokens * 4); // conservative
                 String trimmed = tokenizer.truncateHeadTailPreserveFacts(body, charBudget);
-                int trimmedTok = tokenizer.countTokens(trimmed);
+                int trimmedTok = countTokens(trimmed);
                 if (trimmedTok + headerTok <= (available - used) && trimmed.length() > 0) {
                     evidence.append(header).append(trimmed).append("\n[/CHUNK]\n\n");
                     used += headerTok + trimmedTok;
@@ -123,8 +129,8 @@ public class PromptBuilder {
             if (included >= contextK) break;
             String header = String.format("[CHUNK id=%s type=%s]\n", c.getChunkId(), safeType(c.getChunkType()));
             String body = c.getText() == null ? "" : c.getText();
-            int headerTok = tokenizer.countTokens(header);
-            int bodyTok = tokenizer.countTokens(body);
+            int headerTok = countTokens(header);
+            int bodyTok = countBodyTokens(c, body);
             if (used + headerTok + bodyTok <= available) {
                 evidence.append(header).append(body).append("\n[/CHUNK]\n\n");
                 used += headerTok + bodyTok;
@@ -133,7 +139,7 @@ public class PromptBuilder {
                 int remainingTokens = Math.max(0, available - used - headerTok);
                 int charBudget = Math.max(80, remainingTokens * 4);
                 String trimmed = tokenizer.truncateHeadTailPreserveFacts(body, charBudget);
-                int trimmedTok = tokenizer.countTokens(trimmed);
+                int trimmedTok = countTokens(trimmed);
                 if (trimmedTok + headerTok <= (available - used) && trimmed.length() > 0) {
                     evidence.append(header).append(trimmed).append("\n[/CHUNK]\n\n");
                     used += headerTok + trimmedTok;
@@ -178,6 +184,18 @@ public class PromptBuilder {
         return prompt.toString();
     }
 
+    // chunk bodies are counted from the pre-tokenized store when available
+    private int countBodyTokens(DbChunk c, String body) {
+        if (chunkTokens != null && c.getChunkId() != null) return chunkTokens.tokenCount(c.getChunkId(), body);
+        return countTokens(body);
+    }
+
+    // every part of the budget is counted one way: with the store's tokenizer when there is a store
+    // (its cached chunk counts come from it), otherwise with TokenizerUtil
+    private int countTokens(String text) {
+        return chunkTokens != null ? chunkTokens.tokenCount(text) : tokenizer.countTokens(text);
+    }
+
     private String safeType(String t) {
         return t == null ? "unknown" : t.replaceAll("\\s+", "_");
     }
@@ -5,13 +5,18 @@ import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
-public class QdrantClient {
-    private final OkHttpClient http = new OkHttpClient();
+public class QdrantClient implements DenseIndex {
+    private final OkHttpClient http = HttpClients.qdrant();
     private final ObjectMapper M = new ObjectMapper();
     private final String baseUrl;
     private final String collection;
+    // expected vector length for the streaming decoder; tracks the collection's actual dimension
+    private volatile int dimHint = 768;
 
     public QdrantClient(String baseUrl, String collection) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length()-1) : baseUrl;
@@ -26,15 +31,20 @@ public class QdrantClient {
     }
 
     public List<Candidate> search(float[] vector, int topK, int ef) throws IOException {
+        return search(vector, topK, ef, true);
+    }
+
+    @Override
+    public List<Candidate> search(float[] vector, int topK, boolean withVector) throws IOException {
+        return search(vector, topK, Config.QDRANT_EF, withVector);
+    }
+
+    /**
+     * @param withVector false returns ids, scores and payload only (vectors then come from LocalVectorStore)
+     */
+    public List<Candidate> search(float[] vector, int topK, int ef, boolean withVector) throws IOException {
         String url = baseUrl + "/collections/" + collection + "/points/search";
-        ObjectNode body = M.createObjectNode();
-        body.set("vector", M.valueToTree(vector));
-        body.put("limit", topK);
-        body.put("with_payload", true);
-        body.put("with_vector", true);
-        ObjectNode params = M.createObjectNode();
-        params.put("ef", ef);
-        body.set("params", params);
+        ObjectNode body = searchRequest(vector, topK, ef, withVector);
 
         Request req = new Request.Builder()
                 .url(url)
@@ -43,27 +53,109 @@ public class QdrantClient {
 
         try (Response res = http.newCall(req).execute()) {
             if (!res.isSuccessful()) throw new IOException("Qdrant search failed: " + res.code() + " " + res.message());
-            JsonNode root = M.readTree(res.body().string());
-            JsonNode result = root.get("result");
-            List<Candidate> out = new ArrayList<>();
-            if (result != null && result.isArray()) {
-                for (JsonNode r : result) {
-                    Candidate c = new Candidate();
-                    c.id = r.get("id").asText();
-                    c.score = r.has("score") ? r.get("score").asDouble() : 0.0;
-                    c.payload = r.has("payload") ? M.convertValue(r.get("payload"), Map.class) : null;
-                    if (r.has("vector") && r.get("vector").isArray()) {
-                        JsonNode v = r.get("vector");
-                        float[] fv = new float[v.size()];
-                        for (int i = 0; i < v.size(); i++) fv[i] = (float) v.get(i).asDouble();
-                        c.vector = fv;
-                    } else {
-                        c.vector = null;
+            return decode(res);
+        }
+    }
+
+    /**
+     * Search many query vectors via /points/search/batch.
+     * Vectors are split into requests of Config.QDRANT_SEARCH_BATCH_SIZE searches, which are sent
+     * concurrently (async calls on the shared Qdrant dispatcher) rather than one after another.
+     *
+     * @return hit lists in the same order as vectors
+     */
+    public List<List<Candidate>> searchBatch(List<float[]> vectors, int topK, int ef) throws IOException {
+        return searchBatch(vectors, topK, ef, true);
+    }
+
+    @Override
+    public List<List<Candidate>> searchBatch(List<float[]> vectors, int topK, boolean withVector) throws IOException {
+        return searchBatch(vectors, topK, Config.QDRANT_EF, withVector);
+    }
+
+    public List<List<Candidate>> searchBatch(List<float[]> vectors, int topK, int ef, boolean withVector) throws IOException {
+        if (vectors == null || vectors.isEmpty()) return Collections.emptyList();
+        String url = baseUrl + "/collections/" + collection + "/points/search/batch";
+        int batchSize = Math.max(1, Config.QDRANT_SEARCH_BATCH_SIZE);
+
+        List<CompletableFuture<List<List<Candidate>>>> pending = new ArrayList<>();
+        for (int from = 0; from < vectors.size(); from += batchSize) {
+            List<float[]> slice = vectors.subList(from, Math.min(from + batchSize, vectors.size()));
+            ObjectNode body = M.createObjectNode();
+            var searches = body.putArray("searches");
+            for (float[] v : slice) searches.add(searchRequest(v, topK, ef, withVector));
+
+            Request req = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(body.toString(), MediaType.parse("application/json")))
+                    .build();
+            pending.add(enqueue(req, slice.size()));
+        }
+
+        List<List<Candidate>> out = new ArrayList<>(vectors.size());
+        try {
+            for (CompletableFuture<List<List<Candidate>>> f : pending) out.addAll(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(f -> f.cancel(true));
+            throw new IOException("Interrupted during Qdrant batch search", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException("Qdrant batch search failed", cause);
+        }
+        return out;
+    }
+
+    private CompletableFuture<List<List<Candidate>>> enqueue(Request req, int expected) {
+        CompletableFuture<List<List<Candidate>>> future = new CompletableFuture<>();
+        http.newCall(req).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response res) {
+                try (res) {
+                    if (!res.isSuccessful()) throw new IOException("Qdrant batch search failed: " + res.code() + " " + res.message());
+                    List<List<Candidate>> hits = QdrantResponseDecoder.readBatch(res.body().byteStream(), dimHint);
+                    if (hits.size() != expected) {
+                        throw new IOException("Qdrant batch search returned " + hits.size() + " results for " + expected + " searches");
                     }
-                    out.add(c);
+                    future.complete(hits);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
                 }
             }
-            return out;
+        });
+        return future;
+    }
+
+    private ObjectNode searchRequest(float[] vector, int topK, int ef, boolean withVector) {
+        ObjectNode body = M.createObjectNode();
+        body.set("vector", M.valueToTree(vector));
+        body.put("limit", topK);
+        body.put("with_payload", true);
+        body.put("with_vector", withVector);
+        ObjectNode params = M.createObjectNode();
+        params.put("ef", ef);
+        body.set("params", params);
+        return body;
+    }
+
+    /**
+     * Current points_count of the collection (used as the LocalVectorStore version).
+     */
+    public long getPointsCount() throws IOException {
+        Request req = new Request.Builder()
+                .url(baseUrl + "/collections/" + collection)
+                .get()
+                .build();
+        try (Response res = http.newCall(req).execute()) {
+            if (!res.isSuccessful()) throw new IOException("Qdrant collection info failed: " + res.code() + " " + res.message());
+            JsonNode count = M.readTree(res.body().byteStream()).path("result").path("points_count");
+            if (!count.canConvertToLong()) throw new IOException("Qdrant collection info has no points_count");
+            return count.asLong();
         }
     }
 
@@ -82,34 +174,46 @@ public class QdrantClient {
 
         try (Response res = http.newCall(req).execute()) {
             if (!res.isSuccessful()) throw new IOException("Qdrant getPoints failed: " + res.code() + " " + res.message());
-            JsonNode root = M.readTree(res.body().string());
-            JsonNode result = root.get("result");
             Map<String, Candidate> map = new HashMap<>();
-            if (result != null && result.has("points")) {
-                for (JsonNode p : result.get("points")) {
-                    Candidate c = new Candidate();
-                    c.id = p.get("id").asText();
-                    c.payload = p.has("payload") ? M.convertValue(p.get("payload"), Map.class) : null;
-                    if (p.has("vector") && p.get("vector").isArray()) {
-                        JsonNode v = p.get("vector");
-                        float[] fv = new float[v.size()];
-                        for (int i = 0; i < v.size(); i++) fv[i] = (float) v.get(i).asDouble();
-                        c.vector = fv;
-                    }
-                    map.put(c.id, c);
-                }
-            }
+            for (Candidate c : decode(res)) map.put(c.id, c);
             return map;
         }
     }
 
     /**
-     * Get points by chunk_id (payload field), not by Qdrant UUID.
-     * Uses scroll with filter to find points matching the given chunk_ids.
+     * Deterministic Qdrant point id for a chunk_id (name-based UUID of its UTF-8 bytes).
+     * EmbeddingUploader writes points under this id, so lookups can go by primary key.
      */
+    public static String pointIdForChunk(String chunkId) {
+        return UUID.nameUUIDFromBytes(chunkId.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Get points by chunk_id (payload field), keyed by chunk_id.
+     * Retrieves by the deterministic point ids first; only chunk_ids not found that way
+     * (e.g. points written under other ids) fall back to a payload-filter scroll.
+     */
+    @Override
     public Map<String, Candidate> getPointsByChunkIds(List<String> chunkIds) throws IOException {
         if (chunkIds == null || chunkIds.isEmpty()) return Collections.emptyMap();
-        
+
+        List<String> pointIds = new ArrayList<>(chunkIds.size());
+        for (String cid : chunkIds) pointIds.add(pointIdForChunk(cid));
+        Map<String, Candidate> map = new HashMap<>();
+        for (Candidate c : getPoints(pointIds).values()) map.put(c.getChunkId(), c);
+
+        List<String> notFound = new ArrayList<>();
+        for (String cid : chunkIds) {
+            if (!map.containsKey(cid)) notFound.add(cid);
+        }
+        if (!notFound.isEmpty()) map.putAll(scrollByChunkIds(notFound));
+        return map;
+    }
+
+    /**
+     * Scroll with a payload filter on chunk_id; slower than retrieve-by-id, used as fallback.
+     */
+    private Map<String, Candidate> scrollByChunkIds(List<String> chunkIds) throws IOException {
         // Use scroll API with filter on payload.chunk_id
         String url = baseUrl + "/collections/" + collection + "/points/scroll";
         ObjectNode body = M.createObjectNode();
@@ -138,29 +242,18 @@ public class QdrantClient {
 
         try (Response res = http.newCall(req).execute()) {
             if (!res.isSuccessful()) throw new IOException("Qdrant scroll failed: " + res.code() + " " + res.message());
-            JsonNode root = M.readTree(res.body().string());
-            JsonNode result = root.get("result");
             Map<String, Candidate> map = new HashMap<>();
-            if (result != null && result.has("points")) {
-                for (JsonNode p : result.get("points")) {
-                    Candidate c = new Candidate();
-                    c.id = p.get("id").asText();
-                    c.payload = p.has("payload") ? M.convertValue(p.get("payload"), Map.class) : null;
-                    if (p.has("vector") && p.get("vector").isArray()) {
-                        JsonNode v = p.get("vector");
-                        float[] fv = new float[v.size()];
-                        for (int i = 0; i < v.size(); i++) fv[i] = (float) v.get(i).asDouble();
-                        c.vector = fv;
-                    }
-                    // Key by chunk_id from payload, not by Qdrant UUID
-                    String chunkId = c.payload != null && c.payload.containsKey("chunk_id") 
-                            ? c.payload.get("chunk_id").toString() 
-                            : c.id;
-                    map.put(chunkId, c);
-                }
-            }
+            // Key by chunk_id from payload, not by Qdrant UUID
+            for (Candidate c : decode(res)) map.put(c.getChunkId(), c);
             return map;
         }
     }
-}
 
+    private List<Candidate> decode(Response res) throws IOException {
+        List<Candidate> points = QdrantResponseDecoder.readPoints(res.body().byteStream(), dimHint);
+        for (Candidate c : points) {
+            if (c.vector != null) { dimHint = c.vector.length; break; }
+        }
+        return points;
+    }
+}
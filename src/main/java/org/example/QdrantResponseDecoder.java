@@ -0,0 +1,162 @@
+package org.example;
+
+import com.fasterxml.jackson.core.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * QdrantResponseDecoder - streaming decoder for Qdrant point responses.
+ *
+ * Walks the response with a JsonParser instead of building a JsonNode tree: vector elements are
+ * written straight into a float[] preallocated to the expected dimension, and only the payload
+ * fields in ChunkPayload are decoded; everything else is skipped without materializing it.
+ *
+ * Handles the result shapes:
+ *   search        {"result": [ {id, score, payload, vector}, ... ]}
+ *   points/scroll {"result": {"points": [ {id, payload, vector}, ... ], ...}}
+ *   search/batch  {"result": [ [ {id, score, payload, vector}, ... ], ... ]}  (readBatch)
+ */
+public final class QdrantResponseDecoder {
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+
+    private QdrantResponseDecoder() {}
+
+    /**
+     * Decode the points of a search, retrieve or scroll response.
+     *
+     * @param dimHint expected vector dimension; vectors of another length are still decoded correctly
+     */
+    public static List<Candidate> readPoints(InputStream in, int dimHint) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            return readPoints(p, dimHint);
+        }
+    }
+
+    public static List<Candidate> readPoints(byte[] json, int dimHint) throws IOException {
+        try (JsonParser p = JSON.createParser(json)) {
+            return readPoints(p, dimHint);
+        }
+    }
+
+    private static List<Candidate> readPoints(JsonParser p, int dimHint) throws IOException {
+        List<Candidate> out = new ArrayList<>();
+        expect(p.nextToken(), JsonToken.START_OBJECT, p);
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            if ("result".equals(field) && t == JsonToken.START_ARRAY) {
+                readPointArray(p, dimHint, out);
+            } else if ("result".equals(field) && t == JsonToken.START_OBJECT) {
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String inner = p.getCurrentName();
+                    JsonToken it = p.nextToken();
+                    if ("points".equals(inner) && it == JsonToken.START_ARRAY) readPointArray(p, dimHint, out);
+                    else p.skipChildren();
+                }
+            } else {
+                p.skipChildren();
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Decode a search/batch response: one hit list per search, in request order.
+     */
+    public static List<List<Candidate>> readBatch(InputStream in, int dimHint) throws IOException {
+        try (JsonParser p = JSON.createParser(in)) {
+            List<List<Candidate>> out = new ArrayList<>();
+            expect(p.nextToken(), JsonToken.START_OBJECT, p);
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken t = p.nextToken();
+                if ("result".equals(field) && t == JsonToken.START_ARRAY) {
+                    while (p.nextToken() == JsonToken.START_ARRAY) {
+                        List<Candidate> hits = new ArrayList<>();
+                        readPointArray(p, dimHint, hits);
+                        out.add(hits);
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return out;
+        }
+    }
+
+    // parser is on START_ARRAY; leaves it on the matching END_ARRAY
+    static void readPointArray(JsonParser p, int dimHint, List<Candidate> out) throws IOException {
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            out.add(readPoint(p, dimHint));
+        }
+    }
+
+    private static Candidate readPoint(JsonParser p, int dimHint) throws IOException {
+        Candidate c = new Candidate();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "id":
+                    c.id = p.getText(); // UUID string or unsigned integer id
+                    break;
+                case "score":
+                    c.score = p.getDoubleValue();
+                    break;
+                case "payload":
+                    c.payload = t == JsonToken.START_OBJECT ? readPayload(p) : null;
+                    break;
+                case "vector":
+                    // plain dense vector; null or named-vector objects are skipped
+                    if (t == JsonToken.START_ARRAY) c.vector = readVector(p, dimHint);
+                    else p.skipChildren();
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return c;
+    }
+
+    private static ChunkPayload readPayload(JsonParser p) throws IOException {
+        String chunkId = null, title = null, chunkType = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "chunk_id":
+                    chunkId = p.getValueAsString();
+                    break;
+                case "title":
+                    title = p.getValueAsString();
+                    break;
+                case "chunk_type":
+                    chunkType = p.getValueAsString();
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        return new ChunkPayload(chunkId, title, chunkType);
+    }
+
+    private static float[] readVector(JsonParser p, int dimHint) throws IOException {
+        float[] buf = new float[Math.max(dimHint, 16)];
+        int n = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (n == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[n++] = p.getFloatValue();
+        }
+        return n == buf.length ? buf : Arrays.copyOf(buf, n);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser p) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(p, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.example;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +22,22 @@ public class QueryResult {
         this.answer = answer;
     }
 
+    /**
+     * Copy with its own lists and retrieval-chain maps (cached results are handed out as copies).
+     */
+    public QueryResult copy() {
+        QueryResult c = new QueryResult(answer);
+        c.sources = sources == null ? null : new ArrayList<>(sources);
+        c.sql = sql;
+        if (retrievalChain != null) {
+            c.retrievalChain = new ArrayList<>(retrievalChain.size());
+            for (Map<String, Object> entry : retrievalChain) c.retrievalChain.add(new HashMap<>(entry));
+        }
+        c.confidence = confidence;
+        c.intent = intent;
+        return c;
+    }
+
     // Getters and setters
     public String getAnswer() { return answer; }
     public void setAnswer(String answer) { this.answer = answer; }
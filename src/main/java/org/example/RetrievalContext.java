@@ -0,0 +1,43 @@
+package org.example;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * RetrievalContext - per-request retrieval state created by RetrievalService.newContext().
+ *
+ * The query embedding and the dense top-TOPK_DENSE search start once, when the context is
+ * created; the confidence check, retrievalChain reporting and retrieve(ctx) all read the same
+ * futures, so a request costs one embedding and one dense search. The retrieval cache is checked
+ * once, at creation: on a hit (cached) BM25 never runs; on a miss it starts right away, in
+ * parallel with the embedding and dense search (the Lucene backend returns it with KNN).
+ */
+public final class RetrievalContext {
+    final String query;
+    final String cacheKey; // retrieval cache key: corpus epoch + normalized query, fixed when the request starts
+    final CompletableFuture<float[]> embedF;
+    final CompletableFuture<List<Candidate>> denseF;
+    final List<DbChunk> cached; // retrieval cache hit when the request started, else null
+    private final Supplier<CompletableFuture<List<Candidate>>> lexStart;
+    private CompletableFuture<List<Candidate>> lexF;
+
+    RetrievalContext(String query, String cacheKey, CompletableFuture<float[]> embedF, CompletableFuture<List<Candidate>> denseF,
+                     List<DbChunk> cached, Supplier<CompletableFuture<List<Candidate>>> lexStart) {
+        this.query = query;
+        this.cacheKey = cacheKey;
+        this.embedF = embedF;
+        this.denseF = denseF;
+        this.cached = cached;
+        this.lexStart = lexStart;
+    }
+
+    synchronized CompletableFuture<List<Candidate>> lexical() {
+        if (lexF == null) lexF = lexStart.get();
+        return lexF;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+}
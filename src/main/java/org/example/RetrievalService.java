@@ -1,7 +1,11 @@
 package org.example;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.example.dto.ConversationTurn;
 import org.example.llm.LLMFactory;
@@ -15,17 +19,31 @@ public class RetrievalService {
     private static final int HISTORY_MAX_CHARS_PER_ENTRY = 800;
 
     private final OnnxEmbedder embedder;
+    private final EmbeddingBatcher embedBatcher;
     private final QdrantClient qdrant;
+    private volatile DenseIndex denseIndex; // qdrant, an in-process HnswIndex (rebuilt per store version), or lucene (DENSE_BACKEND)
     private final LuceneIndexService lucene;
     private final CrossEncoderScorer crossEncoder;
     private final DataFetcher dbFetcher;
     private final LLMProvider llm;  // Now uses interface for plug-in support
     private final PromptBuilder promptBuilder;
-    private final LruCache<String, float[]> embedCache = new LruCache<>(1000);
-    private final LruCache<String, List<DbChunk>> retrCache = new LruCache<>(500);
+    private volatile LocalVectorStore vectorStore; // null: dense search returns vectors from Qdrant; re-checked per corpus epoch
+    private final LuceneIncrementalIndexer luceneIndexer; // null unless LUCENE_INCREMENTAL_SECONDS > 0
+    private final CorpusEpoch corpusEpoch; // prefix of retrieval and answer cache keys
+    private final MappedEmbeddingCache embedCache = new MappedEmbeddingCache(
+            Config.EMBED_CACHE_FILE.isBlank() ? null : Paths.get(Config.EMBED_CACHE_FILE),
+            Config.EMBED_CACHE_MAX_ENTRIES, MappedEmbeddingCache.modelId(Config.modelFile(Config.EMBED_MODEL_PATH)));
+    private final BoundedCache<String, List<DbChunk>> retrCache =
+            new BoundedCache<>("retrieval", Config.RETRIEVAL_CACHE_MAX_ENTRIES, Duration.ofSeconds(Config.RETRIEVAL_CACHE_TTL_SECONDS));
+    private final SemanticAnswerCache<QueryResult> answerCache = Config.ANSWER_CACHE_MAX_ENTRIES <= 0 ? null
+            : new SemanticAnswerCache<>("answer", Config.ANSWER_CACHE_MAX_ENTRIES, Config.ANSWER_CACHE_SIMILARITY,
+                    Duration.ofSeconds(Config.ANSWER_CACHE_TTL_SECONDS));
+    private final FusionStrategy fusion = Config.fusionStrategy();
+    private final ExecutorService retrievalPool = newRetrievalPool(Config.RETRIEVAL_THREADS);
 
     public RetrievalService(OnnxEmbedder embedder, QdrantClient qdrant, LuceneIndexService lucene, CrossEncoderScorer crossEncoder, DataFetcher dbFetcher) {
         this.embedder = embedder;
+        this.embedBatcher = new EmbeddingBatcher(embedder, Config.EMBED_BATCH_WINDOW_MS, Config.EMBED_BATCH_MAX, Config.EMBED_BATCH_WORKERS);
         this.qdrant = qdrant;
         this.lucene = lucene;
         this.crossEncoder = crossEncoder;
@@ -35,8 +53,93 @@ public class RetrievalService {
             Config.CROSS_ENCODER_ONNX_DIR,
             Config.PROMPT_MAX_TOKENS,
             Config.PROMPT_RESERVED_ANSWER,
-            Config.PROMPT_OVERHEAD
+            Config.PROMPT_OVERHEAD,
+            crossEncoder.getTokenStore()
         );
+        this.luceneIndexer = startIncrementalIndexer(lucene, qdrant, dbFetcher);
+        this.corpusEpoch = CorpusEpoch.fromDatabase().start(Config.CORPUS_EPOCH_POLL_SECONDS);
+        lucene.onReopen(corpusEpoch::advanceLocal);
+        lucene.open(); // warm the BM25 searcher before the first request
+        this.denseIndex = selectDenseIndex(qdrant, lucene);
+        this.vectorStore = Config.QDRANT_WITH_VECTOR ? null
+                : LocalVectorStore.openVerified(Paths.get(Config.LOCAL_VECTOR_STORE), qdrant, CorpusEpoch.vectorsVersionFromDatabase());
+        if (!Config.QDRANT_WITH_VECTOR && vectorStore == null) {
+            LOG.warn("QDRANT_WITH_VECTOR=false but no valid local vector store; requesting vectors from Qdrant");
+        }
+        corpusEpoch.onChange(this::recheckVectorStore);
+        corpusEpoch.onChange(this::rebuildHnswIndex);
+    }
+
+    /**
+     * After an ingestion run: keep the local vector store if it is still the recorded version,
+     * otherwise load the current file (or fall back to Qdrant vectors if it is stale too).
+     */
+    private synchronized void recheckVectorStore() {
+        if (Config.QDRANT_WITH_VECTOR) return;
+        Long expected = CorpusEpoch.vectorsVersionFromDatabase();
+        LocalVectorStore current = vectorStore;
+        if (current != null && expected != null && current.version() == expected) return;
+        vectorStore = LocalVectorStore.openVerified(Paths.get(Config.LOCAL_VECTOR_STORE), qdrant, expected);
+        if (vectorStore == null) LOG.warn("No valid local vector store after corpus change; requesting vectors from Qdrant");
+    }
+
+    /**
+     * After an ingestion run with DENSE_BACKEND=hnsw: build a graph over the new store if the file
+     * changed (or fall back to Qdrant if it is stale), and swap it in; searches use the previous
+     * graph until the build finishes.
+     */
+    private synchronized void rebuildHnswIndex() {
+        if (!"hnsw".equalsIgnoreCase(Config.DENSE_BACKEND.trim())) return;
+        DenseIndex current = denseIndex;
+        try {
+            long version = LocalVectorStore.readVersion(Paths.get(Config.LOCAL_VECTOR_STORE));
+            if (current instanceof HnswIndex && ((HnswIndex) current).storeVersion() == version) return;
+        } catch (IOException e) {
+            LOG.warn("DENSE_BACKEND=hnsw: {} unreadable after corpus change ({}); keeping the current index",
+                    Config.LOCAL_VECTOR_STORE, e.getMessage());
+            return;
+        }
+        denseIndex = selectDenseIndex(qdrant, lucene);
+    }
+
+    private static LuceneIncrementalIndexer startIncrementalIndexer(LuceneIndexService lucene, QdrantClient qdrant,
+                                                                    DataFetcher dbFetcher) {
+        if (Config.LUCENE_INCREMENTAL_SECONDS <= 0) return null;
+        try {
+            DenseIndex vectors = lucene.hasVectors() ? qdrant : null;
+            return new LuceneIncrementalIndexer(lucene, vectors, dbFetcher, Config.LUCENE_INCREMENTAL_BATCH,
+                    Config.LUCENE_COMMIT_SECONDS).start(Config.LUCENE_INCREMENTAL_SECONDS);
+        } catch (Exception e) {
+            LOG.warn("Incremental Lucene indexing disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static DenseIndex selectDenseIndex(QdrantClient qdrant, LuceneIndexService lucene) {
+        String backend = Config.DENSE_BACKEND.trim();
+        if ("lucene".equalsIgnoreCase(backend)) {
+            if (lucene.hasVectors()) {
+                LOG.info("Dense backend: Lucene KNN field in {}", Config.LUCENE_INDEX_DIR);
+                return lucene;
+            }
+            LOG.warn("DENSE_BACKEND=lucene but {} has no KNN vectors (run LuceneReindexer); using Qdrant", Config.LUCENE_INDEX_DIR);
+            return qdrant;
+        }
+        if (!"hnsw".equalsIgnoreCase(backend)) return qdrant;
+        long t0 = System.nanoTime();
+        // same check as the vector store: never build a graph over vectors from an older upload
+        LocalVectorStore store = LocalVectorStore.openVerified(Paths.get(Config.LOCAL_VECTOR_STORE), qdrant,
+                CorpusEpoch.vectorsVersionFromDatabase());
+        if (store == null) {
+            LOG.warn("DENSE_BACKEND=hnsw but {} is missing or stale (rerun EmbeddingUploader); using Qdrant",
+                    Config.LOCAL_VECTOR_STORE);
+            return qdrant;
+        }
+        HnswIndex index = HnswIndex.build(store, Config.HNSW_M, Config.HNSW_EF_CONSTRUCTION, Config.HNSW_EF_SEARCH);
+        LOG.info("Dense backend: HNSW over {} vectors (M={}, efConstruction={}, efSearch={}) built in {} ms",
+                index.size(), Config.HNSW_M, Config.HNSW_EF_CONSTRUCTION, Config.HNSW_EF_SEARCH,
+                (System.nanoTime() - t0) / 1_000_000);
+        return index;
     }
 
     /**
@@ -51,140 +154,310 @@ public class RetrievalService {
      */
     public static RetrievalService createDefault() throws Exception {
         OnnxEmbedder embedder = new OnnxEmbedder(
-            Config.EMBED_MODEL_PATH + "/model.onnx",
+            Config.modelFile(Config.EMBED_MODEL_PATH),
             Config.EMBED_MODEL_PATH,
-            384
+            384,
+            Config.onnxPoolOptions()
         );
         QdrantClient qdrant = new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION);
-        LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR);
+        LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR, Config.luceneOptions());
         CrossEncoderScorer cross = new CrossEncoderScorer(embedder);
         DataFetcher db = new DataFetcher();
         return new RetrievalService(embedder, qdrant, lucene, cross, db);
     }
 
     /**
-     * Merge dense and lexical candidates, dedupe by chunk_id, fetch missing vectors.
+     * Fuse dense and lexical candidates (one per chunk_id), keep the best topN (0: all) and fetch
+     * their missing vectors: from the local store first, then by chunk_id from the index. Only
+     * lexical-only hits that survive the cut need a vector fetch.
      */
-    public static List<Candidate> mergeAndDedupe(List<Candidate> dense, List<String> lexIds, QdrantClient qdrant) throws IOException {
-        LinkedHashMap<String, Candidate> map = new LinkedHashMap<>();
-        // Key by chunk_id from payload (for dense results) or id (for lex results)
-        for (Candidate c : dense) {
-            String key = (c.payload != null && c.payload.get("chunk_id") != null) 
-                    ? c.payload.get("chunk_id").toString() 
-                    : c.id;
-            map.putIfAbsent(key, c);
-        }
-        for (String id : lexIds) {
-            map.computeIfAbsent(id, k -> {
-                Candidate shell = new Candidate();
-                shell.id = k;
-                shell.score = 0;
-                shell.vector = null;
-                shell.payload = null;
-                return shell;
-            });
-        }
-        // Fetch missing vectors by chunk_id
-        List<String> missing = map.values().stream()
+    public static List<Candidate> fuse(List<Candidate> dense, List<Candidate> lexical, FusionStrategy fusion, int topN,
+                                       DenseIndex index, LocalVectorStore store) throws IOException {
+        List<Candidate> fused = fusion.fuse(dense, lexical);
+        if (topN > 0 && fused.size() > topN) fused = new ArrayList<>(fused.subList(0, topN));
+        if (store != null) {
+            for (Candidate c : fused) {
+                if (c.vector == null) c.vector = store.get(c.getChunkId());
+            }
+        }
+        List<String> missing = fused.stream()
                 .filter(c -> c.vector == null)
-                .map(c -> c.id)
+                .map(Candidate::getChunkId)
                 .collect(Collectors.toList());
         if (!missing.isEmpty()) {
-            Map<String, Candidate> fetched = qdrant.getPointsByChunkIds(missing);
-            for (Candidate c : map.values()) {
-                String cid = c.id;
-                if (c.vector == null && fetched.containsKey(cid)) {
-                    c.vector = fetched.get(cid).vector;
-                    c.payload = fetched.get(cid).payload;
+            Map<String, Candidate> fetched = index.getPointsByChunkIds(missing);
+            for (Candidate c : fused) {
+                Candidate point = fetched.get(c.getChunkId());
+                if (c.vector == null && point != null) {
+                    c.vector = point.vector;
+                    if (c.payload == null) c.payload = point.payload;
                 }
             }
         }
-        return new ArrayList<>(map.values());
+        return fused;
     }
 
+    /**
+     * Hybrid retrieval as a graph of async stages on the retrieval pool:
+     *
+     *   embed ──> dense search ──> DB prefetch (top dense hits) ─────────────┐
+     *                  │                                                      v
+     *   BM25 ──────────┴──> fusion ──> MMR ──> fetch remaining rows ──> cross-encoder rerank
+     *
+     * BM25 does not need the embedding, so it runs alongside embed + dense search (with
+     * DENSE_BACKEND=lucene both come from one hybrid call after embedding instead). Rows for the
+     * top DB_PREFETCH_N dense hits are fetched while fusion and MMR run; afterwards only MMR picks
+     * outside that set are fetched. Latency approaches the slowest branch instead of the sum.
+     */
     public List<DbChunk> retrieve(String query) throws Exception {
-        String qkey = query.trim().toLowerCase();
-
-        // Check retrieval cache first
-        List<DbChunk> cached = retrCache.get(qkey);
+        // Check retrieval cache first (before starting any embedding or search)
+        String cacheKey = retrievalKey(corpusEpoch.tag(), query);
+        List<DbChunk> cached = retrCache.get(cacheKey);
         if (cached != null) {
             return cached;
         }
+        return retrieve(newContext(query, cacheKey, null));
+    }
+
+    /**
+     * retrieve() over a request's shared context: reuses its embedding and dense candidates.
+     */
+    public List<DbChunk> retrieve(RetrievalContext ctx) throws Exception {
+        if (ctx.cached != null) {
+            return ctx.cached;
+        }
+
+        long start = System.nanoTime();
+        List<DbChunk> context = await(rankAsync(ctx.query, ctx.cacheKey, ctx.embedF, ctx.denseF, ctx.lexical()));
+        System.out.println("[timing] retrieve total ms=" + ((System.nanoTime() - start) / 1_000_000));
+        return context;
+    }
+
+    /**
+     * Start the embedding and dense search for one request. Everything in the request that needs
+     * them (confidence check, retrieval chain, retrieve(ctx)) shares this context.
+     */
+    public RetrievalContext newContext(String query) {
+        String cacheKey = retrievalKey(corpusEpoch.tag(), query);
+        return newContext(query, cacheKey, retrCache.get(cacheKey));
+    }
+
+    // cached: the retrieval cache entry for cacheKey, or null on a miss (BM25 then starts now, not after the dense search)
+    private RetrievalContext newContext(String query, String cacheKey, List<DbChunk> cached) {
+        String qkey = query.trim().toLowerCase();
+        RetrievalContext ctx;
+        CompletableFuture<float[]> embedF = CompletableFuture.supplyAsync(() -> timed("embed", () -> embedQuery(query, qkey)), retrievalPool);
+        if (denseIndex == lucene) {
+            // the Lucene backend answers KNN and BM25 from the same searcher in one call
+            CompletableFuture<LuceneIndexService.HybridResult> hybridF = embedF.thenApplyAsync(qvec -> timed("hybrid knn+bm25 search",
+                    () -> RetryUtil.withRetry(() -> lucene.hybridSearch(query, qvec, Config.TOPK_DENSE, Config.TOPK_LEX, true), 3)), retrievalPool);
+            ctx = new RetrievalContext(query, cacheKey, embedF, hybridF.thenApply(h -> h.dense), cached, () -> hybridF.thenApply(h -> h.lexical));
+        } else {
+            CompletableFuture<List<Candidate>> denseF = embedF.thenApplyAsync(qvec -> timed("dense search",
+                    () -> RetryUtil.withRetry(() -> denseIndex.search(qvec, Config.TOPK_DENSE, vectorStore == null), 3)), retrievalPool);
+            ctx = new RetrievalContext(query, cacheKey, embedF, denseF, cached,
+                    () -> CompletableFuture.supplyAsync(() -> timed("bm25 search", () -> lexicalSearch(query)), retrievalPool));
+        }
+        if (cached == null) ctx.lexical();
+        return ctx;
+    }
+
+    /**
+     * Retrieve context for many queries at once (evaluation runs, bulk queries).
+     * Uncached queries are embedded as one ONNX batch and searched with a single Qdrant
+     * search/batch round-trip; each query then goes through the same BM25/merge/MMR/rerank
+     * stages as retrieve(), with the queries' stage graphs running concurrently.
+     *
+     * @return context lists in the same order as queries
+     */
+    public List<List<DbChunk>> retrieveBatch(List<String> queries) throws Exception {
+        List<CompletableFuture<List<DbChunk>>> pending = retrieveBatchAsync(queries);
+        List<List<DbChunk>> out = new ArrayList<>(pending.size());
+        for (CompletableFuture<List<DbChunk>> f : pending) out.add(await(f));
+        return out;
+    }
+
+    /**
+     * retrieveBatch() without waiting: the shared batch embedding and dense search run before this
+     * returns (a failure there fails the call), then each query's remaining stages complete or fail
+     * on their own future, so one bad query does not lose the others.
+     *
+     * @return one future per query, in the same order as queries
+     */
+    public List<CompletableFuture<List<DbChunk>>> retrieveBatchAsync(List<String> queries) throws Exception {
+        List<CompletableFuture<List<DbChunk>>> out = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        List<Integer> misses = new ArrayList<>();
+        String epoch = corpusEpoch.tag();
+        for (int i = 0; i < queries.size(); i++) {
+            List<DbChunk> cached = retrCache.get(retrievalKey(epoch, queries.get(i)));
+            if (cached != null) out.set(i, CompletableFuture.completedFuture(cached));
+            else misses.add(i);
+        }
+        if (misses.isEmpty()) return out;
+
+        // BM25 does not depend on the embeddings: start it for every miss now
+        List<CompletableFuture<List<Candidate>>> lexFs = new ArrayList<>();
+        for (int i : misses) {
+            String query = queries.get(i);
+            lexFs.add(CompletableFuture.supplyAsync(() -> timed("bm25 search", () -> lexicalSearch(query)), retrievalPool));
+        }
 
-        // 1) embedding with cache
+        // 1) embeddings: cache hits reused, the rest in one batch
         long t0 = System.nanoTime();
-        float[] qvec = embedCache.get(qkey);
-        if (qvec == null) {
-            qvec = embedder.embed(query);
-            embedCache.put(qkey, qvec);
+        float[][] qvecs = new float[misses.size()][];
+        List<String> toEmbed = new ArrayList<>();
+        List<Integer> toEmbedPos = new ArrayList<>();
+        for (int m = 0; m < misses.size(); m++) {
+            String q = queries.get(misses.get(m));
+            qvecs[m] = embedCache.get(q.trim().toLowerCase());
+            if (qvecs[m] == null) {
+                toEmbed.add(q);
+                toEmbedPos.add(m);
+            }
         }
-        System.out.println("[timing] embed ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        if (!toEmbed.isEmpty()) {
+            float[][] embedded = embedder.embed(toEmbed);
+            for (int j = 0; j < embedded.length; j++) {
+                int m = toEmbedPos.get(j);
+                qvecs[m] = embedded[j];
+                embedCache.put(toEmbed.get(j).trim().toLowerCase(), embedded[j]);
+            }
+        }
+        System.out.println("[timing] batch embed ms=" + ((System.nanoTime() - t0) / 1_000_000) + " queries=" + toEmbed.size());
 
-        // 2) dense retrieval with retry
+        // 2) one dense search round-trip for all misses
         t0 = System.nanoTime();
-        final float[] qvecFinal = qvec;
-        List<Candidate> dense = RetryUtil.withRetry(
-                () -> qdrant.search(qvecFinal, Config.TOPK_DENSE, Config.QDRANT_EF), 3);
-        System.out.println("[timing] qdrant search ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        List<float[]> vectors = Arrays.asList(qvecs);
+        List<List<Candidate>> dense = RetryUtil.withRetry(
+                () -> denseIndex.searchBatch(vectors, Config.TOPK_DENSE, vectorStore == null), 3);
+        System.out.println("[timing] dense batch search ms=" + ((System.nanoTime() - t0) / 1_000_000) + " queries=" + vectors.size());
 
-        // 3) BM25 lexical retrieval (may be empty if lucene index missing)
-        t0 = System.nanoTime();
-        List<String> lexIds;
-        try {
-            lexIds = lucene.search(query, Config.TOPK_LEX);
-        } catch (Exception e) {
-            // if lucene not built, ignore
-            lexIds = Collections.emptyList();
+        for (int m = 0; m < misses.size(); m++) {
+            String query = queries.get(misses.get(m));
+            out.set(misses.get(m), rankAsync(query, retrievalKey(epoch, query), CompletableFuture.completedFuture(qvecs[m]),
+                    CompletableFuture.completedFuture(dense.get(m)), lexFs.get(m)));
         }
-        System.out.println("[timing] bm25 search ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        return out;
+    }
 
-        // 4) merge & dedupe by chunk_id, fetch missing vectors
-        t0 = System.nanoTime();
-        List<Candidate> merged = mergeAndDedupe(dense, lexIds, qdrant);
-        System.out.println("[timing] merge+dedupe ms=" + ((System.nanoTime() - t0) / 1_000_000));
+    /**
+     * Stages after retrieval: fuse dense and BM25 hits (top FUSION_TOP_N), MMR, DB fetch (prefetched for top dense
+     * hits while MMR runs), cross-encoder rerank; caches the context.
+     */
+    private CompletableFuture<List<DbChunk>> rankAsync(String query, String cacheKey, CompletableFuture<float[]> embedF,
+                                                       CompletableFuture<List<Candidate>> denseF,
+                                                       CompletableFuture<List<Candidate>> lexF) {
+        // DB rows for the best dense hits: MMR mostly picks from these
+        CompletableFuture<Map<String, DbChunk>> prefetchF = denseF.thenApplyAsync(dense -> timed("db prefetch", () -> {
+            List<String> ids = dense.stream()
+                    .limit(Config.DB_PREFETCH_N)
+                    .map(Candidate::getChunkId)
+                    .collect(Collectors.toList());
+            return RetryUtil.withRetry(() -> dbFetcher.fetchChunks(ids), 3);
+        }), retrievalPool);
 
-        // 5) MMR pick
-        t0 = System.nanoTime();
-        List<Candidate> mmrSelected = MMR.rerank(merged, qvec, Config.MMR_FINAL_SIZE, Config.MMR_LAMBDA);
-        System.out.println("[timing] mmr ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        // fuse by chunk_id, cut to FUSION_TOP_N, fetch missing vectors
+        CompletableFuture<List<Candidate>> mergedF = denseF.thenCombineAsync(lexF, (dense, lexical) -> timed("fusion",
+                () -> fuse(dense, lexical, fusion, Config.FUSION_TOP_N, denseIndex, vectorStore)), retrievalPool);
 
-        // 7) fetch full chunk rows from DB using chunk_id from payload (not the Qdrant UUID)
-        t0 = System.nanoTime();
-        List<String> chunkIds = mmrSelected.stream()
-                .map(c -> c.payload != null && c.payload.containsKey("chunk_id") 
-                        ? c.payload.get("chunk_id").toString() 
-                        : c.id)
-                .collect(Collectors.toList());
-        Map<String, DbChunk> rows = RetryUtil.withRetry(() -> dbFetcher.fetchChunks(chunkIds), 3);
-        System.out.println("[timing] db fetch ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        // MMR pick
+        CompletableFuture<List<Candidate>> mmrF = mergedF.thenCombineAsync(embedF, (merged, qvec) -> timed("mmr",
+                () -> MMR.rerank(merged, qvec, Config.MMR_FINAL_SIZE, Config.MMR_LAMBDA)), retrievalPool);
 
-        // 8) cross-encoder rerank on mmrSelected (top RERANK_TOP_N)
-        t0 = System.nanoTime();
-        List<DbChunk> mmrChunksOrdered = mmrSelected.stream()
-                .map(c -> {
-                    String chunkId = c.payload != null && c.payload.containsKey("chunk_id") 
-                            ? c.payload.get("chunk_id").toString() 
-                            : c.id;
-                    return rows.get(chunkId);
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        List<DbChunk> toRerank = mmrChunksOrdered.size() > Config.RERANK_TOP_N ? mmrChunksOrdered.subList(0, Config.RERANK_TOP_N) : mmrChunksOrdered;
+        return mmrF.thenCombineAsync(prefetchF, (mmrSelected, prefetched) -> timed("db fetch + cross-encoder", () -> {
+            // fetch full chunk rows from DB using chunk_id from payload (not the Qdrant UUID); most are prefetched
+            Map<String, DbChunk> rows = new HashMap<>(prefetched);
+            List<String> remaining = mmrSelected.stream()
+                    .map(Candidate::getChunkId)
+                    .filter(cid -> !rows.containsKey(cid))
+                    .collect(Collectors.toList());
+            if (!remaining.isEmpty()) {
+                rows.putAll(RetryUtil.withRetry(() -> dbFetcher.fetchChunks(remaining), 3));
+            }
 
-        Map<String, Float> rerankScores = crossEncoder.scoreBatch(query, toRerank);
-        System.out.println("[timing] cross-encoder ms=" + ((System.nanoTime() - t0) / 1_000_000));
+            // cross-encoder rerank on mmrSelected (top RERANK_TOP_N)
+            List<DbChunk> mmrChunksOrdered = mmrSelected.stream()
+                    .map(c -> rows.get(c.getChunkId()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            List<DbChunk> toRerank = mmrChunksOrdered.size() > Config.RERANK_TOP_N ? mmrChunksOrdered.subList(0, Config.RERANK_TOP_N) : mmrChunksOrdered;
 
-        // sort by score desc
-        toRerank.sort((a,b) -> Float.compare(rerankScores.getOrDefault(b.getChunkId(), 0f), rerankScores.getOrDefault(a.getChunkId(), 0f)));
+            Map<String, Float> rerankScores = crossEncoder.scoreBatch(query, toRerank);
 
-        // 9) final top N -> pick context_k
-        List<DbChunk> finalList = toRerank.stream().limit(Config.RERANK_FINAL_N).collect(Collectors.toList());
-        List<DbChunk> context = finalList.stream().limit(Config.CONTEXT_K).collect(Collectors.toList());
+            // sort by score desc
+            toRerank.sort((a,b) -> Float.compare(rerankScores.getOrDefault(b.getChunkId(), 0f), rerankScores.getOrDefault(a.getChunkId(), 0f)));
 
-        // Cache the result
-        retrCache.put(qkey, context);
+            // final top N -> pick context_k
+            List<DbChunk> finalList = toRerank.stream().limit(Config.RERANK_FINAL_N).collect(Collectors.toList());
+            List<DbChunk> context = finalList.stream().limit(Config.CONTEXT_K).collect(Collectors.toList());
 
-        return context;
+            // Cache the result
+            retrCache.put(cacheKey, context);
+            return context;
+        }), retrievalPool);
+    }
+
+    // retrieval results are only reused within the corpus epoch they were computed in
+    private static String retrievalKey(String epoch, String query) {
+        return epoch + "|" + query.trim().toLowerCase();
+    }
+
+    private float[] embedQuery(String query, String qkey) throws Exception {
+        float[] qvec = embedCache.get(qkey);
+        if (qvec == null) {
+            qvec = embedBatcher.embed(query);
+            embedCache.put(qkey, qvec);
+        }
+        return qvec;
+    }
+
+    // BM25 lexical retrieval (empty if the lucene index is missing)
+    private List<Candidate> lexicalSearch(String query) {
+        try {
+            return lucene.searchScored(query, Config.TOPK_LEX);
+        } catch (Exception e) {
+            // if lucene not built, ignore
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Run one pipeline stage, logging its duration; checked exceptions surface through the future.
+     */
+    private static <T> T timed(String stage, Callable<T> body) {
+        long t0 = System.nanoTime();
+        try {
+            return body.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            System.out.println("[timing] " + stage + " ms=" + ((System.nanoTime() - t0) / 1_000_000));
+        }
+    }
+
+    // join a stage graph, rethrowing the original failure
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            if (cause instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private static ExecutorService newRetrievalPool(int threads) {
+        AtomicInteger threadId = new AtomicInteger();
+        // bounded queue; under overload the submitting thread runs the stage itself
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 32), r -> {
+            Thread t = new Thread(r, "retrieval-" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     /**
@@ -209,6 +482,11 @@ public class RetrievalService {
      * Uses pure semantic retrieval regardless of intent.
      */
     public QueryResult askRagOnly(String query) throws Exception {
+        if (IntentClassifier.isGreeting(query)) return answerRagOnly(query);
+        return cachedAnswer(query, "RAG-ONLY", () -> answerRagOnly(query));
+    }
+
+    private QueryResult answerRagOnly(String query) throws Exception {
         QueryResult result = new QueryResult();
         
         // Check for greetings first
@@ -228,7 +506,8 @@ public class RetrievalService {
         List<String> sourceIds = new ArrayList<>();
         
         // Run dense + BM25 + cross-encoder (full RAG pipeline, no SQL)
-        List<Candidate> candidates = denseRetrieveCandidates(query);
+        RetrievalContext rctx = newContext(query);
+        List<Candidate> candidates = denseRetrieveCandidates(rctx);
         for (Candidate c : candidates) {
             Map<String, Object> entry = new HashMap<>();
             entry.put("id", c.id);
@@ -240,7 +519,7 @@ public class RetrievalService {
         double topScore = candidates.isEmpty() ? 0.0 : candidates.get(0).score;
         
         // Retrieve context using full hybrid pipeline
-        List<DbChunk> context = retrieve(query);
+        List<DbChunk> context = retrieve(rctx);
         for (DbChunk c : context) sourceIds.add(c.getChunkId());
         
         // Generate answer with LLM
@@ -260,8 +539,53 @@ public class RetrievalService {
     /**
      * Full RAG pipeline with metadata for UI display.
      * Returns structured QueryResult with answer, sources, SQL, retrieval chain, etc.
+     * Without conversation history, a near-identical earlier question with the same intent is
+     * answered from the semantic answer cache, unless the query may be answered from live SQL.
      */
     public QueryResult askWithMetadata(String query, List<ConversationTurn> history) throws Exception {
+        IntentClassifier.Intent intent = IntentClassifier.classify(query);
+        // an answer that depends on earlier turns or on the current SQL tables is not reusable
+        if ((history != null && !history.isEmpty()) || IntentClassifier.isGreeting(query) || mayAnswerFromSql(intent, query)) {
+            return answerWithMetadata(query, history);
+        }
+        return cachedAnswer(query, intent.name(), () -> answerWithMetadata(query, history));
+    }
+
+    /**
+     * True if answerWithMetadata's keyword routing could send this query to a SQL lookup (course or
+     * topic listings, learned_at ranges, class counts). Those answers reflect the SQL tables at the
+     * time of the request, which the corpus epoch does not track, so they are never cached.
+     */
+    static boolean mayAnswerFromSql(IntentClassifier.Intent intent, String query) {
+        if (intent != IntentClassifier.Intent.FACTUAL && intent != IntentClassifier.Intent.MIXED) return false;
+        String q = query.toLowerCase();
+        boolean listing = q.contains("what") || q.contains("list") || q.contains("all");
+        if (listing && (q.contains("course") || q.contains("topic"))) return true;
+        return extractTopicId(query) != null && (q.contains("when") || q.contains("how many") || q.contains("count"));
+    }
+
+    /**
+     * Answer from the semantic cache if a similar question in the same scope was answered, else compute and cache.
+     * The scope is the corpus epoch, the intent and any topic id in the query: answers from before a reindex
+     * are never reused, and questions differing only in topic never match. Callers get copies, so
+     * a caller modifying its QueryResult never changes the cached one.
+     */
+    private QueryResult cachedAnswer(String query, String intent, Callable<QueryResult> compute) throws Exception {
+        if (answerCache == null) return compute.call();
+        String topicId = extractTopicIdFromQuery(query);
+        String scope = corpusEpoch.tag() + "|" + (topicId == null ? intent : intent + "|" + topicId);
+        float[] qvec = embedQuery(query, query.trim().toLowerCase());
+        QueryResult cached = answerCache.get(qvec, scope);
+        if (cached != null) {
+            LOG.info("Answer cache hit (scope {})", scope);
+            return cached.copy();
+        }
+        QueryResult result = compute.call();
+        if (result.getSql() == null) answerCache.put(qvec, scope, result.copy()); // SQL-backed: see mayAnswerFromSql
+        return result;
+    }
+
+    private QueryResult answerWithMetadata(String query, List<ConversationTurn> history) throws Exception {
         QueryResult result = new QueryResult();
         final String conversationHistory = buildConversationHistory(history);
         
@@ -386,7 +710,8 @@ public class RetrievalService {
                 result.setConfidence("high");
                 return result;
             } else {
-                List<Candidate> candidates = denseRetrieveCandidates(query);
+                RetrievalContext rctx = newContext(query);
+                List<Candidate> candidates = denseRetrieveCandidates(rctx);
                 for (Candidate c : candidates) {
                     Map<String, Object> entry = new HashMap<>();
                     entry.put("id", c.id);
@@ -399,7 +724,7 @@ public class RetrievalService {
                 if (topScore < Config.RAG_SCORE_FALLBACK_THRESHOLD) {
                     // Borderline / low semantic evidence: rather than a terse "don't have it",
                     // generate a RAG-based answer but mark it as low confidence and include a disclaimer.
-                    List<DbChunk> ctx = retrieve(query);
+                    List<DbChunk> ctx = retrieve(rctx);
                     for (DbChunk c : ctx) sourceIds.add(c.getChunkId());
 
                     String prompt = promptBuilder.buildLenientPrompt(ctx, query, Config.CONTEXT_K, conversationHistory);
@@ -416,7 +741,7 @@ public class RetrievalService {
                     return result;
                 }
 
-                List<DbChunk> context = retrieve(query);
+                List<DbChunk> context = retrieve(rctx);
                 for (DbChunk c : context) sourceIds.add(c.getChunkId());
 
                 String prompt = promptBuilder.buildPrompt(context, query, Config.CONTEXT_K, conversationHistory);
@@ -433,7 +758,8 @@ public class RetrievalService {
 
         // SEMANTIC path
         if (intent == IntentClassifier.Intent.SEMANTIC) {
-            List<Candidate> candidates = denseRetrieveCandidates(query);
+            RetrievalContext rctx = newContext(query);
+            List<Candidate> candidates = denseRetrieveCandidates(rctx);
             for (Candidate c : candidates) {
                 Map<String, Object> entry = new HashMap<>();
                 entry.put("id", c.id);
@@ -442,7 +768,7 @@ public class RetrievalService {
             }
             result.setRetrievalChain(retrievalChain);
             
-            List<DbChunk> context = retrieve(query);
+            List<DbChunk> context = retrieve(rctx);
             for (DbChunk c : context) sourceIds.add(c.getChunkId());
             
             String prompt = promptBuilder.buildPrompt(context, query, Config.CONTEXT_K, conversationHistory);
@@ -459,7 +785,8 @@ public class RetrievalService {
 
         // MIXED path
         if (intent == IntentClassifier.Intent.MIXED) {
-            List<Candidate> candidates = denseRetrieveCandidates(query);
+            RetrievalContext rctx = newContext(query);
+            List<Candidate> candidates = denseRetrieveCandidates(rctx);
             for (Candidate c : candidates) {
                 Map<String, Object> entry = new HashMap<>();
                 entry.put("id", c.id);
@@ -468,7 +795,7 @@ public class RetrievalService {
             }
             result.setRetrievalChain(retrievalChain);
             
-            List<DbChunk> context = retrieve(query);
+            List<DbChunk> context = retrieve(rctx);
             if (sqlChunk != null) {
                 List<DbChunk> merged = new ArrayList<>();
                 merged.add(sqlChunk);
@@ -597,11 +924,12 @@ public class RetrievalService {
                 return ans;
             } else {
                 // No SQL result: fall back to RAG retrieval and only return if evidence strong
-                List<Candidate> candidates = denseRetrieveCandidates(query);
+                RetrievalContext rctx = newContext(query);
+                List<Candidate> candidates = denseRetrieveCandidates(rctx);
                 double topScore = candidates.isEmpty() ? 0.0 : candidates.get(0).score;
                 if (topScore < Config.RAG_SCORE_FALLBACK_THRESHOLD) {
                     // Low semantic evidence: produce a best-effort RAG answer with disclaimer (lenient prompt)
-                    List<DbChunk> ctx = retrieve(query);
+                    List<DbChunk> ctx = retrieve(rctx);
                     String prompt = promptBuilder.buildLenientPrompt(ctx, query, Config.CONTEXT_K);
                     long t0 = System.nanoTime();
                     String ans = llm.generate(prompt, 300);
@@ -609,7 +937,7 @@ public class RetrievalService {
                     return "I couldn't find a matching authoritative record in your database. Based on semantic evidence (low confidence), here is what I found:\n\n" + ans;
                 }
                 // else run full RAG pipeline to generate explanation
-                List<DbChunk> context = retrieve(query);
+                List<DbChunk> context = retrieve(rctx);
                 String prompt = promptBuilder.buildPrompt(context, query, Config.CONTEXT_K);
                 long t0 = System.nanoTime();
                 String ans = llm.generate(prompt, 300);
@@ -666,6 +994,10 @@ public class RetrievalService {
      * Extract topic ID pattern like C<number>-T<number> from query.
      */
     String extractTopicIdFromQuery(String q) {
+        return extractTopicId(q);
+    }
+
+    private static String extractTopicId(String q) {
         if (q == null) return null;
         java.util.regex.Matcher m = java.util.regex.Pattern
             .compile("\\bC\\d+-T\\d+\\b", java.util.regex.Pattern.CASE_INSENSITIVE)
@@ -719,11 +1051,12 @@ public class RetrievalService {
     }
 
     /**
-     * Dense-only candidate fetch to check score for fallback threshold.
+     * Top dense candidates of the request's context, for the fallback threshold and retrieval chain.
      */
-    private List<Candidate> denseRetrieveCandidates(String query) throws Exception {
-        float[] qvec = embedder.embed(query);
-        return qdrant.search(qvec, 5, Config.QDRANT_EF);
+    private List<Candidate> denseRetrieveCandidates(RetrievalContext ctx) throws Exception {
+        List<Candidate> dense = await(ctx.denseF);
+        // a copy: merge+dedupe in retrieve(ctx) works on the same list
+        return new ArrayList<>(dense.subList(0, Math.min(5, dense.size())));
     }
 
     /**
@@ -0,0 +1,49 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ScalarVectorKernel - plain-Java VectorKernel, used when jdk.incubator.vector is not available.
+ * Four independent accumulators let the JIT pipeline (and partly auto-vectorize) the dot loops.
+ */
+final class ScalarVectorKernel implements VectorKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, int aOff, float[] b, int bOff, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOff + i] * b[bOff + i];
+            s1 += a[aOff + i + 1] * b[bOff + i + 1];
+            s2 += a[aOff + i + 2] * b[bOff + i + 2];
+            s3 += a[aOff + i + 3] * b[bOff + i + 3];
+        }
+        for (; i < length; i++) s0 += a[aOff + i] * b[bOff + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(ByteBuffer buf, int byteOff, float[] b, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            int p = byteOff + i * Float.BYTES;
+            s0 += buf.getFloat(p) * b[i];
+            s1 += buf.getFloat(p + 4) * b[i + 1];
+            s2 += buf.getFloat(p + 8) * b[i + 2];
+            s3 += buf.getFloat(p + 12) * b[i + 3];
+        }
+        for (; i < length; i++) s0 += buf.getFloat(byteOff + i * Float.BYTES) * b[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public void scale(float[] a, float factor) {
+        for (int i = 0; i < a.length; i++) a[i] *= factor;
+    }
+}
@@ -0,0 +1,169 @@
+package org.example;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * SemanticAnswerCache - final answers keyed by query embedding instead of query text.
+ *
+ * A lookup returns the cached answer whose query embedding is most similar to the new one, if
+ * the cosine similarity is at least threshold and the entry was stored under the same scope
+ * (RetrievalService uses the intent plus any topic id named in the query, so "how many classes
+ * for T1" never answers "... for T2", and prefixes the CorpusEpoch so answers from before a reindex
+ * are never reused). Entries expire ttl after they were written; invalidateAll() drops them all.
+ *
+ * Embeddings are kept unit length in one flat float[capacity*d] matrix and a lookup scores every
+ * row with VectorKernel.scoreRows: an exact nearest-neighbour scan, which for a few thousand
+ * cached answers takes well under a millisecond and needs no index maintenance on insert/expiry.
+ * Slots are reused round-robin, so when full the oldest entry is overwritten.
+ *
+ * Metrics (tag cache=name): cache.gets{result=hit|miss}, cache.puts, cache.size, and
+ * cache.answer.similarity (best similarity seen per lookup, hit or not, for tuning the threshold).
+ */
+public class SemanticAnswerCache<V> {
+    private final int capacity;
+    private final float threshold;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final VectorKernel kernel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dim = -1;           // set by the first put
+    private float[] matrix = new float[0];
+    private final String[] scopes;
+    private final Object[] values;
+    private final long[] written;
+    private int next;               // slot the next put overwrites
+    private int used;               // slots [0, used) have been written since the last invalidateAll
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final DistributionSummary similarity;
+
+    public SemanticAnswerCache(String name, int capacity, double threshold, Duration ttl) {
+        this(name, capacity, threshold, ttl, Metrics.globalRegistry, System::nanoTime);
+    }
+
+    SemanticAnswerCache(String name, int capacity, double threshold, Duration ttl, MeterRegistry registry,
+                        LongSupplier nanoClock) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.capacity = capacity;
+        this.threshold = (float) threshold;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.nanoClock = nanoClock;
+        this.kernel = VectorKernel.get();
+        this.scopes = new String[capacity];
+        this.values = new Object[capacity];
+        this.written = new long[capacity];
+
+        this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                .description("Cache lookups").register(registry);
+        this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                .description("Cache lookups").register(registry);
+        this.puts = Counter.builder("cache.puts").tag("cache", name)
+                .description("Entries written to the cache").register(registry);
+        this.similarity = DistributionSummary.builder("cache.answer.similarity").tag("cache", name)
+                .description("Best cosine similarity between a lookup and a cached query").register(registry);
+        Gauge.builder("cache.size", this, SemanticAnswerCache::size).tag("cache", name)
+                .description("Entries in the cache").register(registry);
+    }
+
+    /**
+     * Answer cached for the most similar query in the same scope, or null if none reaches the threshold.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(float[] queryVector, String scope) {
+        float[] q = kernel.unit(queryVector);
+        long now = nanoClock.getAsLong();
+        lock.readLock().lock();
+        try {
+            if (used == 0 || q.length != dim) {
+                misses.increment();
+                return null;
+            }
+            float[] scores = new float[used];
+            kernel.scoreRows(matrix, used, dim, q, scores);
+            int best = -1;
+            for (int i = 0; i < used; i++) {
+                if (values[i] == null || !scope.equals(scopes[i]) || expired(i, now)) continue;
+                if (best < 0 || scores[i] > scores[best]) best = i;
+            }
+            if (best >= 0) similarity.record(scores[best]);
+            if (best < 0 || scores[best] < threshold) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return (V) values[best];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(float[] queryVector, String scope, V value) {
+        float[] q = kernel.unit(queryVector);
+        lock.writeLock().lock();
+        try {
+            if (dim != q.length) {
+                // first entry, or the embedding model changed: start over at the new dimension
+                dim = q.length;
+                matrix = new float[capacity * dim];
+                clear();
+            }
+            int slot = next;
+            System.arraycopy(q, 0, matrix, slot * dim, dim);
+            scopes[slot] = scope;
+            values[slot] = value;
+            written[slot] = nanoClock.getAsLong();
+            next = (next + 1) % capacity;
+            used = Math.max(used, slot + 1);
+            puts.increment();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Live (written, unexpired) entries.
+     */
+    public int size() {
+        long now = nanoClock.getAsLong();
+        lock.readLock().lock();
+        try {
+            int n = 0;
+            for (int i = 0; i < used; i++) if (values[i] != null && !expired(i, now)) n++;
+            return n;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean expired(int slot, long now) {
+        return ttlNanos > 0 && now - written[slot] >= ttlNanos;
+    }
+
+    private void clear() {
+        Arrays.fill(scopes, null);
+        Arrays.fill(values, null);
+        next = 0;
+        used = 0;
+    }
+}
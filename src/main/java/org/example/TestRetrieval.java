@@ -6,7 +6,7 @@ public class TestRetrieval {
     public static void main(String[] args) throws Exception {
         System.out.println("Loading embedder from: " + Config.EMBED_MODEL_PATH);
         OnnxEmbedder embedder = new OnnxEmbedder(
-                Config.EMBED_MODEL_PATH + "/model.onnx",
+                Config.modelFile(Config.EMBED_MODEL_PATH),
                 Config.EMBED_MODEL_PATH,
                 384  // max sequence length (tokens), not embedding dim
         );
@@ -7,6 +7,7 @@ import java.util.regex.Pattern;
 
 /**
  * Tokenizer util: attempt to use DJL HuggingFace tokenizer if available.
+ * Counts exclude special tokens ([CLS]/[SEP]), like the cached counts in ChunkTokenStore.
  * Fallback: whitespace-based token counting (approx).
  */
 public class TokenizerUtil {
@@ -35,8 +36,9 @@ public class TokenizerUtil {
         if (djlAvailable) {
             try {
                 Class<?> cls = djlTokenizer.getClass();
-                // encode returns Encoding that has getTokens() or getIds()
-                Object enc = cls.getMethod("encode", String.class).invoke(djlTokenizer, text);
+                // encode(text, addSpecialTokens=false, withOverflowingTokens=false) returns Encoding that has getTokens() or getIds()
+                Object enc = cls.getMethod("encode", String.class, boolean.class, boolean.class)
+                        .invoke(djlTokenizer, text, false, false);
                 // try getTokenCount by calling getTokens().size()
                 try {
                     Object tokens = enc.getClass().getMethod("getTokens").invoke(enc);
@@ -0,0 +1,161 @@
+package org.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * VectorKernel - float vector math shared by MMR, the bi-encoder fallback, embedding normalization
+ * and the local dense index (LocalVectorStore / HnswIndex).
+ *
+ * Two implementations: PanamaVectorKernel (SIMD via jdk.incubator.vector) and ScalarVectorKernel.
+ * get() picks Panama when the JVM was started with --add-modules jdk.incubator.vector, otherwise
+ * the scalar one; VECTOR_KERNEL=scalar forces scalar. Implementations supply the primitive loops
+ * (dot, scale); everything else is built on them here.
+ *
+ * All math is float. Buffers passed to the ByteBuffer variants hold float32 and must be in
+ * little-endian order (as a LocalVectorStore mapping is).
+ */
+public interface VectorKernel {
+
+    String name();
+
+    float dot(float[] a, int aOff, float[] b, int bOff, int length);
+
+    /**
+     * Dot product of `length` little-endian floats at byteOff in buf with b[0..length).
+     */
+    float dot(ByteBuffer buf, int byteOff, float[] b, int length);
+
+    /**
+     * a[i] *= factor
+     */
+    void scale(float[] a, float factor);
+
+    default float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    default float norm(float[] a) {
+        return (float) Math.sqrt(dot(a, 0, a, 0, a.length));
+    }
+
+    /**
+     * Cosine similarity; 0 for null, mismatched or zero vectors.
+     */
+    default float cosine(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) return 0f;
+        float na = norm(a), nb = norm(b);
+        if (na == 0f || nb == 0f) return 0f;
+        return dot(a, b) / (na * nb);
+    }
+
+    /**
+     * L2-normalize in place (zero vectors are left as they are).
+     */
+    default void normalize(float[] a) {
+        float n = norm(a);
+        if (n > 0f) scale(a, 1f / n);
+    }
+
+    /**
+     * v itself if it is already unit length (or zero), otherwise a normalized copy.
+     */
+    default float[] unit(float[] v) {
+        float n = norm(v);
+        if (n == 0f || Math.abs(n - 1f) < 1e-6f) return v;
+        float[] out = v.clone();
+        scale(out, 1f / n);
+        return out;
+    }
+
+    /**
+     * out[i] = dot(row i of the row-major rows x d matrix, q)
+     */
+    default void scoreRows(float[] matrix, int rows, int d, float[] q, float[] out) {
+        for (int i = 0; i < rows; i++) out[i] = dot(matrix, i * d, q, 0, d);
+    }
+
+    /**
+     * scoreRows over `rows` consecutive little-endian rows of d floats starting at byteOff.
+     */
+    default void scoreRows(ByteBuffer buf, int byteOff, int rows, int d, float[] q, float[] out) {
+        int rowBytes = d * Float.BYTES;
+        for (int i = 0; i < rows; i++) out[i] = dot(buf, byteOff + i * rowBytes, q, d);
+    }
+
+    /**
+     * Indices of the k highest of scores[0..n), best first, written to out; returns how many.
+     * Bounded min-heap selection: O(n log k), no allocation.
+     */
+    default int topK(float[] scores, int n, int k, int[] out) {
+        int size = 0;
+        k = Math.min(k, Math.min(n, out.length));
+        if (k <= 0) return 0;
+        // out[0..size) is a min-heap on scores while selecting
+        for (int i = 0; i < n; i++) {
+            if (size < k) {
+                int c = size++;
+                while (c > 0 && scores[out[(c - 1) / 2]] > scores[i]) { out[c] = out[(c - 1) / 2]; c = (c - 1) / 2; }
+                out[c] = i;
+            } else if (scores[i] > scores[out[0]]) {
+                siftDown(scores, out, 0, size, i);
+            }
+        }
+        // heap-sort in place: repeatedly move the minimum to the end
+        for (int end = size - 1; end > 0; end--) {
+            int min = out[0];
+            siftDown(scores, out, 0, end, out[end]);
+            out[end] = min;
+        }
+        return size;
+    }
+
+    private static void siftDown(float[] scores, int[] heap, int pos, int size, int item) {
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) break;
+            if (child + 1 < size && scores[heap[child + 1]] < scores[heap[child]]) child++;
+            if (scores[heap[child]] >= scores[item]) break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = item;
+    }
+
+    static VectorKernel get() {
+        return Holder.KERNEL;
+    }
+
+    static VectorKernel scalar() {
+        return Holder.SCALAR;
+    }
+
+    /**
+     * Panama kernel if requested name allows it and the incubator module is present, else scalar.
+     */
+    static VectorKernel select(String name) {
+        if (!"scalar".equalsIgnoreCase(name) && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded by name so the incubator classes are only linked when the module is there
+                return (VectorKernel) Class.forName("org.example.PanamaVectorKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                Holder.LOG.warn("Panama vector kernel unavailable, using scalar: {}", e.toString());
+            }
+        }
+        return Holder.SCALAR;
+    }
+
+    final class Holder {
+        private static final Logger LOG = LoggerFactory.getLogger(VectorKernel.class);
+        private static final VectorKernel SCALAR = new ScalarVectorKernel();
+        private static final VectorKernel KERNEL = select(System.getenv("VECTOR_KERNEL"));
+
+        static {
+            LOG.info("Vector kernel: {}", KERNEL.name());
+        }
+
+        private Holder() {}
+    }
+}
@@ -13,9 +13,10 @@ public class AppConfig {
     @Bean
     public OnnxEmbedder onnxEmbedder() throws Exception {
         return new OnnxEmbedder(
-            Config.EMBED_MODEL_PATH + "/model.onnx",
+            Config.modelFile(Config.EMBED_MODEL_PATH),
             Config.EMBED_MODEL_PATH,
-            384
+            384,
+            Config.onnxPoolOptions()
         );
     }
 
@@ -26,7 +27,7 @@ public class AppConfig {
 
     @Bean
     public LuceneIndexService luceneIndexService() throws Exception {
-        return new LuceneIndexService(Config.LUCENE_INDEX_DIR);
+        return new LuceneIndexService(Config.LUCENE_INDEX_DIR, Config.luceneOptions());
     }
 
     @Bean
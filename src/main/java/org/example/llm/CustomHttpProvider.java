@@ -5,11 +5,11 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.example.Config;
+import org.example.HttpClients;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * LLM provider for customer's own HTTP-based LLM.
@@ -41,11 +41,7 @@ public class CustomHttpProvider implements LLMProvider {
     public CustomHttpProvider(String endpoint, String apiKey) {
         this.endpoint = endpoint;
         this.apiKey = apiKey;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.client = HttpClients.llm();
     }
 
     @Override
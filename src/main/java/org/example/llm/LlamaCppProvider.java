@@ -5,11 +5,11 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.example.Config;
+import org.example.HttpClients;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
 
 /**
  * LLM provider for llama.cpp server (local LLM).
@@ -26,11 +26,7 @@ public class LlamaCppProvider implements LLMProvider {
 
     public LlamaCppProvider(String baseUrl) {
         this.endpoint = baseUrl.replaceAll("/$", "") + "/completion";
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.client = HttpClients.llm();
     }
 
     @Override
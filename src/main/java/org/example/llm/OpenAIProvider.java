@@ -6,6 +6,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
 import org.example.Config;
+import org.example.HttpClients;
 
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
@@ -29,10 +30,9 @@ public class OpenAIProvider implements LLMProvider {
         this.endpoint = baseUrl.replaceAll("/$", "") + "/v1/chat/completions";
         this.apiKey = apiKey;
         this.model = model != null ? model : "gpt-3.5-turbo";
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
+        // shares the LLM connection pool and dispatcher; only the read timeout differs
+        this.client = HttpClients.llm().newBuilder()
                 .readTimeout(120, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
                 .build();
     }
 
@@ -0,0 +1,88 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BoundedCacheTest {
+
+    @Test
+    public void testStaysWithinEntryAndWeightBounds() {
+        BoundedCache<String, String> byCount = new BoundedCache<>("count", 100, null, null, new SimpleMeterRegistry());
+        for (int i = 0; i < 1000; i++) byCount.put("k" + i, "v" + i);
+        assertTrue(byCount.size() <= 100);
+        assertEquals(byCount.size(), byCount.weight());
+
+        BoundedCache<String, String> byWeight = new BoundedCache<>("weight", 1000, (k, v) -> v.length(), null, new SimpleMeterRegistry());
+        for (int i = 0; i < 1000; i++) byWeight.put("k" + i, "x".repeat(1 + i % 20));
+        assertTrue(byWeight.weight() <= 1000);
+        byWeight.put("huge", "x".repeat(5000));
+        assertNull(byWeight.get("huge"));
+    }
+
+    @Test
+    public void testFrequentKeysSurviveAScanOfOneOffKeys() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>("scan", 100, null, null, new SimpleMeterRegistry());
+        for (int i = 0; i < 10; i++) {
+            cache.put("hot" + i, i);
+            for (int j = 0; j < 5; j++) cache.get("hot" + i);
+        }
+        // an LRU of 100 entries would have dropped every hot key here
+        for (int i = 0; i < 1000; i++) cache.put("once" + i, i);
+        for (int i = 0; i < 10; i++) assertEquals(Integer.valueOf(i), cache.get("hot" + i));
+    }
+
+    @Test
+    public void testExpiresAfterWriteAndRecordsMetrics() {
+        AtomicLong now = new AtomicLong();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BoundedCache<String, String> cache = new BoundedCache<>("ttl", 10, null, Duration.ofSeconds(5), registry, now::get);
+
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+
+        cache.put("b", "2");
+        cache.invalidate("b");
+        assertNull(cache.get("b"));
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "ttl", "result", "hit").counter().count(), 0.0);
+        assertEquals(2.0, registry.get("cache.gets").tags("cache", "ttl", "result", "miss").counter().count(), 0.0);
+        assertEquals(2.0, registry.get("cache.puts").tags("cache", "ttl").counter().count(), 0.0);
+        assertEquals(1.0, registry.get("cache.evictions").tags("cache", "ttl", "cause", "expired").counter().count(), 0.0);
+        assertEquals(0.0, registry.get("cache.size").tags("cache", "ttl").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>("concurrent", 200, null, null, new SimpleMeterRegistry());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    Random r = new Random(seed);
+                    for (int i = 0; i < 20000; i++) {
+                        int key = r.nextInt(1000);
+                        Integer v = cache.get(key);
+                        if (v == null) cache.put(key, key * 2);
+                        else assertEquals(key * 2, v.intValue());
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(cache.size() <= 200);
+        assertEquals(cache.size(), cache.weight());
+    }
+}
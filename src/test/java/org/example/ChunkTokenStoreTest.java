@@ -0,0 +1,63 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChunkTokenStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    // Fake tokenizer: one id per character, large values exercise multi-byte varints
+    private final ChunkTokenStore.Tokenize fake = text -> {
+        calls.incrementAndGet();
+        long[] ids = new long[text.length()];
+        for (int i = 0; i < text.length(); i++) ids[i] = text.charAt(i) * 1000L;
+        return ids;
+    };
+
+    @Test
+    public void testTokenizesOncePerContent() throws Exception {
+        ChunkTokenStore store = new ChunkTokenStore(fake);
+        store.tokens("CLASS-1-1", "abc");
+        store.tokens("CLASS-1-1", "abc");
+        assertEquals(1, calls.get());
+        assertEquals(3, store.tokenCount("CLASS-1-1", "abc"));
+    }
+
+    @Test
+    public void testChangedTextIsRetokenized() throws Exception {
+        ChunkTokenStore store = new ChunkTokenStore(fake);
+        store.tokens("CLASS-1-1", "abc");
+        int[] ids = store.tokens("CLASS-1-1", "abcd");
+        assertEquals(4, ids.length);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testSaveAndLoadRoundTrip() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("chunk_tokens.bin");
+        ChunkTokenStore store = new ChunkTokenStore(fake);
+        int[] expected = store.tokens("ASSIGN-51", "Basic SQL & SELECT");
+        store.save(file);
+        assertFalse(store.isDirty());
+
+        ChunkTokenStore loaded = ChunkTokenStore.open(file, fake);
+        calls.set(0);
+        assertArrayEquals(expected, loaded.tokens("ASSIGN-51", "Basic SQL & SELECT"));
+        assertEquals("loaded entry must not be re-tokenized", 0, calls.get());
+    }
+
+    @Test
+    public void testMissingFileGivesEmptyStore() {
+        ChunkTokenStore store = ChunkTokenStore.open(tmp.getRoot().toPath().resolve("nope.bin"), fake);
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CorpusEpochTest {
+
+    @Test
+    public void testTagChangesWithStoredEpochAndLocalReopens() throws Exception {
+        AtomicLong stored = new AtomicLong();
+        CorpusEpoch epoch = new CorpusEpoch(stored::get);
+        assertEquals("0.0", epoch.tag());
+        assertFalse(epoch.pollOnce());
+
+        stored.set(3);
+        assertTrue(epoch.pollOnce());
+        assertEquals("3.0", epoch.tag());
+
+        epoch.advanceLocal();
+        assertEquals("3.1", epoch.tag());
+        assertFalse(epoch.pollOnce());
+    }
+
+    @Test
+    public void testListenersRunOnlyWhenTheStoredEpochChanges() throws Exception {
+        AtomicLong stored = new AtomicLong();
+        CorpusEpoch epoch = new CorpusEpoch(stored::get);
+        AtomicInteger changes = new AtomicInteger();
+        epoch.onChange(() -> {
+            throw new IllegalStateException("reload failed"); // does not stop other listeners or the poll
+        });
+        epoch.onChange(changes::incrementAndGet);
+
+        epoch.pollOnce();
+        epoch.advanceLocal();
+        assertEquals(0, changes.get());
+        stored.set(1);
+        assertTrue(epoch.pollOnce());
+        assertFalse(epoch.pollOnce());
+        assertEquals(1, changes.get());
+    }
+
+    @Test
+    public void testEntriesFromAnOldEpochAreUnreachable() throws Exception {
+        AtomicLong stored = new AtomicLong(1);
+        CorpusEpoch epoch = new CorpusEpoch(stored::get);
+        epoch.pollOnce();
+        BoundedCache<String, String> cache = new BoundedCache<>("epoch", 100, null, null, new SimpleMeterRegistry());
+        cache.put(epoch.tag() + "|binary search", "old result");
+        assertEquals("old result", cache.get(epoch.tag() + "|binary search"));
+
+        stored.set(2); // an ingestion run bumped the epoch
+        epoch.pollOnce();
+        assertNull(cache.get(epoch.tag() + "|binary search"));
+    }
+}
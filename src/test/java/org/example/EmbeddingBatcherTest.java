@@ -0,0 +1,77 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EmbeddingBatcherTest {
+
+    // Fake embedder: vector [len(text), callIndex] so results can be matched back to inputs
+    private static EmbeddingBatcher.BatchEmbedder fake(List<Integer> batchSizes) {
+        AtomicInteger calls = new AtomicInteger();
+        return texts -> {
+            int call = calls.incrementAndGet();
+            synchronized (batchSizes) { batchSizes.add(texts.size()); }
+            float[][] out = new float[texts.size()][];
+            for (int i = 0; i < texts.size(); i++) out[i] = new float[]{texts.get(i).length(), call};
+            return out;
+        };
+    }
+
+    @Test
+    public void testConcurrentCallsAreCoalesced() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(fake(batchSizes), 50, 64, 1, registry)) {
+            List<CompletableFuture<float[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) futures.add(batcher.submit("x".repeat(i + 1)));
+
+            for (int i = 0; i < 10; i++) {
+                float[] v = futures.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals("result must map back to its own text", i + 1, (int) v[0]);
+            }
+        }
+        assertTrue("Expected fewer ONNX runs than requests: " + batchSizes, batchSizes.size() < 10);
+        assertEquals(10, registry.get("embed.batcher.queue.depth").summary().count());
+    }
+
+    @Test
+    public void testMaxBatchIsRespected() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(fake(batchSizes), 50, 4, 1, new SimpleMeterRegistry())) {
+            List<CompletableFuture<float[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) futures.add(batcher.submit("q" + i));
+            for (CompletableFuture<float[]> f : futures) f.get(5, TimeUnit.SECONDS);
+        }
+        for (int size : batchSizes) assertTrue("batch larger than max: " + size, size <= 4);
+    }
+
+    @Test
+    public void testDuplicateTextsEmbeddedOnce() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(fake(batchSizes), 50, 64, 1, new SimpleMeterRegistry())) {
+            CompletableFuture<float[]> a = batcher.submit("same query");
+            CompletableFuture<float[]> b = batcher.submit("same query");
+            float[] va = a.get(5, TimeUnit.SECONDS);
+            float[] vb = b.get(5, TimeUnit.SECONDS);
+            assertArrayEquals(va, vb, 0f);
+            assertNotSame("duplicates must not share the same array", va, vb);
+        }
+        assertEquals(Integer.valueOf(1), batchSizes.get(0));
+    }
+
+    @Test
+    public void testFailurePropagatesToCallers() {
+        EmbeddingBatcher.BatchEmbedder failing = texts -> { throw new IllegalStateException("onnx down"); };
+        try (EmbeddingBatcher batcher = new EmbeddingBatcher(failing, 1, 8, 1, new SimpleMeterRegistry())) {
+            batcher.embed("anything");
+            fail("Expected exception");
+        } catch (Exception e) {
+            assertEquals("onnx down", e.getMessage());
+        }
+    }
+}
@@ -9,6 +9,7 @@ public class Evaluator {
     private final RetrievalService svc;
     private final SqlService sql;
     private final QdrantClient qdrant; // for recall checks (existing client)
+    private final Map<String, List<String>> denseTopK = new HashMap<>(); // "k:query" -> chunk ids, filled by prefetchDenseTopK
     public Evaluator(RetrievalService svc, SqlService sql, QdrantClient qdrant) {
         this.svc = svc; this.sql = sql; this.qdrant = qdrant;
     }
@@ -104,14 +105,32 @@ public class Evaluator {
         return out;
     }
 
+    /**
+     * Embed all test queries in one batch and fetch their dense top-k with one Qdrant batch search,
+     * so run() does not pay a search round-trip per test case for the recall check.
+     */
+    public void prefetchDenseTopK(List<TestCase> cases, int k) {
+        List<String> queries = cases.stream().map(tc -> tc.query).distinct().collect(Collectors.toList());
+        if (queries.isEmpty()) return;
+        try {
+            float[][] vecs = svc.getEmbedder().embed(queries);
+            List<List<Candidate>> hits = qdrant.searchBatch(Arrays.asList(vecs), k, Config.QDRANT_EF);
+            for (int i = 0; i < queries.size(); i++) {
+                denseTopK.put(k + ":" + queries.get(i),
+                        hits.get(i).stream().map(Candidate::getChunkId).collect(Collectors.toList()));
+            }
+        } catch (Exception e) {
+            System.err.println("Batch prefetch failed, falling back to per-query search: " + e.getMessage());
+        }
+    }
+
     private List<String> topKChunkIdsForQuery(String query, int k) {
+        List<String> prefetched = denseTopK.get(k + ":" + query);
+        if (prefetched != null) return prefetched;
         try {
             float[] qvec = svc.getEmbedder().embed(query); // expose embedder getter
             List<Candidate> pts = qdrant.searchByVector(qvec, k, true); // returns candidates with payload.chunk_id
-            return pts.stream().map(c -> {
-                Object pid = c.getPayload()!=null?c.getPayload().get("chunk_id"):null;
-                return pid==null?c.getId():pid.toString();
-            }).collect(Collectors.toList());
+            return pts.stream().map(Candidate::getChunkId).collect(Collectors.toList());
         } catch (Exception e) {
             return Collections.emptyList();
         }
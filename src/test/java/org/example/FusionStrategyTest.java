@@ -0,0 +1,58 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class FusionStrategyTest {
+
+    private static Candidate hit(String id, double score, float[] vector) {
+        Candidate c = new Candidate();
+        c.id = id;
+        c.score = score;
+        c.vector = vector;
+        return c;
+    }
+
+    private static List<String> ids(List<Candidate> cs) {
+        List<String> out = new ArrayList<>();
+        for (Candidate c : cs) out.add(c.getChunkId());
+        return out;
+    }
+
+    @Test
+    public void testRrfRanksChunksFoundByBothListsFirst() {
+        float[] v = {1f, 0f};
+        List<Candidate> dense = Arrays.asList(hit("A", 0.9, v), hit("B", 0.8, v), hit("C", 0.7, v));
+        List<Candidate> lexical = Arrays.asList(hit("C", 12.0, null), hit("D", 9.0, null));
+
+        List<Candidate> fused = FusionStrategy.rrf(60).fuse(dense, lexical);
+        assertEquals(Arrays.asList("C", "A", "B", "D"), ids(fused));
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get(0).score, 1e-12);
+        assertSame(v, fused.get(0).vector);            // vector from the dense hit
+        assertNull(fused.get(3).vector);               // lexical-only
+        assertEquals(0.7, dense.get(2).score, 0.0);    // inputs untouched
+    }
+
+    @Test
+    public void testWeightedSumNormalizesEachList() {
+        List<Candidate> dense = Arrays.asList(hit("A", 0.9, null), hit("B", 0.5, null));
+        List<Candidate> lexical = Arrays.asList(hit("B", 20.0, null), hit("C", 10.0, null));
+
+        List<Candidate> fused = FusionStrategy.weightedSum(0.7).fuse(dense, lexical);
+        assertEquals(Arrays.asList("A", "B", "C"), ids(fused));
+        assertEquals(0.7, fused.get(0).score, 1e-12);  // dense 1.0, lexical absent
+        assertEquals(0.3, fused.get(1).score, 1e-12);  // dense 0.0, lexical 1.0
+        assertEquals(0.0, fused.get(2).score, 1e-12);
+
+        assertEquals(Arrays.asList("B", "A", "C"), ids(FusionStrategy.weightedSum(0.2).fuse(dense, lexical)));
+    }
+
+    @Test
+    public void testNamedFallsBackToRrf() {
+        List<Candidate> dense = Collections.singletonList(hit("A", 0.9, null));
+        assertEquals(1.0 / 11, FusionStrategy.named("unknown", 10, 0.5).fuse(dense, Collections.emptyList()).get(0).score, 1e-12);
+        assertEquals(0.5, FusionStrategy.named("weighted", 10, 0.5).fuse(dense, Collections.emptyList()).get(0).score, 1e-12);
+    }
+}
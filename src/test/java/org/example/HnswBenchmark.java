@@ -0,0 +1,90 @@
+package org.example;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * HnswBenchmark - recall@k and latency of the embedded HnswIndex against exact search and Qdrant.
+ *
+ * Queries are stored vectors with Gaussian noise added (so they are realistic but not exact matches).
+ * Ground truth is a brute-force scan of the LocalVectorStore. For each efSearch value the HNSW index
+ * reports recall@k and per-query p50/p99. Qdrant (with_vector=false) is measured on the same queries
+ * when it is reachable (needs the usual QDRANT_URL/DB_PASS env for Config).
+ *
+ * Usage:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.example.HnswBenchmark" \
+ *       -Dexec.args="vectors.lvs 10 500 16,32,64,128"
+ *   args: storeFile k queries efSearchList
+ */
+public class HnswBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get(args.length > 0 ? args[0] : "vectors.lvs");
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int numQueries = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        String efList = args.length > 3 ? args[3] : "16,32,64,128";
+
+        LocalVectorStore store = LocalVectorStore.open(file);
+        System.out.printf("store: %d vectors, dim=%d%n", store.size(), store.dim());
+
+        Random r = new Random(1);
+        List<float[]> queries = new ArrayList<>();
+        List<Set<String>> truth = new ArrayList<>();
+        for (int i = 0; i < numQueries; i++) {
+            float[] q = store.vectorAt(r.nextInt(store.size()));
+            for (int d = 0; d < q.length; d++) q[d] += (float) (r.nextGaussian() * 0.02);
+            queries.add(q);
+            truth.add(exactTopK(store, q, k));
+        }
+
+        System.out.printf("%-22s %-10s %-10s %-10s%n", "backend", "recall@" + k, "p50 us", "p99 us");
+        for (String ef : efList.split(",")) {
+            int efSearch = Integer.parseInt(ef.trim());
+            long t0 = System.nanoTime();
+            HnswIndex index = HnswIndex.build(store, 16, 200, efSearch);
+            long buildMs = (System.nanoTime() - t0) / 1_000_000;
+            for (float[] q : queries) index.search(q, k, false); // warmup
+            report("hnsw ef=" + efSearch + " (" + buildMs + "ms)", index, queries, truth, k);
+        }
+
+        try {
+            QdrantClient qdrant = new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION);
+            for (int i = 0; i < Math.min(20, queries.size()); i++) qdrant.search(queries.get(i), k, false); // warm connections
+            report("qdrant ef=" + Config.QDRANT_EF, qdrant, queries, truth, k);
+        } catch (Exception | ExceptionInInitializerError e) {
+            System.out.println("qdrant skipped: " + e);
+        }
+    }
+
+    private static void report(String name, DenseIndex index, List<float[]> queries, List<Set<String>> truth, int k) throws Exception {
+        long[] lat = new long[queries.size()];
+        double recall = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long t0 = System.nanoTime();
+            List<Candidate> hits = index.search(queries.get(i), k, false);
+            lat[i] = System.nanoTime() - t0;
+            int found = 0;
+            for (Candidate c : hits) if (truth.get(i).contains(c.getChunkId())) found++;
+            recall += found / (double) k;
+        }
+        Arrays.sort(lat);
+        System.out.printf("%-22s %-10.3f %-10.1f %-10.1f%n", name, recall / queries.size(),
+                pct(lat, 0.50) / 1e3, pct(lat, 0.99) / 1e3);
+    }
+
+    private static Set<String> exactTopK(LocalVectorStore store, float[] q, int k) {
+        float[] sims = new float[store.size()];
+        store.scoreAll(q, sims);
+        int[] rows = new int[k];
+        int found = VectorKernel.get().topK(sims, sims.length, k, rows);
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < found; i++) out.add(store.chunkIdAt(rows[i]));
+        return out;
+    }
+
+    private static double pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
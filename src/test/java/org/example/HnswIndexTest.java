@@ -0,0 +1,80 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.*;
+
+public class HnswIndexTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static float[] randomUnit(Random r, int dim) {
+        float[] v = new float[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) { v[i] = (float) r.nextGaussian(); norm += v[i] * v[i]; }
+        for (int i = 0; i < dim; i++) v[i] /= (float) Math.sqrt(norm);
+        return v;
+    }
+
+    private LocalVectorStore randomStore(int n, int dim, long seed) throws Exception {
+        Random r = new Random(seed);
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) vectors.put("CHUNK-" + i, randomUnit(r, dim));
+        Path file = tmp.getRoot().toPath().resolve("vectors-" + seed + ".lvs");
+        LocalVectorStore.write(file, vectors, n);
+        return LocalVectorStore.open(file);
+    }
+
+    @Test
+    public void testRecallAgainstBruteForce() throws Exception {
+        int n = 2000, dim = 32, k = 10;
+        LocalVectorStore store = randomStore(n, dim, 7);
+        HnswIndex index = HnswIndex.build(store, 16, 200, 100);
+
+        Random r = new Random(11);
+        double recallSum = 0;
+        int queries = 50;
+        for (int qi = 0; qi < queries; qi++) {
+            float[] q = randomUnit(r, dim);
+            Set<String> exact = bruteForce(store, q, k);
+            List<Candidate> hits = index.search(q, k, false);
+            assertEquals(k, hits.size());
+            for (int i = 1; i < hits.size(); i++) assertTrue(hits.get(i - 1).score >= hits.get(i).score);
+            int found = 0;
+            for (Candidate c : hits) if (exact.contains(c.getChunkId())) found++;
+            recallSum += found / (double) k;
+        }
+        double recall = recallSum / queries;
+        assertTrue("recall@10 too low: " + recall, recall >= 0.9);
+    }
+
+    @Test
+    public void testVectorsAndPointLookup() throws Exception {
+        LocalVectorStore store = randomStore(50, 8, 3);
+        HnswIndex index = HnswIndex.build(store, 8, 50, 50);
+        float[] q = store.get("CHUNK-17");
+        Candidate top = index.search(q, 1, true).get(0);
+        assertEquals("CHUNK-17", top.getChunkId());
+        assertEquals(1.0, top.score, 1e-5);
+        assertArrayEquals(q, top.vector, 0f);
+
+        Map<String, Candidate> points = index.getPointsByChunkIds(List.of("CHUNK-3", "NOPE"));
+        assertEquals(Set.of("CHUNK-3"), points.keySet());
+        assertEquals(store.version(), index.storeVersion());
+    }
+
+    private static Set<String> bruteForce(LocalVectorStore store, float[] q, int k) {
+        Integer[] rows = new Integer[store.size()];
+        float[] sims = new float[store.size()];
+        for (int i = 0; i < rows.length; i++) { rows[i] = i; sims[i] = store.dot(i, q); }
+        Arrays.sort(rows, (a, b) -> Float.compare(sims[b], sims[a]));
+        Set<String> out = new HashSet<>();
+        for (int i = 0; i < k; i++) out.add(store.chunkIdAt(rows[i]));
+        return out;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HttpClientsTest {
+
+    @Test
+    public void testSynchronousCallsAreLimitedPerHost() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.createContext("/", exchange -> {
+            int n = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(n, Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OkHttpClient http = HttpClients.build(HttpClients.Backend.QDRANT, 8, 2, 30, registry);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(callers.submit(() -> {
+                    try (Response res = http.newCall(new Request.Builder().url(url).build()).execute()) {
+                        return res.body().string();
+                    }
+                }));
+            }
+            for (Future<String> f : calls) assertEquals("ok", f.get(30, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+
+        assertEquals(2, maxInFlight.get());
+        assertEquals(8, registry.get("http.client.host.wait").tag("backend", "qdrant").timer().count());
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class LengthBucketerTest {
+
+    @Test
+    public void testEveryIndexAppearsOnce() {
+        int[] lengths = {512, 12, 40, 13, 500, 11, 38, 14};
+        List<int[]> buckets = LengthBucketer.plan(lengths, 64, 0.75);
+        Set<Integer> seen = new HashSet<>();
+        for (int[] b : buckets) for (int i : b) assertTrue("duplicate index " + i, seen.add(i));
+        assertEquals(lengths.length, seen.size());
+    }
+
+    @Test
+    public void testLongOutlierGetsOwnBucket() {
+        // twenty short pairs and one 512-token chunk
+        int[] lengths = new int[21];
+        Arrays.fill(lengths, 30);
+        lengths[7] = 512;
+        List<int[]> buckets = LengthBucketer.plan(lengths, 64, 0.75);
+        assertEquals(2, buckets.size());
+        int[] last = buckets.get(buckets.size() - 1);
+        assertArrayEquals(new int[]{7}, last);
+
+        double bucketed = LengthBucketer.paddingEfficiency(lengths, buckets);
+        double single = LengthBucketer.paddingEfficiency(lengths, List.of(allIndices(lengths.length)));
+        assertEquals(1.0, bucketed, 1e-9);
+        assertTrue("single batch should waste most compute: " + single, single < 0.15);
+    }
+
+    @Test
+    public void testMaxBatchSplitsEqualLengths() {
+        int[] lengths = new int[10];
+        Arrays.fill(lengths, 16);
+        List<int[]> buckets = LengthBucketer.plan(lengths, 4, 0.75);
+        assertEquals(3, buckets.size());
+        for (int[] b : buckets) assertTrue(b.length <= 4);
+    }
+
+    @Test
+    public void testPlanRecordsEfficiencyMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LengthBucketer bucketer = new LengthBucketer("test", 64, 0.75, registry);
+        bucketer.plan(new int[]{10, 10, 100});
+        assertEquals(1.0, registry.get("onnx.padding.efficiency").summary().mean(), 1e-9);
+        assertEquals(120 / 300.0, registry.get("onnx.padding.efficiency.unbucketed").summary().mean(), 1e-9);
+    }
+
+    private static int[] allIndices(int n) {
+        int[] out = new int[n];
+        for (int i = 0; i < n; i++) out[i] = i;
+        return out;
+    }
+}
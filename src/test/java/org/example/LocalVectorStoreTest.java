@@ -0,0 +1,55 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LocalVectorStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndMapRoundTrip() throws Exception {
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        vectors.put("ASSIGN-51", new float[]{0.1f, -0.2f, 0.3f});
+        vectors.put("CLASS-1-1", new float[]{1f, 0f, -1f});
+        vectors.put("TOPIC-\u00e9", new float[]{0.5f, 0.5f, 0.5f}); // non-ASCII id shifts the vector offset
+        Path file = tmp.getRoot().toPath().resolve("vectors.lvs");
+        LocalVectorStore.write(file, vectors, 42);
+
+        LocalVectorStore store = LocalVectorStore.open(file);
+        assertEquals(3, store.size());
+        assertEquals(3, store.dim());
+        assertEquals(42, store.pointsCount());
+        for (Map.Entry<String, float[]> e : vectors.entrySet()) {
+            assertArrayEquals(e.getValue(), store.get(e.getKey()), 0f);
+        }
+        assertNull(store.get("MISSING"));
+    }
+
+    @Test
+    public void testVersionIsAContentHashCheckedOnOpen() throws Exception {
+        Map<String, float[]> vectors = new LinkedHashMap<>();
+        vectors.put("TOPIC-1", new float[]{0.1f, 0.2f});
+        vectors.put("TOPIC-2", new float[]{0.3f, 0.4f});
+        Path file = tmp.getRoot().toPath().resolve("vectors.lvs");
+        long v1 = LocalVectorStore.write(file, vectors, 2);
+        assertEquals(v1, LocalVectorStore.readVersion(file));
+        assertEquals(v1, LocalVectorStore.open(file).version());
+        assertEquals(v1, LocalVectorStore.write(file, vectors, 99)); // same content, same version
+
+        vectors.put("TOPIC-2", new float[]{0.3f, 0.5f});
+        long v2 = LocalVectorStore.write(file, vectors, 2);
+        assertNotEquals(v1, v2);
+
+        // the recorded version decides; points_count (and Qdrant) is not consulted
+        assertNull(LocalVectorStore.openVerified(file, null, v1));
+        assertEquals(v2, LocalVectorStore.openVerified(file, null, v2).version());
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.*;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LuceneHitExtractionBenchmark - chunk_id extraction for BM25 hits: stored documents (legacy schema)
+ * vs doc values (current LuceneIndexService schema).
+ *
+ * Builds both indexes over the same synthetic corpus (chunks with `textWords` words of text) in a
+ * temp directory, runs one BM25 query for topK hits, then measures only the hit extraction:
+ * searcher.doc() per hit on the legacy index vs LuceneIndexService.payloads() on the new one.
+ * Index sizes are printed at setup. Add -prof gc for bytes allocated per query (gc.alloc.rate.norm).
+ *
+ * Usage:
+ *   mvn -q -P jmh test-compile exec:exec -Djmh.args="LuceneHitExtractionBenchmark -prof gc -p chunks=20000"
+ *   params: chunks, textWords, topK
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LuceneHitExtractionBenchmark {
+    private static final String[] WORDS = {"java", "search", "binary", "tree", "graph", "sort", "array", "list",
+            "hash", "map", "class", "object", "learning", "model", "query", "index", "join", "table", "stream", "thread"};
+
+    @Param("20000")
+    public int chunks;
+
+    @Param("400")
+    public int textWords;
+
+    @Param("50")
+    public int topK;
+
+    private Path root;
+    private DirectoryReader legacyReader;
+    private DirectoryReader currentReader;
+    private IndexSearcher legacy;
+    private IndexSearcher searcher;
+    private ScoreDoc[] legacyHits;
+    private ScoreDoc[] currentHits;
+
+    @Setup
+    public void setup() throws Exception {
+        root = Files.createTempDirectory("lucene-hit-bench");
+        Path legacyDir = root.resolve("legacy");
+        Path currentDir = root.resolve("current");
+
+        Random r = new Random(7);
+        List<DbChunk> corpus = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = 0; w < textWords; w++) text.append(WORDS[r.nextInt(WORDS.length)]).append(' ');
+            DbChunk c = new DbChunk();
+            c.setChunkId("CHUNK-" + i);
+            c.setTitle("Chunk " + i);
+            c.setText(text.toString());
+            c.setChunkType("class_detail");
+            corpus.add(c);
+        }
+
+        buildLegacy(legacyDir, corpus);
+        try (LuceneIndexService current = new LuceneIndexService(currentDir.toString())) {
+            current.rebuildIndex(corpus);
+        }
+
+        Query query = new QueryParser("text", new StandardAnalyzer()).parse("binary search tree");
+        legacyReader = DirectoryReader.open(new MMapDirectory(legacyDir));
+        currentReader = DirectoryReader.open(new MMapDirectory(currentDir));
+        legacy = new IndexSearcher(legacyReader);
+        searcher = new IndexSearcher(currentReader);
+        legacyHits = legacy.search(query, topK).scoreDocs;
+        currentHits = searcher.search(query, topK).scoreDocs;
+        System.out.printf("%nindex size legacy=%.1f MB current=%.1f MB%n", sizeMb(legacyDir), sizeMb(currentDir));
+        if (!storedIds(legacy, legacyHits).equals(ids(LuceneIndexService.payloads(searcher, currentHits, currentHits.length)))) {
+            System.out.println("note: hit order differs between indexes (ties); timings are still comparable");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        legacyReader.close();
+        currentReader.close();
+        try (var files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<String> stored() throws Exception {
+        return storedIds(legacy, legacyHits);
+    }
+
+    @Benchmark
+    public ChunkPayload[] docValues() throws Exception {
+        return LuceneIndexService.payloads(searcher, currentHits, currentHits.length);
+    }
+
+    // the extraction LuceneIndexService.search used before doc values
+    @SuppressWarnings("deprecation")
+    private static List<String> storedIds(IndexSearcher searcher, ScoreDoc[] hits) throws Exception {
+        List<String> ids = new ArrayList<>(hits.length);
+        for (ScoreDoc sd : hits) ids.add(searcher.doc(sd.doc).get("chunk_id"));
+        return ids;
+    }
+
+    private static List<String> ids(ChunkPayload[] payloads) {
+        List<String> ids = new ArrayList<>(payloads.length);
+        for (ChunkPayload p : payloads) ids.add(p.getChunkId());
+        return ids;
+    }
+
+    private static void buildLegacy(Path dir, List<DbChunk> chunks) throws Exception {
+        try (IndexWriter w = new IndexWriter(FSDirectory.open(dir), new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (DbChunk c : chunks) {
+                Document doc = new Document();
+                doc.add(new StringField("chunk_id", c.getChunkId(), Field.Store.YES));
+                doc.add(new TextField("title", c.getTitle(), Field.Store.YES));
+                doc.add(new TextField("text", c.getText(), Field.Store.YES));
+                w.addDocument(doc);
+            }
+        }
+    }
+
+    private static double sizeMb(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            return files.mapToLong(f -> f.toFile().length()).sum() / (1024.0 * 1024.0);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LuceneIndexServiceTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static DbChunk chunk(String id, String title, String text) {
+        DbChunk c = new DbChunk();
+        c.setChunkId(id);
+        c.setTitle(title);
+        c.setText(text);
+        c.setChunkType("topic_summary");
+        return c;
+    }
+
+    private LuceneIndexService buildIndex() throws Exception {
+        List<DbChunk> chunks = Arrays.asList(
+                chunk("TOPIC-1", "Binary search", "binary search halves a sorted array"),
+                chunk("TOPIC-2", "Hash maps", "hash maps give constant time lookup"),
+                chunk("TOPIC-3", "Graphs", "breadth first search visits neighbours level by level"));
+        Map<String, float[]> vectors = new HashMap<>();
+        vectors.put("TOPIC-1", new float[]{1f, 0f, 0f});
+        vectors.put("TOPIC-2", new float[]{0f, 1f, 0f});
+        vectors.put("TOPIC-3", new float[]{0f, 0.6f, 0.8f});
+        LuceneIndexService lucene = new LuceneIndexService(tmp.getRoot().getAbsolutePath());
+        lucene.rebuildIndex(chunks, vectors);
+        return lucene;
+    }
+
+    @Test
+    public void testHybridSearchReturnsDenseAndLexicalHits() throws Exception {
+        LuceneIndexService lucene = buildIndex();
+        assertTrue(lucene.hasVectors());
+
+        LuceneIndexService.HybridResult r = lucene.hybridSearch("hash lookup", new float[]{0f, 2f, 0f}, 2, 10, true);
+        assertEquals(2, r.dense.size());
+        assertEquals("TOPIC-2", r.dense.get(0).getChunkId());
+        assertEquals(1.0, r.dense.get(0).score, 1e-5);   // cosine, not Lucene's (1 + dot) / 2
+        assertEquals(0.6, r.dense.get(1).score, 1e-5);
+        assertArrayEquals(new float[]{0f, 1f, 0f}, r.dense.get(0).vector, 0f);
+        assertEquals("Hash maps", r.dense.get(0).payload.getTitle());
+        assertEquals("topic_summary", r.dense.get(0).payload.getChunkType());
+        assertEquals(1, r.lexical.size());
+        assertEquals("TOPIC-2", r.lexical.get(0).getChunkId());
+        assertTrue(r.lexical.get(0).score > 0);      // BM25 score kept for fusion
+        assertNull(r.lexical.get(0).vector);
+    }
+
+    @Test
+    public void testGetPointsByChunkIdsReadsIndexedVectors() throws Exception {
+        LuceneIndexService lucene = buildIndex();
+        Map<String, Candidate> points = lucene.getPointsByChunkIds(Arrays.asList("TOPIC-3", "MISSING"));
+        assertEquals(1, points.size());
+        assertArrayEquals(new float[]{0f, 0.6f, 0.8f}, points.get("TOPIC-3").vector, 1e-6f);
+    }
+
+    @Test
+    public void testIndexWithoutVectorsHasNoKnnField() throws Exception {
+        LuceneIndexService lucene = new LuceneIndexService(tmp.getRoot().getAbsolutePath());
+        lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")));
+        assertFalse(lucene.hasVectors());
+        assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("binary", 5));
+    }
+
+    @Test
+    public void testBm25MatchesTitleAndTextWithTitleBoost() throws Exception {
+        LuceneIndexService lucene = new LuceneIndexService(tmp.getRoot().getAbsolutePath(),
+                new LuceneIndexService.Options(16, 100, 0, 0, 1, 5.0f, 1.0f));
+        lucene.rebuildIndex(Arrays.asList(
+                chunk("TOPIC-1", "Recursion", "functions that call themselves on smaller inputs"),
+                chunk("TOPIC-2", "Trees", "tree traversal uses recursion to visit subtrees"),
+                chunk("TOPIC-3", "Sorting", "merge sort")));
+        assertEquals(Arrays.asList("TOPIC-1", "TOPIC-2"), lucene.search("recursion", 5)); // title-only match ranks first
+        assertEquals(Collections.emptyList(), lucene.search("?? && ||", 5));            // no analyzable terms
+        lucene.close();
+    }
+
+    @Test
+    public void testSegmentParallelSearchMatchesSingleThreaded() throws Exception {
+        String dir = tmp.getRoot().getAbsolutePath();
+        try (LuceneIndexService writer = new LuceneIndexService(dir)) {
+            writer.rebuildIndex(Collections.emptyList(), Collections.emptyMap(), 0);
+            writer.openWriter();
+            for (int seg = 0; seg < 4; seg++) { // one commit per segment
+                for (int i = 0; i < 50; i++) {
+                    writer.upsert(chunk("C-" + seg + "-" + i, "Chunk", (i % 3 == 0 ? "graph search " : "") + "chunk " + i), null);
+                }
+                writer.commit(seg);
+            }
+        }
+        List<String> single;
+        try (LuceneIndexService lucene = new LuceneIndexService(dir)) {
+            single = lucene.search("graph search", 100);
+        }
+        try (LuceneIndexService lucene = new LuceneIndexService(dir, new LuceneIndexService.Options(16, 100, 0, 0, 4, 2.0f, 1.0f))) {
+            assertEquals(68, single.size());
+            assertEquals(new HashSet<>(single), new HashSet<>(lucene.search("graph search", 100)));
+        }
+    }
+
+    @Test
+    public void testHitsFromIndexWithoutDocValuesFallBackToStoredFields() throws Exception {
+        // schema used before chunk_id/title doc values were added
+        try (IndexWriter w = new IndexWriter(FSDirectory.open(tmp.getRoot().toPath()), new IndexWriterConfig(new StandardAnalyzer()))) {
+            Document doc = new Document();
+            doc.add(new StringField("chunk_id", "TOPIC-1", Field.Store.YES));
+            doc.add(new TextField("title", "Binary search", Field.Store.YES));
+            doc.add(new TextField("text", "binary search halves a sorted array", Field.Store.YES));
+            w.addDocument(doc);
+        }
+        try (LuceneIndexService lucene = new LuceneIndexService(tmp.getRoot().getAbsolutePath())) {
+            assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("sorted", 5));
+            try {
+                lucene.openWriter();
+                fail("an index without doc values must be rebuilt before incremental updates");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("LuceneReindexer"));
+            }
+            // still searchable, and a rebuild makes it writable
+            assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("sorted", 5));
+            lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")));
+            lucene.openWriter();
+            lucene.upsert(chunk("TOPIC-2", "Hash maps", "hash maps"), null);
+        }
+    }
+
+    @Test
+    public void testRebuildFromAnotherProcessFailsClearlyWhileTheWriterIsOpen() throws Exception {
+        String dir = tmp.getRoot().getAbsolutePath();
+        try (LuceneIndexService service = new LuceneIndexService(dir);
+             LuceneIndexService reindexer = new LuceneIndexService(dir)) {
+            service.openWriter();
+            try {
+                reindexer.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")));
+                fail("the incremental indexer's writer holds the lock");
+            } catch (IOException e) {
+                assertTrue(e.getMessage().contains("stop it before rebuilding"));
+            }
+        }
+    }
+
+    @Test
+    public void testSharedSearcherIsReusedAndRefreshedAfterRebuild() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (LuceneIndexService lucene = new LuceneIndexService(tmp.getRoot().getAbsolutePath(), LuceneIndexService.Options.defaults(), registry)) {
+            AtomicInteger reopens = new AtomicInteger();
+            lucene.onReopen(reopens::incrementAndGet);
+            assertFalse(lucene.open());
+            lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")));
+            assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("binary", 5));
+            assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("search", 5));
+
+            lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-2", "Hash maps", "hash maps")));
+            assertEquals(Collections.emptyList(), lucene.search("binary", 5));
+            assertEquals(Collections.singletonList("TOPIC-2"), lucene.search("hash", 5));
+
+            assertEquals(4.0, registry.get("lucene.searcher.acquire").counter().count(), 0.0);
+            assertEquals(1.0, registry.get("lucene.searcher.refresh").tag("result", "reopened").counter().count(), 0.0);
+            assertEquals(1, reopens.get());
+            assertTrue(registry.get("lucene.searcher.warmup").timer().count() >= 2);
+        }
+    }
+
+    @Test
+    public void testQueriesRacingAWriterSwapOrCloseNeverHitAClosedManager() throws Exception {
+        String dir = tmp.getRoot().getAbsolutePath();
+        try (LuceneIndexService lucene = new LuceneIndexService(dir)) {
+            lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 10; round++) {
+                LuceneIndexService lucene = new LuceneIndexService(dir);
+                assertTrue(lucene.open());
+                AtomicBoolean closing = new AtomicBoolean();
+                List<Future<Integer>> queries = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    queries.add(pool.submit(() -> {
+                        int n = 0;
+                        while (true) {
+                            try {
+                                assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("binary", 5));
+                                n++;
+                            } catch (AlreadyClosedException e) {
+                                assertTrue("searcher closed under a query before close()", closing.get());
+                                return n;
+                            }
+                            Thread.yield();
+                        }
+                    }));
+                }
+                Thread.sleep(5);
+                lucene.openWriter(); // replaces and closes the manager the queries are using
+                Thread.sleep(5);
+                closing.set(true);
+                lucene.close();
+
+                int served = 0;
+                for (Future<Integer> f : queries) served += f.get(10, TimeUnit.SECONDS);
+                assertTrue(served > 0);
+                try {
+                    lucene.search("binary", 5);
+                    fail("a closed service must not reopen its searcher");
+                } catch (AlreadyClosedException e) {
+                    assertTrue(e.getMessage().contains("is closed"));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdatesAreVisibleBeforeCommitAndSeqSurvivesReopen() throws Exception {
+        String dir = tmp.getRoot().getAbsolutePath();
+        try (LuceneIndexService lucene = new LuceneIndexService(dir)) {
+            lucene.rebuildIndex(Collections.singletonList(chunk("TOPIC-1", "Binary search", "binary search")),
+                    Collections.emptyMap(), 7);
+            assertEquals(7, lucene.committedChangeSeq());
+
+            lucene.openWriter();
+            lucene.upsert(chunk("TOPIC-1", "Sorting", "merge sort"), null);
+            lucene.upsert(chunk("TOPIC-2", "Hash maps", "hash maps"), null);
+            lucene.refresh(); // NRT: no commit yet
+            assertEquals(Collections.emptyList(), lucene.search("binary", 5));
+            assertEquals(Collections.singletonList("TOPIC-1"), lucene.search("merge", 5));
+            assertEquals(Collections.singletonList("TOPIC-2"), lucene.search("hash", 5));
+
+            lucene.delete("TOPIC-2");
+            lucene.refresh();
+            assertEquals(Collections.emptyList(), lucene.search("hash", 5));
+            lucene.commit(9);
+        }
+        try (LuceneIndexService reopened = new LuceneIndexService(dir)) {
+            assertEquals(9, reopened.committedChangeSeq());
+            assertEquals(Collections.singletonList("TOPIC-1"), reopened.search("merge", 5));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class MappedEmbeddingCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static MappedEmbeddingCache open(Path file, long maxEntries, String model) {
+        return new MappedEmbeddingCache("embedding", file, maxEntries, model, new SimpleMeterRegistry());
+    }
+
+    private static float[] vec(int seed, int dim) {
+        float[] v = new float[dim];
+        for (int i = 0; i < dim; i++) v[i] = seed + i / 1000f;
+        return v;
+    }
+
+    @Test
+    public void testSnapshotIsReloadedForTheSameModelOnly() throws Exception {
+        Path file = tmp.getRoot().toPath().resolve("embed_cache.bin");
+        try (MappedEmbeddingCache cache = open(file, 1000, "model-a")) {
+            assertNull(cache.get("binary search"));
+            for (int i = 0; i < 500; i++) cache.put("query " + i, vec(i, 384));
+            cache.put("binary search", vec(7, 384));
+            assertArrayEquals(vec(7, 384), cache.get("binary search"), 0f);
+            assertEquals(1024, cache.capacity());
+        }
+
+        try (MappedEmbeddingCache restarted = open(file, 1000, "model-a")) {
+            assertTrue(restarted.size() > 450); // a few may have been evicted from full sets
+            assertArrayEquals(vec(7, 384), restarted.get("binary search"), 0f);
+            assertNull(restarted.get("hash maps"));
+        }
+
+        try (MappedEmbeddingCache otherModel = open(file, 1000, "model-b")) {
+            assertEquals(0, otherModel.size());
+            assertNull(otherModel.get("binary search"));
+        }
+    }
+
+    @Test
+    public void testModelIdChangesWithTheModelFile() throws Exception {
+        Path fp32 = tmp.newFile("model.onnx").toPath();
+        Path int8 = tmp.newFile("model_int8.onnx").toPath();
+        Files.write(fp32, new byte[]{1, 2, 3});
+        Files.write(int8, new byte[]{1, 2, 3});
+        String id = MappedEmbeddingCache.modelId(fp32.toString());
+        assertEquals(id, MappedEmbeddingCache.modelId(fp32.toString()));
+        assertNotEquals(id, MappedEmbeddingCache.modelId(int8.toString()));
+
+        // same path, replaced in place
+        Files.write(fp32, new byte[]{1, 2, 3, 4});
+        Files.setLastModifiedTime(fp32, FileTime.fromMillis(Files.getLastModifiedTime(fp32).toMillis() + 1000));
+        assertNotEquals(id, MappedEmbeddingCache.modelId(fp32.toString()));
+    }
+
+    @Test
+    public void testFullSetEvictsLeastRecentlyUsed() {
+        // 8 slots: a single set
+        MappedEmbeddingCache cache = open(null, MappedEmbeddingCache.WAYS, "model");
+        for (int i = 0; i < MappedEmbeddingCache.WAYS; i++) cache.put("k" + i, vec(i, 4));
+        assertNotNull(cache.get("k0"));
+        cache.put("k0", vec(100, 4)); // overwrite in place
+        cache.put("new", vec(9, 4));  // evicts k1, the least recently used
+
+        assertArrayEquals(vec(100, 4), cache.get("k0"), 0f);
+        assertNull(cache.get("k1"));
+        assertArrayEquals(vec(9, 4), cache.get("new"), 0f);
+        assertEquals(MappedEmbeddingCache.WAYS, cache.size());
+
+        cache.put("wrong-dim", vec(1, 5));
+        assertNull(cache.get("wrong-dim"));
+    }
+}
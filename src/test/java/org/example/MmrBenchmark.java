@@ -0,0 +1,149 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MmrBenchmark - the previous MMR.rerank (pairwise cosine against every selected candidate each
+ * round) vs MmrEngine (flat matrix, dot products, running max-similarity).
+ *
+ * Candidates are random unit vectors with pairs of near-duplicates so diversity matters. Both
+ * implementations run on the same inputs; setup checks they pick the same chunks. Add -prof gc
+ * for bytes allocated per rerank call (gc.alloc.rate.norm).
+ *
+ * Usage:
+ *   mvn -q -P jmh test-compile exec:exec -Djmh.args="MmrBenchmark -prof gc -p n=150 -p dim=384 -p k=20"
+ *   params: n (candidates), dim, k
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MmrBenchmark {
+    private static final double LAMBDA = 0.7; // Config.MMR_LAMBDA (Config itself needs DB_PASS)
+
+    @Param("150")
+    public int n;
+
+    @Param("384")
+    public int dim;
+
+    @Param("20")
+    public int k;
+
+    private List<Candidate> candidates;
+    private float[] query;
+    private MmrEngine mmr;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(3);
+        candidates = randomCandidates(r, n, dim);
+        query = unitVector(r, dim);
+        mmr = new MmrEngine();
+        if (!ids(legacyRerank(candidates, query, k, LAMBDA)).equals(ids(mmr.rerank(candidates, query, k, LAMBDA)))) {
+            System.out.println("note: selections differ (float vs double rounding on a near tie)");
+        }
+    }
+
+    @Benchmark
+    public List<Candidate> legacy() {
+        return legacyRerank(candidates, query, k, LAMBDA);
+    }
+
+    @Benchmark
+    public List<Candidate> engine() {
+        return mmr.rerank(candidates, query, k, LAMBDA);
+    }
+
+    // every other candidate is a slightly perturbed copy of the previous one
+    static List<Candidate> randomCandidates(Random r, int n, int dim) {
+        List<Candidate> out = new ArrayList<>(n);
+        float[] prev = null;
+        for (int i = 0; i < n; i++) {
+            float[] v = unitVector(r, dim);
+            if (prev != null && i % 2 == 1) {
+                for (int j = 0; j < dim; j++) v[j] = prev[j] + 0.1f * v[j];
+                normalize(v);
+            }
+            prev = v;
+            Candidate c = new Candidate();
+            c.id = "C-" + i;
+            c.vector = v;
+            out.add(c);
+        }
+        return out;
+    }
+
+    static float[] unitVector(Random r, int dim) {
+        float[] v = new float[dim];
+        for (int j = 0; j < dim; j++) v[j] = (float) r.nextGaussian();
+        normalize(v);
+        return v;
+    }
+
+    private static void normalize(float[] v) {
+        double s = 0;
+        for (float x : v) s += x * x;
+        float inv = (float) (1 / Math.sqrt(s));
+        for (int j = 0; j < v.length; j++) v[j] *= inv;
+    }
+
+    static List<String> ids(List<Candidate> cs) {
+        List<String> out = new ArrayList<>(cs.size());
+        for (Candidate c : cs) out.add(c.getChunkId());
+        return out;
+    }
+
+    // MMR.rerank before MmrEngine
+    static List<Candidate> legacyRerank(List<Candidate> candidates, float[] queryVector, int k, double lambda) {
+        if (candidates == null || candidates.isEmpty()) return Collections.emptyList();
+        int n = candidates.size();
+        boolean[] selected = new boolean[n];
+
+        double[] simQuery = new double[n];
+        for (int i = 0; i < n; i++) simQuery[i] = cosine(queryVector, candidates.get(i).vector);
+
+        List<Candidate> result = new ArrayList<>();
+        int first = 0;
+        for (int i = 1; i < n; i++) if (simQuery[i] > simQuery[first]) first = i;
+        result.add(candidates.get(first));
+        selected[first] = true;
+
+        while (result.size() < Math.min(k, n)) {
+            double bestScore = Double.NEGATIVE_INFINITY;
+            int bestIdx = -1;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) continue;
+                double maxSimWithSelected = Double.NEGATIVE_INFINITY;
+                for (Candidate s : result) {
+                    double sim = cosine(candidates.get(i).vector, s.vector);
+                    if (sim > maxSimWithSelected) maxSimWithSelected = sim;
+                }
+                if (maxSimWithSelected == Double.NEGATIVE_INFINITY) maxSimWithSelected = 0;
+                double score = lambda * simQuery[i] - (1 - lambda) * maxSimWithSelected;
+                if (score > bestScore) { bestScore = score; bestIdx = i; }
+            }
+            if (bestIdx == -1) break;
+            selected[bestIdx] = true;
+            result.add(candidates.get(bestIdx));
+        }
+        return result;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a==null || b==null || a.length != b.length) return 0.0;
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i]*a[i];
+            nb += b[i]*b[i];
+        }
+        if (na==0 || nb==0) return 0.0;
+        return dot / (Math.sqrt(na) * Math.sqrt(nb));
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class MmrEngineTest {
+
+    private static Candidate c(String id, float... v) {
+        Candidate c = new Candidate();
+        c.id = id;
+        c.vector = v;
+        return c;
+    }
+
+    @Test
+    public void testLambdaTradesRelevanceForDiversity() {
+        float s = (float) Math.sqrt(0.5);
+        List<Candidate> cands = new ArrayList<>(Arrays.asList(
+                c("A", 1f, 0f, 0f),
+                c("A-dup", 0.99f, (float) Math.sqrt(1 - 0.99 * 0.99), 0f),
+                c("B", s, 0f, s)));
+        MmrEngine engine = new MmrEngine();
+        assertEquals(Arrays.asList("A", "A-dup"), MmrBenchmark.ids(engine.rerank(cands, new float[]{1f, 0f, 0f}, 2, 0.9)));
+        assertEquals(Arrays.asList("A", "B"), MmrBenchmark.ids(engine.rerank(cands, new float[]{1f, 0f, 0f}, 2, 0.3)));
+
+        cands.add(c("no-vector"));
+        assertEquals(4, engine.rerank(cands, new float[]{1f, 0f, 0f}, 10, 0.3).size());
+    }
+
+    @Test
+    public void testMatchesPreviousImplementationAcrossReusedBuffers() {
+        Random r = new Random(11);
+        MmrEngine engine = new MmrEngine();
+        for (int n : new int[]{150, 7, 60, 1}) {
+            List<Candidate> cands = MmrBenchmark.randomCandidates(r, n, 32);
+            float[] q = MmrBenchmark.unitVector(r, 32);
+            assertEquals(MmrBenchmark.ids(MmrBenchmark.legacyRerank(cands, q, 20, 0.7)),
+                    MmrBenchmark.ids(engine.rerank(cands, q, 20, 0.7)));
+        }
+        assertTrue(engine.rerank(Collections.emptyList(), new float[32], 20, 0.7).isEmpty());
+    }
+}
@@ -0,0 +1,83 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OnnxPoolBenchmark - compares OnnxSessionPool sizes for the embedder on the same CPU.
+ *
+ * For each pool size the CPU is split evenly (intra-op threads = cores / poolSize) and
+ * `clients` threads embed single queries back-to-back for a fixed duration.
+ * Reports embeddings/sec and per-request p50/p99 latency.
+ *
+ * Usage:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass="org.example.OnnxPoolBenchmark" \
+ *       -Dexec.args="models/all-mpnet-base-v2-onnx 1,2,4,8 16 20"
+ *   args: modelDir poolSizes clients secondsPerRun
+ */
+public class OnnxPoolBenchmark {
+
+    private static final String[] QUERIES = {
+        "What is supervised learning?",
+        "Explain neural networks and deep learning",
+        "How does binary search work in Java?",
+        "When did I learn about concurrency and threads?",
+        "Describe the difference between SQL joins",
+        "What are the main topics in machine learning?"
+    };
+
+    public static void main(String[] args) throws Exception {
+        String modelDir = args.length > 0 ? args[0] : "models/all-mpnet-base-v2-onnx";
+        int cores = Runtime.getRuntime().availableProcessors();
+        String sizesArg = args.length > 1 ? args[1] : "1,2,4," + cores;
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        System.out.printf("cores=%d clients=%d seconds/run=%d%n", cores, clients, seconds);
+        System.out.printf("%-6s %-8s %-12s %-10s %-10s%n", "pool", "threads", "emb/sec", "p50 ms", "p99 ms");
+
+        for (String s : sizesArg.split(",")) {
+            int poolSize = Integer.parseInt(s.trim());
+            int threads = Math.max(1, cores / poolSize);
+            OnnxSessionPool.Options opts = new OnnxSessionPool.Options(poolSize, threads, null);
+            try (OnnxEmbedder embedder = new OnnxEmbedder(modelDir + "/model.onnx", modelDir, 384, opts)) {
+                run(embedder, clients, 3, false);          // warmup
+                long[] lat = run(embedder, clients, seconds, true);
+                Arrays.sort(lat);
+                System.out.printf("%-6d %-8d %-12.1f %-10.2f %-10.2f%n", poolSize, threads,
+                        lat.length / (double) seconds, pct(lat, 0.50) / 1e6, pct(lat, 0.99) / 1e6);
+            }
+        }
+    }
+
+    private static long[] run(OnnxEmbedder embedder, int clients, int seconds, boolean record) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            final int offset = c;
+            futures.add(pool.submit(() -> {
+                List<Long> lat = new ArrayList<>();
+                int i = offset;
+                while (!stop.get()) {
+                    long t0 = System.nanoTime();
+                    embedder.embed(QUERIES[i++ % QUERIES.length]);
+                    if (record) lat.add(System.nanoTime() - t0);
+                }
+                return lat;
+            }));
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        List<Long> all = new ArrayList<>();
+        for (Future<List<Long>> f : futures) all.addAll(f.get());
+        pool.shutdown();
+        return all.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static double pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class PromptBuilderBudgetTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    // Fake tokenizer: one id per non-whitespace character, so "[CHUNK id=A type=t]\n" is 17 tokens
+    private final ChunkTokenStore.Tokenize fake = text -> text.codePoints()
+            .filter(ch -> !Character.isWhitespace(ch)).asLongStream().toArray();
+
+    private static DbChunk chunk(String id, String text) {
+        DbChunk c = new DbChunk();
+        c.setChunkId(id);
+        c.setChunkType("t");
+        c.setText(text);
+        return c;
+    }
+
+    private static final List<DbChunk> CHUNKS = Arrays.asList(chunk("A", "abcd efgh"), chunk("B", "ijkl"));
+
+    // no tokenizer.json in the model dir: TokenizerUtil counts whitespace-separated words
+    private String prompt(int budget, ChunkTokenStore store) {
+        PromptBuilder pb = new PromptBuilder(tmp.getRoot().getAbsolutePath(), budget, 0, 0, store);
+        return pb.buildPrompt(CHUNKS, "question", 5);
+    }
+
+    @Test
+    public void testHeadersAreCountedWithTheChunkTokenStoreTokenizer() {
+        // A: 17 header + 8 body, B: 17 header + 4 body
+        String exact = prompt(46, new ChunkTokenStore(fake));
+        assertTrue(exact.contains("[CHUNK id=A type=t]\nabcd efgh\n"));
+        assertTrue(exact.contains("[CHUNK id=B type=t]\nijkl\n"));
+
+        // counting the headers as 3 words each would let B in here and overrun the budget
+        String over = prompt(45, new ChunkTokenStore(fake));
+        assertTrue(over.contains("[CHUNK id=A type=t]\nabcd efgh\n"));
+        assertFalse(over.contains("[CHUNK id=B"));
+    }
+
+    @Test
+    public void testWithoutAStoreEveryPartUsesTokenizerUtil() {
+        // A: 3 header + 2 body, B: 3 header + 1 body
+        String exact = prompt(9, null);
+        assertTrue(exact.contains("[CHUNK id=A type=t]\nabcd efgh\n"));
+        assertTrue(exact.contains("[CHUNK id=B type=t]\nijkl\n"));
+
+        String over = prompt(8, null);
+        assertTrue(over.contains("[CHUNK id=A type=t]\nabcd efgh\n"));
+        assertFalse(over.contains("[CHUNK id=B"));
+    }
+}
@@ -0,0 +1,13 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class QdrantClientTest {
+
+    @Test
+    public void testPointIdMatchesUploadedPoints() {
+        // id of ASSIGN-51 in qdrant_learning_chunks_export.json, written by EmbeddingUploader
+        assertEquals("009718f3-98aa-3710-bc53-a55ffd31efa4", QdrantClient.pointIdForChunk("ASSIGN-51"));
+    }
+}
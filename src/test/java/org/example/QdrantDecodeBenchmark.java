@@ -0,0 +1,104 @@
+package org.example;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QdrantDecodeBenchmark - tree (legacy) vs streaming decoding of a Qdrant search response.
+ *
+ * Builds a search response of `topK` points (score + payload + vector) from the real
+ * qdrant_learning_chunks_export.json, then decodes it with the old readTree/convertValue path
+ * and with QdrantResponseDecoder. Add -prof gc for bytes allocated per decode (gc.alloc.rate.norm).
+ *
+ * Usage:
+ *   mvn -q -P jmh test-compile exec:exec -Djmh.args="QdrantDecodeBenchmark -prof gc -p topK=100"
+ *   params: export (file), topK
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QdrantDecodeBenchmark {
+    private static final ObjectMapper M = new ObjectMapper();
+
+    @Param("qdrant_learning_chunks_export.json")
+    public String export;
+
+    @Param("100")
+    public int topK;
+
+    private byte[] response;
+
+    @Setup
+    public void setup() throws Exception {
+        response = buildSearchResponse(Paths.get(export), topK);
+        // sanity: both decoders agree
+        List<Candidate> a = legacyDecode(response);
+        List<Candidate> b = QdrantResponseDecoder.readPoints(response, 768);
+        if (a.size() != b.size() || !Arrays.equals(a.get(0).vector, b.get(0).vector)) {
+            throw new IllegalStateException("decoders disagree");
+        }
+    }
+
+    @Benchmark
+    public List<Candidate> tree() throws Exception {
+        return legacyDecode(response);
+    }
+
+    @Benchmark
+    public List<Candidate> streaming() throws IOException {
+        return QdrantResponseDecoder.readPoints(response, 768);
+    }
+
+    // search response shape: {"result":[{"id","version","score","payload","vector"}],"status","time"}
+    private static byte[] buildSearchResponse(Path export, int topK) throws Exception {
+        JsonNode points = M.readTree(export.toFile()).path("result").path("points");
+        if (!points.isArray() || points.size() == 0) throw new IllegalArgumentException("no points in " + export);
+        ArrayNode result = M.createArrayNode();
+        for (int i = 0; i < topK; i++) {
+            ObjectNode p = ((ObjectNode) points.get(i % points.size())).deepCopy();
+            p.put("version", 1);
+            p.put("score", 0.9 - i * 0.001);
+            result.add(p);
+        }
+        ObjectNode root = M.createObjectNode();
+        root.set("result", result);
+        root.put("status", "ok");
+        root.put("time", 0.0021);
+        return M.writeValueAsBytes(root);
+    }
+
+    // the decoding QdrantClient.search used before the streaming decoder
+    @SuppressWarnings("unchecked")
+    private static List<Candidate> legacyDecode(byte[] body) throws Exception {
+        JsonNode root = M.readTree(new String(body, java.nio.charset.StandardCharsets.UTF_8));
+        JsonNode result = root.get("result");
+        List<Candidate> out = new ArrayList<>();
+        for (JsonNode r : result) {
+            Candidate c = new Candidate();
+            c.id = r.get("id").asText();
+            c.score = r.has("score") ? r.get("score").asDouble() : 0.0;
+            Map<String, Object> payload = r.has("payload") ? M.convertValue(r.get("payload"), Map.class) : null;
+            if (payload != null) {
+                c.payload = new ChunkPayload((String) payload.get("chunk_id"), (String) payload.get("title"),
+                        (String) payload.get("chunk_type"));
+            }
+            JsonNode v = r.get("vector");
+            float[] fv = new float[v.size()];
+            for (int i = 0; i < v.size(); i++) fv[i] = (float) v.get(i).asDouble();
+            c.vector = fv;
+            out.add(c);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class QdrantResponseDecoderTest {
+
+    private static List<Candidate> decode(String json, int dimHint) throws Exception {
+        return QdrantResponseDecoder.readPoints(json.getBytes(StandardCharsets.UTF_8), dimHint);
+    }
+
+    @Test
+    public void testSearchShape() throws Exception {
+        String json = "{\"result\":[{\"id\":\"009718f3-98aa-3710-bc53-a55ffd31efa4\",\"version\":3,\"score\":0.83,"
+                + "\"payload\":{\"chunk_id\":\"ASSIGN-51\",\"title\":\"Basic SQL\",\"chunk_type\":\"assignment\","
+                + "\"metadata\":{\"assignment_id\":51,\"tags\":[\"sql\",{\"x\":1}]}},"
+                + "\"vector\":[-0.046361044,0.5,1e-3]}],\"status\":\"ok\",\"time\":0.001}";
+        List<Candidate> out = decode(json, 3);
+        assertEquals(1, out.size());
+        Candidate c = out.get(0);
+        assertEquals("009718f3-98aa-3710-bc53-a55ffd31efa4", c.id);
+        assertEquals(0.83, c.score, 1e-9);
+        assertEquals("ASSIGN-51", c.getChunkId());
+        assertEquals("Basic SQL", c.payload.title);
+        assertEquals("assignment", c.payload.chunkType);
+        assertArrayEquals(new float[]{-0.046361044f, 0.5f, 0.001f}, c.vector, 0f);
+    }
+
+    @Test
+    public void testScrollShapeWithoutVectors() throws Exception {
+        String json = "{\"result\":{\"points\":[{\"id\":42,\"payload\":{\"chunk_id\":\"CLASS-1-1\"},\"vector\":null}],"
+                + "\"next_page_offset\":null},\"status\":\"ok\"}";
+        List<Candidate> out = decode(json, 768);
+        assertEquals(1, out.size());
+        assertEquals("42", out.get(0).id);
+        assertEquals("CLASS-1-1", out.get(0).getChunkId());
+        assertNull(out.get(0).vector);
+    }
+
+    @Test
+    public void testVectorLongerOrShorterThanHint() throws Exception {
+        String json = "{\"result\":[{\"id\":\"a\",\"vector\":[1,2,3,4,5]},{\"id\":\"b\",\"vector\":[1]}]}";
+        List<Candidate> out = decode(json, 2);
+        assertEquals(5, out.get(0).vector.length);
+        assertEquals(5f, out.get(0).vector[4], 0f);
+        assertEquals(1, out.get(1).vector.length);
+        assertEquals("b", out.get(1).getChunkId());
+    }
+
+    @Test
+    public void testBatchShapeKeepsSearchOrder() throws Exception {
+        String json = "{\"result\":[[{\"id\":\"a\",\"score\":0.9,\"payload\":{\"chunk_id\":\"CLASS-1-1\"},\"vector\":[1,2]}],"
+                + "[],[{\"id\":\"b\",\"score\":0.5,\"payload\":{\"chunk_id\":\"TOPIC-3\"},\"vector\":[3,4]}]],\"status\":\"ok\"}";
+        List<List<Candidate>> out = QdrantResponseDecoder.readBatch(
+                new java.io.ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 2);
+        assertEquals(3, out.size());
+        assertEquals("CLASS-1-1", out.get(0).get(0).getChunkId());
+        assertTrue(out.get(1).isEmpty());
+        assertEquals("TOPIC-3", out.get(2).get(0).getChunkId());
+    }
+}
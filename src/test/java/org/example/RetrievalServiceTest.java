@@ -0,0 +1,41 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+public class RetrievalServiceTest {
+
+    private static boolean sqlRouted(String query) {
+        return RetrievalService.mayAnswerFromSql(IntentClassifier.classify(query), query);
+    }
+
+    @Test
+    public void testSqlRoutedQueriesBypassTheAnswerCache() {
+        assertTrue(sqlRouted("List all courses"));
+        assertTrue(sqlRouted("What topics are there?"));
+        assertTrue(sqlRouted("How many classes did I take for C2-T3?"));
+        assertTrue(sqlRouted("When did I learn C2-T3?"));
+        assertFalse(sqlRouted("Explain binary search"));
+        assertFalse(sqlRouted("How many classes did I take?")); // no topic id: RAG only
+    }
+
+    @Test
+    public void testQueryResultCopyIsIndependent() {
+        QueryResult original = new QueryResult("answer");
+        original.setSources(new ArrayList<>(List.of("C-1")));
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("id", "C-1");
+        original.setRetrievalChain(new ArrayList<>(List.of(entry)));
+
+        QueryResult copy = original.copy();
+        copy.getSources().add("C-2");
+        copy.getRetrievalChain().get(0).put("id", "C-9");
+        copy.setAnswer("changed");
+
+        assertEquals(List.of("C-1"), original.getSources());
+        assertEquals("C-1", original.getRetrievalChain().get(0).get("id"));
+        assertEquals("answer", original.getAnswer());
+    }
+}
@@ -15,6 +15,8 @@ public class RunEvaluation {
         all.addAll(TestSetLoader.loadSemantic(Paths.get("src/test/resources/semantic.csv")));
         all.addAll(TestSetLoader.loadMixed(Paths.get("src/test/resources/mixed.csv")));
 
+        ev.prefetchDenseTopK(all, 100);
+
         List<Evaluator.Result> results = new ArrayList<>();
         for (TestCase tc : all) {
             System.out.println("Running " + tc.id + " ...");
@@ -0,0 +1,109 @@
+package org.example;
+
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * RunFusionEvaluation - recall vs candidate count for the dense + BM25 fusion stage.
+ *
+ * For every semantic/mixed test case the query is embedded once, Qdrant returns the dense
+ * top-TOPK_DENSE and Lucene the BM25 top-TOPK_LEX. Each fusion strategy is then cut at every topN
+ * and reported with:
+ *   cand recall  mean fraction of expected chunk ids among the fused top-N
+ *   mmr recall   the same after MMR (what reaches the cross-encoder)
+ *   cands        mean candidates handed to MMR
+ *   fetches      mean lexical-only candidates that needed a vector fetch
+ *   mmr ms       mean MMR time
+ * The "merge" row is the pre-fusion behaviour: every dense hit plus every BM25 hit, uncut.
+ *
+ * Usage:
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass="org.example.RunFusionEvaluation" -Dexec.args="20,40,60"
+ *   args: topNList
+ */
+public class RunFusionEvaluation {
+
+    public static void main(String[] args) throws Exception {
+        String topNList = args.length > 0 ? args[0] : "20,40,60";
+
+        List<TestCase> cases = new ArrayList<>();
+        cases.addAll(TestSetLoader.loadSemantic(Paths.get("src/test/resources/semantic.csv")));
+        cases.addAll(TestSetLoader.loadMixed(Paths.get("src/test/resources/mixed.csv")));
+        cases.removeIf(tc -> tc.expectedChunkIds == null || tc.expectedChunkIds.isEmpty());
+
+        QdrantClient qdrant = new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION);
+        List<float[]> qvecs = new ArrayList<>();
+        List<List<Candidate>> dense = new ArrayList<>();
+        List<List<Candidate>> lexical = new ArrayList<>();
+        try (OnnxEmbedder embedder = new OnnxEmbedder(Config.modelFile(Config.EMBED_MODEL_PATH), Config.EMBED_MODEL_PATH,
+                384, Config.onnxPoolOptions());
+             LuceneIndexService lucene = new LuceneIndexService(Config.LUCENE_INDEX_DIR, Config.luceneOptions())) {
+            for (TestCase tc : cases) {
+                float[] q = embedder.embed(tc.query);
+                qvecs.add(q);
+                dense.add(qdrant.searchByVector(q, Config.TOPK_DENSE, true));
+                lexical.add(lucene.searchScored(tc.query, Config.TOPK_LEX));
+            }
+        }
+        System.out.printf("cases=%d TOPK_DENSE=%d TOPK_LEX=%d MMR_FINAL_SIZE=%d%n",
+                cases.size(), Config.TOPK_DENSE, Config.TOPK_LEX, Config.MMR_FINAL_SIZE);
+
+        Map<String, FusionStrategy> strategies = new LinkedHashMap<>();
+        strategies.put("rrf k=" + Config.FUSION_RRF_K, FusionStrategy.rrf(Config.FUSION_RRF_K));
+        for (double w : new double[]{0.3, 0.5, 0.7}) strategies.put("weighted w=" + w, FusionStrategy.weightedSum(w));
+
+        System.out.printf("%-18s %-6s %-12s %-11s %-8s %-8s %-8s%n",
+                "strategy", "topN", "cand recall", "mmr recall", "cands", "fetches", "mmr ms");
+        // dense hits, then BM25 hits as score-0 shells: the old mergeAndDedupe
+        report("merge", 0, (d, l) -> {
+            Map<String, Candidate> merged = new LinkedHashMap<>();
+            for (Candidate c : d) merged.putIfAbsent(c.getChunkId(), c);
+            for (Candidate c : l) merged.putIfAbsent(c.getChunkId(), shell(c));
+            return new ArrayList<>(merged.values());
+        }, cases, qvecs, dense, lexical, qdrant);
+        for (Map.Entry<String, FusionStrategy> s : strategies.entrySet()) {
+            for (String n : topNList.split(",")) {
+                report(s.getKey(), Integer.parseInt(n.trim()), s.getValue(), cases, qvecs, dense, lexical, qdrant);
+            }
+        }
+    }
+
+    private static void report(String name, int topN, FusionStrategy fusion, List<TestCase> cases, List<float[]> qvecs,
+                               List<List<Candidate>> dense, List<List<Candidate>> lexical, DenseIndex index) throws Exception {
+        double candRecall = 0, mmrRecall = 0, cands = 0, fetches = 0;
+        long mmrNanos = 0;
+        for (int i = 0; i < cases.size(); i++) {
+            List<String> expected = cases.get(i).expectedChunkIds;
+            List<Candidate> fused = RetrievalService.fuse(dense.get(i), lexical.get(i), fusion, topN, index, null);
+            long lexOnly = fusion.fuse(dense.get(i), lexical.get(i)).stream()
+                    .limit(topN > 0 ? topN : Long.MAX_VALUE)
+                    .filter(c -> c.vector == null)
+                    .count();
+            long t0 = System.nanoTime();
+            List<Candidate> picked = MMR.rerank(fused, qvecs.get(i), Config.MMR_FINAL_SIZE, Config.MMR_LAMBDA);
+            mmrNanos += System.nanoTime() - t0;
+
+            candRecall += fraction(expected, fused);
+            mmrRecall += fraction(expected, picked);
+            cands += fused.size();
+            fetches += lexOnly;
+        }
+        int n = Math.max(1, cases.size());
+        System.out.printf("%-18s %-6s %-12.3f %-11.3f %-8.1f %-8.1f %-8.3f%n", name, topN > 0 ? String.valueOf(topN) : "all",
+                candRecall / n, mmrRecall / n, cands / n, fetches / n, mmrNanos / 1e6 / n);
+    }
+
+    private static Candidate shell(Candidate c) {
+        Candidate s = new Candidate();
+        s.id = c.getChunkId();
+        return s;
+    }
+
+    private static double fraction(List<String> expected, List<Candidate> got) {
+        Set<String> ids = new HashSet<>();
+        for (Candidate c : got) ids.add(c.getChunkId());
+        int found = 0;
+        for (String e : expected) if (ids.contains(e)) found++;
+        return found / (double) expected.size();
+    }
+}
@@ -0,0 +1,133 @@
+package org.example;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * RunQuantizationEvaluation - accuracy/latency gate for MODEL_PRECISION=int8.
+ *
+ * Embedder: for every semantic/mixed test case, embeds the query with the fp32 and the int8 model,
+ * searches Qdrant top-100 (document vectors stay fp32) and checks recall as Evaluator does
+ * (all expected chunk ids retrieved). Also reports query embedding latency p50/p99.
+ *
+ * Cross-encoder: reranks the same fp32 top-RERANK_TOP_N chunks with both models and reports
+ * the overlap of their top-CONTEXT_K selections and rerank latency.
+ *
+ * Exits non-zero (FAIL) if recall drops by more than maxRecallDrop or mean overlap is below minOverlap.
+ *
+ * Usage (run ModelQuantizer first):
+ *   mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass="org.example.RunQuantizationEvaluation" -Dexec.args="0.02 0.75"
+ *   args: maxRecallDrop minOverlap
+ */
+public class RunQuantizationEvaluation {
+
+    public static void main(String[] args) throws Exception {
+        double maxRecallDrop = args.length > 0 ? Double.parseDouble(args[0]) : 0.02;
+        double minOverlap = args.length > 1 ? Double.parseDouble(args[1]) : 0.75;
+
+        List<TestCase> cases = new ArrayList<>();
+        cases.addAll(TestSetLoader.loadSemantic(Paths.get("src/test/resources/semantic.csv")));
+        cases.addAll(TestSetLoader.loadMixed(Paths.get("src/test/resources/mixed.csv")));
+        cases.removeIf(tc -> tc.expectedChunkIds == null || tc.expectedChunkIds.isEmpty());
+
+        String embedDir = Config.EMBED_MODEL_PATH;
+        String crossDir = Config.CROSS_ENCODER_ONNX_DIR;
+        QdrantClient qdrant = new QdrantClient(Config.QDRANT_URL, Config.QDRANT_COLLECTION);
+        DataFetcher db = new DataFetcher();
+
+        try (OnnxEmbedder fp32 = new OnnxEmbedder(embedDir + "/" + ModelQuantizer.FP32_FILE, embedDir, 384, Config.onnxPoolOptions());
+             OnnxEmbedder int8 = new OnnxEmbedder(embedDir + "/" + ModelQuantizer.INT8_FILE, embedDir, 384, Config.onnxPoolOptions());
+             CrossEncoderScorer crossFp32 = new CrossEncoderScorer(fp32, crossDir + "/" + ModelQuantizer.FP32_FILE);
+             CrossEncoderScorer crossInt8 = new CrossEncoderScorer(int8, crossDir + "/" + ModelQuantizer.INT8_FILE)) {
+
+            // warm both models so first-call allocation does not skew latency
+            for (int i = 0; i < 3; i++) { fp32.embed("warmup"); int8.embed("warmup"); }
+
+            int hitsFp32 = 0, hitsInt8 = 0;
+            List<Long> embFp32 = new ArrayList<>(), embInt8 = new ArrayList<>();
+            List<Long> rrFp32 = new ArrayList<>(), rrInt8 = new ArrayList<>();
+            List<Double> overlaps = new ArrayList<>();
+
+            for (TestCase tc : cases) {
+                long t0 = System.nanoTime();
+                float[] qa = fp32.embed(tc.query);
+                embFp32.add(System.nanoTime() - t0);
+                t0 = System.nanoTime();
+                float[] qb = int8.embed(tc.query);
+                embInt8.add(System.nanoTime() - t0);
+
+                List<String> idsA = chunkIds(qdrant.searchByVector(qa, Config.TOPK_DENSE, true));
+                List<String> idsB = chunkIds(qdrant.searchByVector(qb, Config.TOPK_DENSE, true));
+                boolean recallA = idsA.containsAll(tc.expectedChunkIds);
+                boolean recallB = idsB.containsAll(tc.expectedChunkIds);
+                if (recallA) hitsFp32++;
+                if (recallB) hitsInt8++;
+
+                // rerank the same candidate rows with both cross-encoders
+                List<String> rerankIds = idsA.stream().limit(Config.RERANK_TOP_N).collect(Collectors.toList());
+                Map<String, DbChunk> rows = db.fetchChunks(rerankIds);
+                List<DbChunk> docs = rerankIds.stream().map(rows::get).filter(Objects::nonNull).collect(Collectors.toList());
+                double overlap = 1.0;
+                if (!docs.isEmpty()) {
+                    t0 = System.nanoTime();
+                    Map<String, Float> sa = crossFp32.scoreBatch(tc.query, docs);
+                    rrFp32.add(System.nanoTime() - t0);
+                    t0 = System.nanoTime();
+                    Map<String, Float> sb = crossInt8.scoreBatch(tc.query, docs);
+                    rrInt8.add(System.nanoTime() - t0);
+                    overlap = overlap(topK(sa, Config.CONTEXT_K), topK(sb, Config.CONTEXT_K));
+                }
+                overlaps.add(overlap);
+                System.out.printf("%-6s recall fp32=%-5s int8=%-5s top-%d overlap=%.2f%n",
+                        tc.id, recallA, recallB, Config.CONTEXT_K, overlap);
+            }
+
+            int n = cases.size();
+            double recallFp32 = n == 0 ? 0 : hitsFp32 / (double) n;
+            double recallInt8 = n == 0 ? 0 : hitsInt8 / (double) n;
+            double meanOverlap = overlaps.stream().mapToDouble(Double::doubleValue).average().orElse(1.0);
+
+            System.out.println();
+            System.out.printf("cases=%d%n", n);
+            System.out.printf("embed  recall@%d  fp32=%.3f int8=%.3f (drop %.3f)%n",
+                    Config.TOPK_DENSE, recallFp32, recallInt8, recallFp32 - recallInt8);
+            System.out.printf("embed  latency    fp32 p50=%.2fms p99=%.2fms | int8 p50=%.2fms p99=%.2fms%n",
+                    pct(embFp32, 0.50), pct(embFp32, 0.99), pct(embInt8, 0.50), pct(embInt8, 0.99));
+            System.out.printf("rerank latency    fp32 p50=%.2fms p99=%.2fms | int8 p50=%.2fms p99=%.2fms%n",
+                    pct(rrFp32, 0.50), pct(rrFp32, 0.99), pct(rrInt8, 0.50), pct(rrInt8, 0.99));
+            System.out.printf("rerank top-%d overlap mean=%.3f%n", Config.CONTEXT_K, meanOverlap);
+
+            boolean pass = (recallFp32 - recallInt8) <= maxRecallDrop && meanOverlap >= minOverlap;
+            System.out.printf("%s (maxRecallDrop=%.3f minOverlap=%.2f)%n", pass ? "PASS" : "FAIL", maxRecallDrop, minOverlap);
+            if (!pass) System.exit(1);
+        }
+    }
+
+    private static List<String> chunkIds(List<Candidate> pts) {
+        return pts.stream().map(Candidate::getChunkId).collect(Collectors.toList());
+    }
+
+    private static Set<String> topK(Map<String, Float> scores, int k) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Float>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    private static double overlap(Set<String> a, Set<String> b) {
+        if (a.isEmpty()) return 1.0;
+        Set<String> common = new HashSet<>(a);
+        common.retainAll(b);
+        return common.size() / (double) a.size();
+    }
+
+    private static double pct(List<Long> nanos, double p) {
+        if (nanos.isEmpty()) return 0;
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SemanticAnswerCacheTest {
+
+    private static SemanticAnswerCache<String> cache(int capacity, AtomicLong now, SimpleMeterRegistry registry) {
+        return new SemanticAnswerCache<>("answer", capacity, 0.95, Duration.ofMinutes(10), registry, now::get);
+    }
+
+    @Test
+    public void testHitsOnlySimilarQueriesInTheSameScope() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SemanticAnswerCache<String> cache = cache(10, new AtomicLong(), registry);
+        cache.put(new float[]{1, 0, 0}, "SEMANTIC", "answer-x");
+        cache.put(new float[]{0, 1, 0}, "SEMANTIC", "answer-y");
+
+        // cos ~0.995 to x, not normalized on the way in
+        assertEquals("answer-x", cache.get(new float[]{10, 1, 0}, "SEMANTIC"));
+        // cos ~0.71 to both: below the threshold
+        assertNull(cache.get(new float[]{1, 1, 0}, "SEMANTIC"));
+        // same question, different intent / topic
+        assertNull(cache.get(new float[]{1, 0, 0}, "FACTUAL"));
+        assertNull(cache.get(new float[]{1, 0, 0, 0}, "SEMANTIC"));
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "answer", "result", "hit").counter().count(), 0.0);
+        assertEquals(3.0, registry.get("cache.gets").tags("cache", "answer", "result", "miss").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testExpiryInvalidationAndOverwriteWhenFull() {
+        AtomicLong now = new AtomicLong();
+        SemanticAnswerCache<String> cache = cache(2, now, new SimpleMeterRegistry());
+        cache.put(new float[]{1, 0, 0}, "S", "a");
+        cache.put(new float[]{0, 1, 0}, "S", "b");
+        cache.put(new float[]{0, 0, 1}, "S", "c"); // overwrites the oldest, "a"
+        assertNull(cache.get(new float[]{1, 0, 0}, "S"));
+        assertEquals("c", cache.get(new float[]{0, 0, 1}, "S"));
+        assertEquals(2, cache.size());
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertNull(cache.get(new float[]{0, 1, 0}, "S"));
+        assertEquals(0, cache.size());
+
+        cache.put(new float[]{0, 1, 0}, "S", "b2");
+        cache.invalidateAll();
+        assertNull(cache.get(new float[]{0, 1, 0}, "S"));
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.junit.AfterClass;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -69,4 +71,28 @@ public class SqlServiceIntegrationTest {
         Map<String,String> m = r.get();
         assertTrue("Expected earliest or latest keys", m.containsKey("earliest") || m.containsKey("latest"));
     }
+
+    @Test
+    public void testCorpusEpochBumpIsSeenByPoll() throws Exception {
+        try (Connection c = java.sql.DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword())) {
+            long before = CorpusEpoch.read(c);
+            CorpusEpoch epoch = new CorpusEpoch(() -> CorpusEpoch.read(c));
+            epoch.pollOnce();
+            String tag = epoch.tag();
+
+            assertEquals(before + 1, CorpusEpoch.bump(c, "test"));
+            assertTrue(epoch.pollOnce());
+            assertNotEquals(tag, epoch.tag());
+        }
+    }
+
+    @Test
+    public void testVectorsVersionIsKeptByBumpsThatDoNotSetIt() throws Exception {
+        try (Connection c = java.sql.DriverManager.getConnection(getJdbcUrl(), getUsername(), getPassword())) {
+            CorpusEpoch.bump(c, "EmbeddingUploader", 42L);
+            assertEquals(Long.valueOf(42), CorpusEpoch.readVectorsVersion(c));
+            CorpusEpoch.bump(c, "LuceneReindexer");
+            assertEquals(Long.valueOf(42), CorpusEpoch.readVectorsVersion(c));
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VectorKernelBenchmark - ScalarVectorKernel vs the Panama (jdk.incubator.vector) kernel at
+ * 384 and 768 dimensions.
+ *
+ * Per kernel and dimension: dot and cosine of two vectors, normalize, scoring a rows x dim matrix
+ * against a query (the MMR / exact-scan inner loop), and top-10 selection over the row scores
+ * (shared code, so both kernels should match). The speedup is the ratio of the scalar and panama
+ * rows in the JMH report.
+ *
+ * The jmh profile starts JMH with --add-modules jdk.incubator.vector and the forks inherit it:
+ *   mvn -q -P jmh test-compile exec:exec -Djmh.args="VectorKernelBenchmark -p rows=1000"
+ *   params: kernel (scalar, panama), dim, rows
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorKernelBenchmark {
+
+    @Param({"scalar", "panama"})
+    public String kernel;
+
+    @Param({"384", "768"})
+    public int dim;
+
+    @Param("1000")
+    public int rows;
+
+    private VectorKernel k;
+    private float[] a;
+    private float[] b;
+    private float[] matrix;
+    private float[] scores;
+    private int[] top;
+
+    @Setup
+    public void setup() {
+        k = VectorKernel.select(kernel);
+        if (!k.name().startsWith(kernel)) {
+            System.out.println("note: " + kernel + " kernel unavailable (jdk.incubator.vector not loaded), running " + k.name());
+        }
+        Random r = new Random(17);
+        a = random(r, dim);
+        b = random(r, dim);
+        matrix = random(r, rows * dim);
+        scores = new float[rows];
+        top = new int[10];
+        k.scoreRows(matrix, rows, dim, a, scores);
+    }
+
+    @Benchmark
+    public float dot() {
+        return k.dot(a, b);
+    }
+
+    @Benchmark
+    public float cosine() {
+        return k.cosine(a, b);
+    }
+
+    @Benchmark
+    public float[] normalize() {
+        k.normalize(b);
+        return b;
+    }
+
+    @Benchmark
+    public float[] scoreRows() {
+        k.scoreRows(matrix, rows, dim, a, scores);
+        return scores;
+    }
+
+    @Benchmark
+    public int topK() {
+        return k.topK(scores, rows, 10, top);
+    }
+
+    private static float[] random(Random r, int n) {
+        float[] v = new float[n];
+        for (int i = 0; i < n; i++) v[i] = (float) r.nextGaussian();
+        return v;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+public class VectorKernelTest {
+
+    private static float[] random(Random r, int n) {
+        float[] v = new float[n];
+        for (int i = 0; i < n; i++) v[i] = (float) r.nextGaussian();
+        return v;
+    }
+
+    private static double exactDot(float[] a, int aOff, float[] b, int bOff, int n) {
+        double s = 0;
+        for (int i = 0; i < n; i++) s += (double) a[aOff + i] * b[bOff + i];
+        return s;
+    }
+
+    private static List<VectorKernel> kernels() {
+        // surefire adds jdk.incubator.vector, so get() is the Panama kernel there
+        return Arrays.asList(VectorKernel.scalar(), VectorKernel.get());
+    }
+
+    @Test
+    public void testDotMatchesDoublePrecisionForOddLengthsAndOffsets() {
+        Random r = new Random(5);
+        for (VectorKernel k : kernels()) {
+            for (int n : new int[]{0, 1, 3, 7, 17, 384, 768, 1001}) {
+                float[] a = random(r, n + 5);
+                float[] b = random(r, n + 3);
+                assertEquals(k.name() + " n=" + n, exactDot(a, 5, b, 3, n), k.dot(a, 5, b, 3, n), 1e-3 * Math.max(1, Math.sqrt(n)));
+
+                ByteBuffer buf = ByteBuffer.allocate((n + 2) * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < n; i++) buf.putFloat((i + 2) * Float.BYTES, a[5 + i]);
+                assertEquals(k.dot(a, 5, b, 3, n), k.dot(buf, 2 * Float.BYTES, Arrays.copyOfRange(b, 3, 3 + n), n),
+                        1e-3 * Math.max(1, Math.sqrt(n)));
+            }
+        }
+    }
+
+    @Test
+    public void testNormalizeCosineAndUnit() {
+        for (VectorKernel k : kernels()) {
+            float[] v = {3f, 4f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f, 0f};
+            float[] u = k.unit(v);
+            assertNotSame(v, u);
+            assertEquals(0.6f, u[0], 1e-6f);
+            assertSame(u, k.unit(u));
+            k.normalize(v);
+            assertEquals(1f, k.norm(v), 1e-6f);
+            assertArrayEquals(u, v, 1e-6f);
+
+            float[] zero = new float[4];
+            k.normalize(zero);
+            assertArrayEquals(new float[4], zero, 0f);
+            assertEquals(0f, k.cosine(zero, new float[]{1f, 0f, 0f, 0f}), 0f);
+            assertEquals(0f, k.cosine(null, v), 0f);
+            assertEquals(-1f, k.cosine(new float[]{2f, 0f}, new float[]{-5f, 0f}), 1e-6f);
+        }
+    }
+
+    @Test
+    public void testScoreRowsAndTopK() {
+        Random r = new Random(9);
+        int rows = 50, d = 33;
+        float[] matrix = random(r, rows * d);
+        float[] q = random(r, d);
+        for (VectorKernel k : kernels()) {
+            float[] scores = new float[rows];
+            k.scoreRows(matrix, rows, d, q, scores);
+            for (int i = 0; i < rows; i++) assertEquals(exactDot(matrix, i * d, q, 0, d), scores[i], 1e-3);
+
+            Integer[] order = new Integer[rows];
+            for (int i = 0; i < rows; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+            int[] top = new int[10];
+            assertEquals(10, k.topK(scores, rows, 10, top));
+            for (int i = 0; i < 10; i++) assertEquals((int) order[i], top[i]);
+            assertEquals(3, k.topK(scores, 3, 10, top));
+            assertEquals(0, k.topK(scores, rows, 0, top));
+        }
+    }
+}